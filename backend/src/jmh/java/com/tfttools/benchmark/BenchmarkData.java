@@ -0,0 +1,91 @@
+package com.tfttools.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tfttools.domain.communitydragon.CommunityDragonObject;
+import com.tfttools.repository.EmblemRepository;
+import com.tfttools.repository.GameDataSnapshot;
+import com.tfttools.repository.TraitRepository;
+import com.tfttools.repository.UnitRepository;
+import com.tfttools.service.CommunityDragonDataService;
+import com.tfttools.web.client.CommunityDragonWebClient;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Repositories loaded from the bundled Community Dragon fallback data, without Spring and without network access.
+ * The data file can be swapped with {@code -Dtft.benchmark.data=<path to en_us.json>} and the set with
+ * {@code -Dtft.benchmark.set=<set number>}, which defaults to the newest set in the file.
+ */
+@Getter
+public class BenchmarkData
+{
+    private static BenchmarkData instance;
+
+    private final String setNumber;
+    private final TraitRepository traitRepository;
+    private final UnitRepository unitRepository;
+    private final EmblemRepository emblemRepository;
+
+    private BenchmarkData(CommunityDragonObject communityDragonObject)
+    {
+        this.setNumber = resolveSetNumber(communityDragonObject);
+
+        GameDataSnapshot gameData = GameDataSnapshot.build(communityDragonObject, setNumber, 1);
+        this.traitRepository = gameData.getTraitRepository();
+        this.unitRepository = gameData.getUnitRepository();
+        this.emblemRepository = gameData.getEmblemRepository();
+    }
+
+    /**
+     * Gets the data shared by every benchmark of the forked JVM, loading it on first use
+     */
+    public static synchronized BenchmarkData get()
+    {
+        if (instance == null)
+            instance = new BenchmarkData(load());
+        return instance;
+    }
+
+    private static CommunityDragonObject load()
+    {
+        ObjectMapper mapper = CommunityDragonWebClient.createCommunityDragonObjectMapper();
+
+        try (InputStream inputStream = openData())
+        {
+            return mapper.readValue(inputStream, CommunityDragonObject.class);
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException("Failed to load benchmark data", e);
+        }
+    }
+
+    private static InputStream openData() throws IOException
+    {
+        String dataPath = System.getProperty("tft.benchmark.data", "");
+        if (!dataPath.isBlank())
+            return Files.newInputStream(Path.of(dataPath));
+
+        InputStream inputStream = CommunityDragonDataService.class.getResourceAsStream(CommunityDragonDataService.FALLBACK_RESOURCE_PATH);
+        if (inputStream == null)
+            throw new IllegalStateException("Fallback data not found on the classpath at " + CommunityDragonDataService.FALLBACK_RESOURCE_PATH
+                    + ", add en_us.json there or pass -Dtft.benchmark.data=<path>");
+        return inputStream;
+    }
+
+    private static String resolveSetNumber(CommunityDragonObject communityDragonObject)
+    {
+        String configured = System.getProperty("tft.benchmark.set", "");
+        if (!configured.isBlank())
+            return configured;
+
+        return communityDragonObject.getSets().keySet().stream()
+                .filter(set -> set.matches("\\d+"))
+                .max((a, b) -> Integer.compare(Integer.parseInt(a), Integer.parseInt(b)))
+                .orElseThrow(() -> new IllegalStateException("No numbered set in the benchmark data"));
+    }
+}
@@ -0,0 +1,86 @@
+package com.tfttools.benchmark;
+
+import com.tfttools.domain.Composition;
+import com.tfttools.domain.Unit;
+import com.tfttools.engine.CompactComposition;
+import com.tfttools.util.CompositionUtils;
+import com.tfttools.util.TraitThresholdTable;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Threshold checks over a full board, on the public {@link Composition} and on the engine's {@link CompactComposition}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompositionUtilsBenchmark
+{
+    private static final int BOARD_SIZE = 8;
+
+    private List<Unit> units;
+    private Composition composition;
+    private CompactComposition compactComposition;
+    private TraitThresholdTable thresholdTable;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        BenchmarkData data = BenchmarkData.get();
+        units = data.getUnitRepository().getAllUnits().stream()
+                .sorted(Comparator.comparing(Unit::getName))
+                .toList();
+        thresholdTable = data.getTraitRepository().getThresholdTable();
+
+        List<Unit> board = units.subList(0, Math.min(BOARD_SIZE, units.size()));
+        composition = new Composition(new ArrayList<>(board));
+        compactComposition = new CompactComposition(data.getUnitRepository().getOrdinalCapacity(), data.getTraitRepository().getOrdinalCapacity());
+        board.forEach(compactComposition::add);
+    }
+
+    @Benchmark
+    public void traitsReachingFirstThreshold(Blackhole blackhole)
+    {
+        for (Unit unit : units)
+        {
+            blackhole.consume(CompositionUtils.INSTANCE.getTraitsReachingFirstThresholdWhenUnitAdded(composition, unit));
+        }
+    }
+
+    @Benchmark
+    public void traitsReachingFirstThresholdCompact(Blackhole blackhole)
+    {
+        for (Unit unit : units)
+        {
+            blackhole.consume(CompositionUtils.INSTANCE.getTraitsReachingFirstThresholdWhenUnitAdded(compactComposition, unit, thresholdTable));
+        }
+    }
+
+    @Benchmark
+    public Object activatedTraits()
+    {
+        return CompositionUtils.INSTANCE.getActivatedTraits(composition);
+    }
+
+    @Benchmark
+    public Object activatedTraitsCompact()
+    {
+        return CompositionUtils.INSTANCE.getActivatedTraits(compactComposition, thresholdTable);
+    }
+
+    @Benchmark
+    public Composition reduceCompositionToSynergies()
+    {
+        Composition copy = new Composition(composition);
+        CompositionUtils.INSTANCE.reduceCompositionToSynergies(copy);
+        return copy;
+    }
+}
@@ -0,0 +1,135 @@
+package com.tfttools.benchmark;
+
+import com.tfttools.domain.*;
+import com.tfttools.engine.TFTEngine;
+import com.tfttools.engine.engine_strategy.*;
+import com.tfttools.engine.manager.EngineStrategyManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end {@link TFTEngine#buildCompositions()} for one strategy at a time across board sizes and request shapes.
+ * The beam width only applies to the beam strategy, narrow the matrix with {@code -p} when comparing others, e.g.
+ * {@code -p strategy=GREEDY -p beamWidth=12}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark
+{
+    public enum Strategy
+    {
+        BEAM, GREEDY, EXHAUSTIVE, BRANCH_AND_BOUND
+    }
+
+    public enum Scenario
+    {
+        NONE, REQUIRED_UNITS, REQUIRED_TRAITS, EXCLUDED, EMBLEMS
+    }
+
+    @Param
+    private Strategy strategy;
+
+    @Param({"7", "8", "9", "10"})
+    private int tactitionLevel;
+
+    @Param({"4", "12"})
+    private int beamWidth;
+
+    @Param
+    private Scenario scenario;
+
+    private BenchmarkData data;
+    private EngineConfiguration configuration;
+    private EngineStrategyManager strategyManager;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        data = BenchmarkData.get();
+        configuration = createConfiguration();
+        strategyManager = new EngineStrategyManager(List.of(createStrategy()));
+    }
+
+    @Benchmark
+    public List<Composition> buildCompositions()
+    {
+        return new TFTEngine(configuration, data.getUnitRepository(), data.getTraitRepository(), null, strategyManager)
+                .buildCompositions();
+    }
+
+    private TFTEngineStrategy createStrategy()
+    {
+        return switch (strategy)
+        {
+            case BEAM -> new TFTEngineBeamSearchStrategy(beamWidth);
+            case GREEDY -> new TFTEngineGreedySearchStrategy();
+            case EXHAUSTIVE -> new TFTEngineExhaustiveSearchStrategy();
+            case BRANCH_AND_BOUND -> new TFTEngineBranchAndBoundStrategy();
+        };
+    }
+
+    // Picks are sorted by name so every run of a build benchmarks the same request
+    private EngineConfiguration createConfiguration()
+    {
+        List<Unit> units = data.getUnitRepository().getAllUnits().stream()
+                .sorted(Comparator.comparing(Unit::getName))
+                .toList();
+
+        Map<Trait, Integer> requiredTraits = Map.of();
+        Set<Unit> requiredUnits = Set.of();
+        Set<Trait> excludedTraits = Set.of();
+        Set<Unit> excludedUnits = Set.of();
+        Set<Emblem> emblems = Set.of();
+
+        switch (scenario)
+        {
+            case REQUIRED_UNITS -> requiredUnits = Set.of(units.get(0), units.get(units.size() / 2));
+            case REQUIRED_TRAITS ->
+            {
+                Trait widest = mostCommonCountableTrait();
+                requiredTraits = Map.of(widest, widest.getThresholds()[0]);
+            }
+            case EXCLUDED ->
+            {
+                excludedUnits = Set.of(units.get(1), units.get(units.size() / 3));
+                excludedTraits = Set.of(mostCommonCountableTrait());
+            }
+            case EMBLEMS -> emblems = data.getEmblemRepository().getAllEmblems().stream()
+                    .sorted(Comparator.comparing(Emblem::getDisplayName))
+                    .limit(2)
+                    .collect(HashSet::new, Set::add, Set::addAll);
+            case NONE ->
+            {
+            }
+        }
+
+        return EngineConfiguration.builder()
+                .compSize(3)
+                .requiredTraits(requiredTraits)
+                .requiredUnits(requiredUnits)
+                .excludedTraits(excludedTraits)
+                .excludedUnits(excludedUnits)
+                .costOfBoard(0)
+                .tactitionLevel(tactitionLevel)
+                .crowns(0)
+                .emblems(emblems)
+                .luck(0.5f)
+                .build();
+    }
+
+    private Trait mostCommonCountableTrait()
+    {
+        return data.getTraitRepository().getAllTraits().stream()
+                .filter(Trait::isCountable)
+                .filter(trait -> trait.getThresholds().length > 0)
+                .max(Comparator.comparingInt((Trait trait) -> data.getUnitRepository().getUnitsByTrait(trait).size())
+                        .thenComparing(Trait::getName, Comparator.reverseOrder()))
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,116 @@
+package com.tfttools.benchmark;
+
+import com.tfttools.domain.EngineConfiguration;
+import com.tfttools.domain.Unit;
+import com.tfttools.engine.EngineState;
+import com.tfttools.engine.SearchBudget;
+import com.tfttools.engine.TFTEngine;
+import com.tfttools.engine.engine_strategy.StrategyContext;
+import com.tfttools.engine.heuristic.Heuristic;
+import com.tfttools.engine.heuristic.WeightRegistry;
+import com.tfttools.engine.manager.EngineTerminatorManager;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scores every available unit of a half-built board with the scorers beam search uses, once with a heuristic built for
+ * the board and once with a heuristic that is moved onto it incrementally
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeuristicBenchmark
+{
+    @Param({"0", "3", "6"})
+    private int unitsOnBoard;
+
+    private StrategyContext context;
+    private WeightRegistry registry;
+
+    private EngineState board;
+    private Heuristic incrementalHeuristic;
+    private Unit swappedUnit;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        BenchmarkData data = BenchmarkData.get();
+        EngineConfiguration configuration = EngineConfiguration.builder()
+                .compSize(3)
+                .requiredTraits(Map.of())
+                .requiredUnits(Set.of())
+                .excludedTraits(Set.of())
+                .excludedUnits(Set.of())
+                .costOfBoard(0)
+                .tactitionLevel(9)
+                .crowns(0)
+                .emblems(Set.of())
+                .luck(0.5f)
+                .build();
+
+        context = new StrategyContext(configuration, new EngineTerminatorManager(9, 0),
+                data.getUnitRepository(), data.getTraitRepository(), data.getUnitRepository().getAllUnits(), null, SearchBudget.unlimited());
+        registry = context.getWeightRegistry();
+
+        // A board the engine itself would build, so the scorers see realistic trait counts
+        List<Unit> bestBoard = new TFTEngine(configuration, data.getUnitRepository(), data.getTraitRepository())
+                .buildCompositions().get(0).getUnits();
+
+        board = context.createEngineState();
+        for (Unit unit : bestBoard.subList(0, Math.min(unitsOnBoard, bestBoard.size())))
+        {
+            board.addUnit(unit);
+        }
+        swappedUnit = bestBoard.get(bestBoard.size() - 1);
+
+        incrementalHeuristic = createHeuristic(board);
+    }
+
+    @Benchmark
+    public void scoreWithNewHeuristic(Blackhole blackhole)
+    {
+        Heuristic heuristic = createHeuristic(board);
+        for (Unit unit : board.getAvailableUnits())
+        {
+            blackhole.consume(heuristic.getWeight(unit));
+        }
+    }
+
+    @Benchmark
+    public void scoreAfterIncrementalMove(Blackhole blackhole)
+    {
+        board.addUnit(swappedUnit);
+        incrementalHeuristic.notifyUnitAdded(swappedUnit);
+        for (Unit unit : board.getAvailableUnits())
+        {
+            blackhole.consume(incrementalHeuristic.getWeight(unit));
+        }
+
+        board.removeUnit(swappedUnit);
+        incrementalHeuristic.notifyUnitRemoved(swappedUnit);
+        for (Unit unit : board.getAvailableUnits())
+        {
+            blackhole.consume(incrementalHeuristic.getWeight(unit));
+        }
+    }
+
+    private Heuristic createHeuristic(EngineState engineState)
+    {
+        return registry.builder()
+                .with(
+                        registry.createSynergyLookahead(engineState),
+                        registry.createRequiredTraitsWeight(engineState),
+                        registry.createRequiredUnitsWeight(engineState),
+                        registry.createTraitsAddedWeightWithEmblems(engineState, registry.createEmblemWeightScorer(engineState))
+                )
+                .build();
+    }
+}
@@ -0,0 +1,48 @@
+package com.tfttools.benchmark;
+
+import com.tfttools.domain.Unit;
+import com.tfttools.repository.UnitRepository;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Champion search by prefix, as served by the search endpoints
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrefixTrieBenchmark
+{
+    @Param({"1", "2", "4"})
+    private int prefixLength;
+
+    private UnitRepository unitRepository;
+    private List<String> prefixes;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        unitRepository = BenchmarkData.get().getUnitRepository();
+        prefixes = unitRepository.getAllUnits().stream()
+                .map(Unit::getName)
+                .map(name -> name.substring(0, Math.min(prefixLength, name.length())))
+                .distinct()
+                .sorted()
+                .toList();
+    }
+
+    @Benchmark
+    public void championsStartingWith(Blackhole blackhole)
+    {
+        for (String prefix : prefixes)
+        {
+            blackhole.consume(unitRepository.getAllChampionsStartingWith(prefix));
+        }
+    }
+}
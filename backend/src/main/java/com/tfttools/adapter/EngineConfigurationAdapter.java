@@ -9,6 +9,7 @@ import com.tfttools.dto.HorizontalDTO;
 import com.tfttools.dto.TraitDTO;
 import com.tfttools.dto.UnitDTO;
 import com.tfttools.repository.EmblemRepository;
+import com.tfttools.repository.GameDataSnapshot;
 import com.tfttools.repository.TraitRepository;
 import com.tfttools.repository.UnitRepository;
 import org.springframework.stereotype.Component;
@@ -35,6 +36,16 @@ public class EngineConfigurationAdapter
         return adaptFromHorizontalDTO(input);
     }
 
+    /**
+     * Adapts the input against the units, traits and emblems of a given snapshot, so the configuration matches the
+     * snapshot an engine run is pinned to even if a newer one is published meanwhile
+     */
+    public EngineConfiguration adaptToEngineConfiguration(HorizontalDTO input, GameDataSnapshot gameData)
+    {
+        return new EngineConfigurationAdapter(gameData.getUnitRepository(), gameData.getTraitRepository(),
+                gameData.getEmblemRepository()).adaptFromHorizontalDTO(input);
+    }
+
     private EngineConfiguration adaptFromHorizontalDTO(HorizontalDTO horizontalDTO)
     {
         ValidationContext validation = new ValidationContext();
@@ -0,0 +1,137 @@
+package com.tfttools.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Executors used by the composition engine to parallelize work within a single search, and to run searches off the
+ * request threads
+ */
+@Configuration
+public class EngineExecutorConfig
+{
+    @Value("${tft.engine.beam.parallelism:1}")
+    private int beamParallelism;
+
+    @Value("${tft.engine.search.threads:0}")
+    private int searchThreads;
+
+    @Value("${tft.engine.search.queue-capacity:64}")
+    private int searchQueueCapacity;
+
+    @Value("${tft.engine.batch.threads:2}")
+    private int batchThreads;
+
+    @Value("${tft.engine.batch.queue-capacity:8}")
+    private int batchQueueCapacity;
+
+    @Value("${tft.engine.portfolio.threads:0}")
+    private int portfolioThreads;
+
+    @Value("${tft.engine.jobs.threads:2}")
+    private int jobThreads;
+
+    @Value("${tft.engine.jobs.queue-capacity:16}")
+    private int jobQueueCapacity;
+
+    @Value("${tft.engine.jobs.event-threads:2}")
+    private int jobEventThreads;
+
+    /**
+     * Pool the beam search expands the states of each depth on. Only created when more than one thread is configured,
+     * otherwise beam search runs on the request thread.
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnExpression("${tft.engine.beam.parallelism:1} > 1")
+    public ForkJoinPool beamSearchPool()
+    {
+        return new ForkJoinPool(beamParallelism);
+    }
+
+    /**
+     * Bounded pool horizontal composition searches run on, so a slow search does not hold a request thread and the
+     * number of searches running at once stays fixed. Searches beyond the queue capacity are rejected.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor compositionSearchExecutor()
+    {
+        int threads = searchThreads > 0 ? searchThreads : Runtime.getRuntime().availableProcessors();
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(searchQueueCapacity);
+        executor.setThreadNamePrefix("composition-search-");
+        return executor;
+    }
+
+    /**
+     * Bounded pool batches of horizontal composition searches run on, kept apart from the interactive searches so a
+     * large sweep cannot take their threads. A batch runs on one thread and spreads its searches over the idle ones,
+     * batches beyond the queue capacity are rejected.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor compositionBatchExecutor()
+    {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(batchThreads);
+        executor.setMaxPoolSize(batchThreads);
+        executor.setQueueCapacity(batchQueueCapacity);
+        executor.setThreadNamePrefix("composition-batch-");
+        return executor;
+    }
+
+    /**
+     * Bounded pool the search strategies of a composition search run on concurrently. Only created when the strategy
+     * portfolio is enabled, a strategy that finds the pool saturated runs on the search thread instead.
+     */
+    @Bean
+    @ConditionalOnExpression("${tft.engine.portfolio.enabled:false}")
+    public ThreadPoolTaskExecutor strategyPortfolioExecutor()
+    {
+        int threads = portfolioThreads > 0 ? portfolioThreads : Runtime.getRuntime().availableProcessors();
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(threads * 4);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("strategy-portfolio-");
+        return executor;
+    }
+
+    /**
+     * Bounded pool background search jobs run on, kept apart from the interactive searches. Jobs beyond the queue
+     * capacity are rejected so clients back off instead of piling up work.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor searchJobExecutor()
+    {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(jobThreads);
+        executor.setMaxPoolSize(jobThreads);
+        executor.setQueueCapacity(jobQueueCapacity);
+        executor.setThreadNamePrefix("search-job-");
+        return executor;
+    }
+
+    /**
+     * Pool progress of background search jobs is sent to subscribers on, so a subscriber that reads slowly holds up
+     * one of these threads rather than the search. Each job queues at most one task, holding its latest progress.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor searchJobEventExecutor()
+    {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(jobEventThreads);
+        executor.setMaxPoolSize(jobEventThreads);
+        executor.setThreadNamePrefix("search-job-events-");
+        return executor;
+    }
+}
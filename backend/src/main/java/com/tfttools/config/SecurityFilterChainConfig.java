@@ -5,6 +5,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
@@ -35,12 +36,24 @@ public class SecurityFilterChainConfig
                                     "/units/search/**",
                                     "/units/traits",
                                     "/units",
-                                    "/tools/*"
+                                    "/tools/*",
+                                    "/tools/horizontal/cache/status",
+                                    "/tools/jobs/**",
+                                    "/actuator/health"
                             ).permitAll().requestMatchers(
                                     HttpMethod.POST,
-                                    "/tools/horizontal"
-                            ).permitAll();
+                                    "/tools/horizontal",
+                                    "/tools/horizontal/stream",
+                                    "/tools/horizontal/batch",
+                                    "/tools/jobs"
+                            ).permitAll().requestMatchers(
+                                    HttpMethod.DELETE,
+                                    "/tools/jobs/*"
+                            ).permitAll().requestMatchers(
+                                    "/actuator/**"
+                            ).authenticated();
                 })
+                .httpBasic(Customizer.withDefaults())
                 .sessionManagement(httpSecuritySessionManagementConfigurer -> httpSecuritySessionManagementConfigurer.sessionCreationPolicy(SessionCreationPolicy.STATELESS));
         return http.build();
     }
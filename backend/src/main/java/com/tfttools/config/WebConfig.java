@@ -4,19 +4,31 @@ import com.tfttools.converter.StringToTraitConverter;
 import com.tfttools.converter.StringToUnitConverter;
 import com.tfttools.repository.TraitRepository;
 import com.tfttools.repository.UnitRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.format.FormatterRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
     private final UnitRepository unitRepository;
     private final TraitRepository traitRepository;
+    private final ThreadPoolTaskExecutor compositionSearchExecutor;
 
-    public WebConfig(UnitRepository unitRepository, TraitRepository traitRepository)
+    public WebConfig(UnitRepository unitRepository, TraitRepository traitRepository,
+                     @Qualifier("compositionSearchExecutor") ThreadPoolTaskExecutor compositionSearchExecutor)
     {
         this.unitRepository = unitRepository;
         this.traitRepository = traitRepository;
+        this.compositionSearchExecutor = compositionSearchExecutor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        // Asynchronous handlers are composition searches
+        configurer.setTaskExecutor(compositionSearchExecutor);
     }
 
     @Override
@@ -0,0 +1,95 @@
+package com.tfttools.controller;
+
+import com.tfttools.dto.HorizontalDTO;
+import com.tfttools.dto.SearchJobDTO;
+import com.tfttools.mapper.SearchJobMapper;
+import com.tfttools.service.SearchJob;
+import com.tfttools.service.SearchJobService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.function.Consumer;
+
+/**
+ * Background variant of {@link ToolsController#getHorizontalComps(HorizontalDTO)} for searches that take longer than a
+ * request should stay open
+ */
+@RestController
+@RequestMapping("/tools/jobs")
+public class SearchJobController
+{
+    private final SearchJobService searchJobService;
+    private final SearchJobMapper searchJobMapper;
+
+    public SearchJobController(SearchJobService searchJobService, SearchJobMapper searchJobMapper) {
+        this.searchJobService = searchJobService;
+        this.searchJobMapper = searchJobMapper;
+    }
+
+    /**
+     * Queues a horizontal composition search
+     *
+     * @param horizontalDTO
+     * @return The queued job and its location, or 429 when too many jobs are queued already
+     */
+    @PostMapping
+    public ResponseEntity<SearchJobDTO> submitJob(@RequestBody HorizontalDTO horizontalDTO) {
+        return searchJobService.submit(horizontalDTO)
+                .map(job -> ResponseEntity.accepted()
+                        .location(URI.create("/tools/jobs/" + job.getId()))
+                        .body(searchJobMapper.apply(job)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build());
+    }
+
+    /**
+     * Reports the progress of a job, and its compositions once it has finished
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<SearchJobDTO> getJob(@PathVariable String id) {
+        return ResponseEntity.of(searchJobService.getJob(id).map(searchJobMapper));
+    }
+
+    /**
+     * Cancels a job, a running job keeps the best compositions it found so far as its result
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<SearchJobDTO> cancelJob(@PathVariable String id) {
+        return ResponseEntity.of(searchJobService.cancel(id).map(searchJobMapper));
+    }
+
+    /**
+     * Streams the progress of a job as Server-Sent {@code progress} events, the last one carrying its compositions
+     */
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribeToJob(@PathVariable String id) {
+        return ResponseEntity.of(searchJobService.getJob(id).map(this::subscribe));
+    }
+
+    private SseEmitter subscribe(SearchJob job) {
+        // A job can outlive any default request timeout
+        SseEmitter emitter = new SseEmitter(0L);
+
+        Consumer<SearchJob> listener = progress ->
+        {
+            try {
+                emitter.send(SseEmitter.event().name("progress").data(searchJobMapper.apply(progress), MediaType.APPLICATION_JSON));
+                if (progress.getStatus().isFinished()) {
+                    emitter.complete();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        emitter.onCompletion(() -> job.removeProgressListener(listener));
+        emitter.onError(error -> job.removeProgressListener(listener));
+
+        job.addProgressListener(listener);
+        return emitter;
+    }
+}
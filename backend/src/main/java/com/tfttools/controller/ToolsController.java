@@ -3,10 +3,25 @@ package com.tfttools.controller;
 import com.tfttools.dto.CompositionDTO;
 import com.tfttools.dto.HorizontalDTO;
 import com.tfttools.dto.UnitDTO;
+import com.tfttools.engine.SearchBudget;
+import com.tfttools.service.CompositionResultCache;
 import com.tfttools.service.CompositionService;
 import com.tfttools.service.UnitService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
@@ -15,19 +30,130 @@ public class ToolsController
 {
 
     private final CompositionService compositionService;
+    private final ThreadPoolTaskExecutor compositionSearchExecutor;
+    private final ThreadPoolTaskExecutor compositionBatchExecutor;
+    private final int maxBatchSize;
 
-    public ToolsController(CompositionService compositionService) {
+    public ToolsController(CompositionService compositionService,
+                           @Qualifier("compositionSearchExecutor") ThreadPoolTaskExecutor compositionSearchExecutor,
+                           @Qualifier("compositionBatchExecutor") ThreadPoolTaskExecutor compositionBatchExecutor,
+                           @Value("${tft.engine.batch.max-size:32}") int maxBatchSize) {
         this.compositionService = compositionService;
+        this.compositionSearchExecutor = compositionSearchExecutor;
+        this.compositionBatchExecutor = compositionBatchExecutor;
+        this.maxBatchSize = maxBatchSize;
     }
 
     /**
      * Finds comps with the most possible active traits given the # of units per comp, # of comps to generate, required traits + thresholds,
-     * and required champions
+     * and required champions.
+     * The search runs off the request thread within the configured deadline, and stops once the request completes
+     * in any way, including the client disconnecting or the request timing out.
+     * The current set is searched unless the request selects another one.
      *
      * @param horizontalDTO
      */
     @PostMapping("/horizontal")
-    public List<CompositionDTO> getHorizontalComps(@RequestBody HorizontalDTO horizontalDTO) {
-        return compositionService.generateCompositions(horizontalDTO);
+    public WebAsyncTask<List<CompositionDTO>> getHorizontalComps(@RequestBody HorizontalDTO horizontalDTO) {
+        // Only cancels the search, its deadline and node limit are the configured ones
+        SearchBudget searchBudget = SearchBudget.unlimited();
+
+        WebAsyncTask<List<CompositionDTO>> search = new WebAsyncTask<>(
+                () -> compositionService.generateCompositions(horizontalDTO, searchBudget));
+        search.onCompletion(searchBudget::cancel);
+        return search;
+    }
+
+    /**
+     * Finds comps for many configurations in one call, as a sweep over levels, crowns or required traits would.
+     * The searches run in parallel on a pool of their own, each within the same deadline as a single search, and stop
+     * once the request completes in any way, including the client disconnecting or the request timing out.
+     * Answers 400 when the batch holds more configurations than configured, and 503 when too many batches are running.
+     *
+     * @param horizontalDTOs The configurations
+     * @return The comps of each configuration, in the order the configurations were given
+     */
+    @PostMapping("/horizontal/batch")
+    public DeferredResult<List<List<CompositionDTO>>> getHorizontalCompsBatch(@RequestBody List<HorizontalDTO> horizontalDTOs) {
+        if (horizontalDTOs.size() > maxBatchSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "A batch holds at most " + maxBatchSize + " configurations, got " + horizontalDTOs.size());
+        }
+
+        SearchBudget batchBudget = SearchBudget.unlimited();
+        DeferredResult<List<List<CompositionDTO>>> batch = new DeferredResult<>();
+        batch.onCompletion(batchBudget::cancel);
+        batch.onTimeout(batchBudget::cancel);
+        batch.onError(error -> batchBudget.cancel());
+
+        try {
+            compositionBatchExecutor.execute(() ->
+            {
+                try {
+                    batch.setResult(compositionService.generateCompositionBatch(horizontalDTOs, batchBudget));
+                } catch (RuntimeException e) {
+                    batch.setErrorResult(e);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many batches running, retry later", e);
+        }
+        return batch;
+    }
+
+    /**
+     * Streams the same search as {@link #getHorizontalComps(HorizontalDTO)} as Server-Sent Events.
+     * Every valid composition is sent as a {@code composition} event as soon as a strategy finds it, and the ranked
+     * compositions follow as a single {@code result} event once the search is done.
+     * Answers 503 without opening a stream when the search pool and its queue are full.
+     *
+     * @param horizontalDTO
+     */
+    @PostMapping(value = "/horizontal/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamHorizontalComps(@RequestBody HorizontalDTO horizontalDTO) {
+        SearchBudget searchBudget = SearchBudget.unlimited();
+
+        SseEmitter emitter = new SseEmitter();
+        emitter.onCompletion(searchBudget::cancel);
+        emitter.onTimeout(searchBudget::cancel);
+        emitter.onError(error -> searchBudget.cancel());
+
+        try {
+            compositionSearchExecutor.execute(() ->
+            {
+                try {
+                    List<CompositionDTO> ranked = compositionService.generateCompositions(horizontalDTO, searchBudget,
+                            composition -> sendEvent(emitter, "composition", composition));
+                    sendEvent(emitter, "result", ranked);
+                    emitter.complete();
+                } catch (UncheckedIOException e) {
+                    // The client went away, nobody is left to read the rest of the stream
+                    searchBudget.cancel();
+                } catch (RuntimeException e) {
+                    emitter.completeWithError(e);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            // The emitter is never handed to the client, so the rejection is answered before any stream is opened
+            searchBudget.cancel();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many searches running, retry later", e);
+        }
+        return emitter;
+    }
+
+    private static void sendEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reports the size and hit, miss and eviction counts of the horizontal composition cache
+     */
+    @GetMapping("/horizontal/cache/status")
+    public ResponseEntity<CompositionResultCache.CacheStatus> getHorizontalCacheStatus() {
+        return ResponseEntity.ok(compositionService.getResultCacheStatus());
     }
 }
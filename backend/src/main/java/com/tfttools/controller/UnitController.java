@@ -21,41 +21,45 @@ public class UnitController {
         this.searchService = searchService;
     }
 
+    /**
+     * Lists the units of a set, the current one unless {@code set} selects another
+     */
     @GetMapping
-    public List<UnitDTO> getAllUnits() {
-        return unitService.getAllUnits();
+    public List<UnitDTO> getAllUnits(@RequestParam(required = false) String set) {
+        return unitService.getAllUnits(set);
     }
 
     /**
      * General search endpoint that returns all matching entities
      */
     @GetMapping("/search")
-    public SearchResultDTO getSuggestions(@RequestParam(defaultValue = "") String query) {
-        return unitService.getSuggestions(query);
+    public SearchResultDTO getSuggestions(@RequestParam(defaultValue = "") String query,
+                                          @RequestParam(required = false) String set) {
+        return unitService.getSuggestions(query, set);
     }
 
     /**
      * Champion-specific search endpoint
      */
     @GetMapping("/search/champions")
-    public List<UnitDTO> searchChampions(@RequestParam String query) {
-        return searchService.searchChampions(query);
+    public List<UnitDTO> searchChampions(@RequestParam String query, @RequestParam(required = false) String set) {
+        return searchService.searchChampions(query, set);
     }
 
     /**
      * Trait-specific search endpoint
      */
     @GetMapping("/search/traits")
-    public List<TraitDTO> searchTraits(@RequestParam String query) {
-        return searchService.searchTraits(query);
+    public List<TraitDTO> searchTraits(@RequestParam String query, @RequestParam(required = false) String set) {
+        return searchService.searchTraits(query, set);
     }
 
     /**
      * Emblem-specific search endpoint
      */
     @GetMapping("/search/emblems")
-    public List<EmblemDTO> searchEmblems(@RequestParam String query) {
-        return searchService.searchEmblems(query);
+    public List<EmblemDTO> searchEmblems(@RequestParam String query, @RequestParam(required = false) String set) {
+        return searchService.searchEmblems(query, set);
     }
 
     @GetMapping("/filter")
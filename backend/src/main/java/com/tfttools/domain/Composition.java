@@ -94,12 +94,21 @@ public class Composition
         if (obj == this) return true;
         if (!(obj instanceof Composition)) return false;
         Composition other = (Composition) obj;
-        return new HashSet<>(this.units).containsAll(other.units) && this.traits.equals(other.traits);
+        // Boards are at most a handful of units, so a linear containsAll is cheaper than hashing them
+        return this.units.size() == other.units.size()
+                && this.traits.equals(other.traits)
+                && this.units.containsAll(other.units);
     }
 
     @Override
     public int hashCode()
     {
-        return Objects.hash(units, traits);
+        // Must not depend on unit order, like equals
+        int unitsHash = 0;
+        for (Unit unit : units)
+        {
+            unitsHash += unit.hashCode();
+        }
+        return 31 * unitsHash + traits.hashCode();
     }
 }
@@ -13,13 +13,19 @@ public class Trait implements Nameable
     private List<Integer> styles;
     private boolean isUnique;
 
-    public Trait(String apiName, String name, int[] thresholds, List<Integer> styles)
+    /**
+     * Dense index assigned by the repository when the set is loaded, used by the engine to address trait counts by array slot
+     */
+    private final int ordinal;
+
+    public Trait(String apiName, String name, int[] thresholds, List<Integer> styles, int ordinal)
     {
         this.apiName = apiName;
         this.name = name;
         this.thresholds = thresholds;
         this.styles = styles;
         this.isUnique = apiName.endsWith("UniqueTrait");
+        this.ordinal = ordinal;
     }
 
     @Override
@@ -19,13 +19,19 @@ public class Unit implements Nameable
     private final ChampionStats championStats;
     private final List<Trait> traits;
 
-    public Unit(String apiName, String name, int cost, Role role, ChampionStats championStats, List<Trait> traits) {
+    /**
+     * Dense index assigned by the repository when the set is loaded, used by the engine to address units by bit position
+     */
+    private final int ordinal;
+
+    public Unit(String apiName, String name, int cost, Role role, ChampionStats championStats, List<Trait> traits, int ordinal) {
         this.apiName = apiName;
         this.name = name;
         this.cost = cost;
         this.role = role;
         this.championStats = championStats;
         this.traits = List.copyOf(traits);
+        this.ordinal = ordinal;
     }
 
     @Override
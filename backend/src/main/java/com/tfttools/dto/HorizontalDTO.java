@@ -3,9 +3,13 @@ package com.tfttools.dto;
 import java.util.Map;
 import java.util.Set;
 
+/**
+ * Request for comps, {@code set} selects the set to search, as numbered by Community Dragon, and may be left out for
+ * the current set
+ */
 public record HorizontalDTO(int compSize, Map<String, Integer> requiredTraits, Set<UnitDTO> requiredChampions,
                             Set<TraitDTO> excludedTraits, Set<UnitDTO> excludedChampions, int costOfBoard,
-                            int tactitionLevel, int crowns, Set<EmblemDTO> emblems, float luck)
+                            int tactitionLevel, int crowns, Set<EmblemDTO> emblems, float luck, String set)
 {
 
 }
@@ -0,0 +1,14 @@
+package com.tfttools.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * State of a background search job, compositions are only filled in once the job has finished
+ */
+public record SearchJobDTO(String id, String status, long nodesExpanded, int compositionsFound,
+                           int bestActivatedTraits, List<CompositionDTO> compositions, String error,
+                           Instant submittedAt, Instant finishedAt)
+{
+
+}
@@ -0,0 +1,186 @@
+package com.tfttools.engine;
+
+import com.tfttools.domain.Composition;
+import com.tfttools.domain.Trait;
+import com.tfttools.domain.Unit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Engine-internal representation of a {@link Composition}.
+ * Units are tracked as bits addressed by {@link Unit#getOrdinal()} and trait counts live in an array addressed by
+ * {@link Trait#getOrdinal()}, so adding, removing and looking up are O(traits of the unit) with no allocation.
+ * A {@link Composition} is only materialized through {@link #toComposition()} when results leave the engine.
+ */
+public class CompactComposition
+{
+    private final long[] unitMask;
+    private final int[] traitCounts;
+
+    // Insertion order is kept so the materialized composition (and its team code) matches the order units were chosen
+    private Unit[] units;
+    private int size;
+
+    private int activatedTraitCount;
+
+    public CompactComposition(int unitOrdinalCapacity, int traitOrdinalCapacity)
+    {
+        this.unitMask = new long[(unitOrdinalCapacity + 63) >>> 6];
+        this.traitCounts = new int[traitOrdinalCapacity];
+        this.units = new Unit[10];
+        this.size = 0;
+        this.activatedTraitCount = 0;
+    }
+
+    //Copy constructor
+    public CompactComposition(CompactComposition original)
+    {
+        this.unitMask = original.unitMask.clone();
+        this.traitCounts = original.traitCounts.clone();
+        this.units = Arrays.copyOf(original.units, Math.max(original.units.length, original.size));
+        this.size = original.size;
+        this.activatedTraitCount = original.activatedTraitCount;
+    }
+
+    public boolean add(Unit unit)
+    {
+        int ordinal = unit.getOrdinal();
+        long bit = 1L << ordinal;
+
+        if ((unitMask[ordinal >>> 6] & bit) != 0)
+            return false;
+
+        unitMask[ordinal >>> 6] |= bit;
+
+        if (size == units.length)
+            units = Arrays.copyOf(units, size * 2);
+        units[size++] = unit;
+
+        for (Trait trait : unit.getTraits())
+        {
+            int count = ++traitCounts[trait.getOrdinal()];
+            if (isFirstThreshold(trait, count))
+                activatedTraitCount++;
+        }
+
+        return true;
+    }
+
+    public boolean remove(Unit unit)
+    {
+        if (!contains(unit))
+            return false;
+
+        int ordinal = unit.getOrdinal();
+        unitMask[ordinal >>> 6] &= ~(1L << ordinal);
+
+        for (int i = 0; i < size; i++)
+        {
+            if (units[i] == unit)
+            {
+                System.arraycopy(units, i + 1, units, i, size - i - 1);
+                units[--size] = null;
+                break;
+            }
+        }
+
+        for (Trait trait : unit.getTraits())
+        {
+            int count = traitCounts[trait.getOrdinal()]--;
+            if (isFirstThreshold(trait, count))
+                activatedTraitCount--;
+        }
+
+        return true;
+    }
+
+    private static boolean isFirstThreshold(Trait trait, int count)
+    {
+        int[] thresholds = trait.getThresholds();
+        return trait.isCountable() && thresholds.length > 0 && count == thresholds[0];
+    }
+
+    public boolean contains(Unit unit)
+    {
+        int ordinal = unit.getOrdinal();
+        int word = ordinal >>> 6;
+        return word < unitMask.length && (unitMask[word] & (1L << ordinal)) != 0;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public Unit getUnit(int index)
+    {
+        return units[index];
+    }
+
+    public List<Unit> getUnits()
+    {
+        return Arrays.asList(Arrays.copyOf(units, size));
+    }
+
+    /**
+     * Gets how many units in this composition carry the trait
+     *
+     * @param trait The trait to count
+     * @return Count of the trait, 0 if it is not present
+     */
+    public int getTraitCount(Trait trait)
+    {
+        int ordinal = trait.getOrdinal();
+        return ordinal < traitCounts.length ? traitCounts[ordinal] : 0;
+    }
+
+    /**
+     * Gets the number of countable traits that have reached their first threshold, maintained incrementally
+     *
+     * @return Number of activated countable traits
+     */
+    public int getActivatedTraitCount()
+    {
+        return activatedTraitCount;
+    }
+
+    long[] getUnitMask()
+    {
+        return unitMask;
+    }
+
+    /**
+     * Gets the key identifying the set of units in this composition, independent of the order they were added in
+     */
+    public UnitSetKey getUnitSetKey()
+    {
+        return new UnitSetKey(unitMask.clone());
+    }
+
+    /**
+     * Gets the key this composition would have with the unit added, without copying the composition
+     */
+    public UnitSetKey getUnitSetKeyWith(Unit unit)
+    {
+        long[] mask = unitMask.clone();
+        mask[unit.getOrdinal() >>> 6] |= 1L << unit.getOrdinal();
+        return new UnitSetKey(mask);
+    }
+
+    /**
+     * Builds the public {@link Composition} for this state, keeping the order units were added
+     *
+     * @return A new composition holding the same units
+     */
+    public Composition toComposition()
+    {
+        return new Composition(new ArrayList<>(getUnits()));
+    }
+}
@@ -1,45 +1,234 @@
 package com.tfttools.engine;
 
 import com.tfttools.domain.*;
+import com.tfttools.util.UnitEquivalence;
 import lombok.Getter;
 
 import java.util.*;
+import java.util.function.Function;
 
 @Getter
 public class EngineState
 {
-    private final Composition currentComp;
+    private final CompactComposition currentComp;
     private final EngineConfiguration engineConfiguration;
 
-    private final Set<Unit> unitPool;
+    /**
+     * Units the engine may pick from. Shared between copies, a unit is available while it is not in {@link #currentComp}
+     */
+    private final List<Unit> unitPool;
+    private final long[] unitPoolMask;
+
+    /**
+     * Whether the composition can still satisfy the required units and traits, shared between copies
+     */
+    private final RequirementFeasibility requirementFeasibility;
 
-    public EngineState(Composition comp, EngineConfiguration engineConfiguration, Set<Unit> unitPool)
+    /**
+     * Units of the set grouped by traits, null to branch on every available unit
+     */
+    private final UnitEquivalence unitEquivalence;
+
+    public EngineState(CompactComposition comp, EngineConfiguration engineConfiguration, List<Unit> unitPool)
+    {
+        this(comp, engineConfiguration, unitPool,
+                new RequirementFeasibility(engineConfiguration, unitPool, comp.getUnitMask().length << 6), null);
+    }
+
+    /**
+     * @param requirementFeasibility Built for the same configuration and unit pool
+     * @param unitEquivalence        Grouping of the units of the set, null to branch on every available unit
+     */
+    public EngineState(CompactComposition comp, EngineConfiguration engineConfiguration, List<Unit> unitPool,
+                       RequirementFeasibility requirementFeasibility, UnitEquivalence unitEquivalence)
+    {
+        this(comp, engineConfiguration, unitPool, createMask(comp, unitPool), requirementFeasibility, unitEquivalence);
+    }
+
+    private EngineState(CompactComposition comp, EngineConfiguration engineConfiguration, List<Unit> unitPool, long[] unitPoolMask,
+                        RequirementFeasibility requirementFeasibility, UnitEquivalence unitEquivalence)
     {
         this.currentComp = comp;
         this.engineConfiguration = engineConfiguration;
         this.unitPool = unitPool;
+        this.unitPoolMask = unitPoolMask;
+        this.requirementFeasibility = requirementFeasibility;
+        this.unitEquivalence = unitEquivalence;
+    }
+
+    private static long[] createMask(CompactComposition comp, List<Unit> unitPool)
+    {
+        long[] mask = new long[comp.getUnitMask().length];
+        for (Unit unit : unitPool)
+        {
+            mask[unit.getOrdinal() >>> 6] |= 1L << unit.getOrdinal();
+        }
+        return mask;
+    }
+
+    /**
+     * Check if the unit can still be added to the composition
+     */
+    public boolean isAvailable(Unit unit)
+    {
+        int ordinal = unit.getOrdinal();
+        return (unitPoolMask[ordinal >>> 6] & (1L << ordinal)) != 0 && !currentComp.contains(unit);
+    }
+
+    /**
+     * Check if the units still available can complete the composition into a board with every required unit and trait
+     */
+    public boolean isFeasible()
+    {
+        return requirementFeasibility.isFeasible(currentComp);
+    }
+
+    /**
+     * Get the units that can still be added to the composition
+     */
+    public List<Unit> getAvailableUnits()
+    {
+        List<Unit> availableUnits = new ArrayList<>(unitPool.size());
+        for (Unit unit : unitPool)
+        {
+            if (!currentComp.contains(unit))
+                availableUnits.add(unit);
+        }
+        return availableUnits;
+    }
+
+    /**
+     * Get the available units a search needs to branch on. A unit is left out while a unit dominating it is available,
+     * since swapping it for that unit never activates fewer traits. Of units carrying the same traits only the first
+     * available one is kept. Required units are always kept, they are not interchangeable with anything.
+     */
+    public List<Unit> getBranchingUnits()
+    {
+        if (unitEquivalence == null)
+            return getAvailableUnits();
+
+        Set<Unit> requiredUnits = engineConfiguration.getRequiredUnits();
+        List<Unit> branchingUnits = new ArrayList<>();
+        for (Unit unit : unitPool)
+        {
+            if (currentComp.contains(unit))
+                continue;
+            if (requiredUnits.contains(unit) || !hasAvailableDominator(unit))
+                branchingUnits.add(unit);
+        }
+        return branchingUnits;
+    }
+
+    private boolean hasAvailableDominator(Unit unit)
+    {
+        for (Unit dominator : unitEquivalence.getDominators(unit))
+        {
+            if (isAvailable(dominator))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get the compositions holding the same traits as this one, with one of its units swapped for an available unit
+     * carrying exactly the same traits. Searches branching on {@link #getBranchingUnits()} only reach one of them.
+     */
+    public List<CompactComposition> getEquivalentCompositions()
+    {
+        return unitEquivalence == null ? List.of() : getSwappedCompositions(unitEquivalence::getEquivalents);
+    }
+
+    /**
+     * Get the compositions with one of the units of this one swapped for an available unit it dominates. They never
+     * activate more traits than this one, but are boards searches branching on {@link #getBranchingUnits()} skip.
+     */
+    public List<CompactComposition> getDominatedCompositions()
+    {
+        return unitEquivalence == null ? List.of() : getSwappedCompositions(unitEquivalence::getDominated);
+    }
+
+    private List<CompactComposition> getSwappedCompositions(Function<Unit, List<Unit>> replacements)
+    {
+        Set<Unit> requiredUnits = engineConfiguration.getRequiredUnits();
+        List<CompactComposition> swappedCompositions = new ArrayList<>();
+        for (Unit unit : currentComp.getUnits())
+        {
+            if (requiredUnits.contains(unit))
+                continue;
+
+            for (Unit replacement : replacements.apply(unit))
+            {
+                if (!isAvailable(replacement))
+                    continue;
+
+                CompactComposition swapped = new CompactComposition(currentComp);
+                swapped.remove(unit);
+                swapped.add(replacement);
+                swappedCompositions.add(swapped);
+            }
+        }
+        return swappedCompositions;
+    }
+
+    /**
+     * Get the units that can still be added to the composition as a mask addressed by {@link Unit#getOrdinal()}
+     */
+    public long[] getAvailableUnitMask()
+    {
+        long[] compMask = currentComp.getUnitMask();
+        long[] availableMask = new long[unitPoolMask.length];
+        for (int i = 0; i < unitPoolMask.length; i++)
+        {
+            availableMask[i] = unitPoolMask[i] & ~compMask[i];
+        }
+        return availableMask;
     }
 
     /**
      * Check if any units are still available
      */
     public boolean hasUnitsAvailable() {
-        return !getUnitPool().isEmpty();
+        return getRemainingCount() > 0;
     }
 
     /**
      * Get count of remaining units
      */
     public int getRemainingCount() {
-        return getUnitPool().size();
+        long[] compMask = currentComp.getUnitMask();
+        int remaining = 0;
+        for (int i = 0; i < unitPoolMask.length; i++)
+        {
+            remaining += Long.bitCount(unitPoolMask[i] & ~compMask[i]);
+        }
+        return remaining;
+    }
+
+    /**
+     * Adds the unit to the composition, which also takes it out of the available pool
+     */
+    public void addUnit(Unit unit)
+    {
+        currentComp.add(unit);
+    }
+
+    /**
+     * Removes the unit from the composition, which puts it back into the available pool
+     */
+    public void removeUnit(Unit unit)
+    {
+        currentComp.remove(unit);
     }
 
     public EngineState copy()
     {
         return new EngineState(
-                new Composition(this.getCurrentComp().getUnits()),
+                new CompactComposition(this.getCurrentComp()),
                 this.getEngineConfiguration(),
-                new HashSet<>(this.getUnitPool())
+                this.getUnitPool(),
+                this.getUnitPoolMask(),
+                this.getRequirementFeasibility(),
+                this.getUnitEquivalence()
         );
     }
 }
@@ -0,0 +1,215 @@
+package com.tfttools.engine;
+
+import com.tfttools.domain.EngineConfiguration;
+import com.tfttools.domain.Trait;
+import com.tfttools.domain.Unit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tells if a partial composition can still satisfy the required units and traits of a request, so searches can drop
+ * it instead of growing it into boards the validators discard.
+ * Missing required units take up slots first, then every required trait must be covered by the slots left and by the
+ * units of the pool that are not on the board yet, and the slots left must be able to cover every missing trait at once.
+ * The check never drops a state that could still be completed into a valid board. Built once per engine run and shared
+ * by every state of it.
+ */
+public class RequirementFeasibility
+{
+    private final int maxUnitsOnBoard;
+    private final boolean hasRequirements;
+
+    private final Unit[] requiredUnits;
+    private final boolean[] requiredUnitInPool;
+    // Indexes into the required traits carried by each required unit, once per occurrence
+    private final int[][] requiredUnitTraits;
+
+    private final Trait[] requiredTraits;
+    private final int[] requiredCounts;
+    // Pool units carrying each required trait, required units excluded since they are counted as soon as they are missing
+    private final long[][] carrierMasks;
+    // Most occurrences of each required trait on a single unit, usually 1
+    private final int[] maxOccurrences;
+
+    // Pool units that are not required and carry a required trait, with the indexes of the required traits they carry
+    private final Unit[] carriers;
+    private final int[][] carrierTraits;
+    private final int maxCarrierTraits;
+
+    public RequirementFeasibility(EngineConfiguration configuration, List<Unit> unitPool, int unitOrdinalCapacity)
+    {
+        this.maxUnitsOnBoard = configuration.getMaxUnitsOnBoard();
+
+        Set<Unit> required = configuration.getRequiredUnits() == null ? Set.of() : configuration.getRequiredUnits();
+        Map<Trait, Integer> requiredTraitCounts = configuration.getRequiredTraits() == null ?
+                Collections.emptyMap() : configuration.getRequiredTraits();
+
+        this.requiredUnits = required.toArray(Unit[]::new);
+        this.requiredTraits = requiredTraitCounts.keySet().toArray(Trait[]::new);
+        this.requiredCounts = new int[requiredTraits.length];
+        for (int i = 0; i < requiredTraits.length; i++)
+        {
+            requiredCounts[i] = requiredTraitCounts.get(requiredTraits[i]);
+        }
+        this.hasRequirements = requiredUnits.length > 0 || requiredTraits.length > 0;
+
+        this.requiredUnitInPool = new boolean[requiredUnits.length];
+        this.requiredUnitTraits = new int[requiredUnits.length][];
+        for (int u = 0; u < requiredUnits.length; u++)
+        {
+            requiredUnitInPool[u] = unitPool.contains(requiredUnits[u]);
+            requiredUnitTraits[u] = requiredTraitOccurrences(requiredUnits[u]);
+        }
+
+        int words = (unitOrdinalCapacity + 63) >>> 6;
+        this.carrierMasks = new long[requiredTraits.length][words];
+        this.maxOccurrences = new int[requiredTraits.length];
+        List<Unit> carrierUnits = new ArrayList<>();
+        List<int[]> carrierTraitLists = new ArrayList<>();
+        for (Unit unit : unitPool)
+        {
+            if (required.contains(unit))
+                continue;
+
+            int[] traits = requiredTraitOccurrences(unit);
+            if (traits.length > 0)
+            {
+                carrierUnits.add(unit);
+                carrierTraitLists.add(traits);
+            }
+
+            int[] occurrences = new int[requiredTraits.length];
+            for (int trait : traits)
+            {
+                occurrences[trait]++;
+            }
+            for (int i = 0; i < requiredTraits.length; i++)
+            {
+                if (occurrences[i] == 0)
+                    continue;
+                carrierMasks[i][unit.getOrdinal() >>> 6] |= 1L << unit.getOrdinal();
+                maxOccurrences[i] = Math.max(maxOccurrences[i], occurrences[i]);
+            }
+        }
+        this.carriers = carrierUnits.toArray(Unit[]::new);
+        this.carrierTraits = carrierTraitLists.toArray(int[][]::new);
+        this.maxCarrierTraits = carrierTraitLists.stream().mapToInt(traits -> traits.length).max().orElse(0);
+    }
+
+    private int[] requiredTraitOccurrences(Unit unit)
+    {
+        return unit.getTraits().stream()
+                .mapToInt(trait -> indexOf(requiredTraits, trait))
+                .filter(index -> index >= 0)
+                .toArray();
+    }
+
+    private static int indexOf(Trait[] traits, Trait trait)
+    {
+        for (int i = 0; i < traits.length; i++)
+        {
+            if (traits[i].equals(trait))
+                return i;
+        }
+        return -1;
+    }
+
+    public boolean hasRequirements()
+    {
+        return hasRequirements;
+    }
+
+    /**
+     * Checks if units of the pool that are not in the composition yet can still complete it into a board holding every
+     * required unit and enough of every required trait
+     */
+    public boolean isFeasible(CompactComposition comp)
+    {
+        if (!hasRequirements)
+            return true;
+
+        int[] deficits = new int[requiredTraits.length];
+        for (int i = 0; i < requiredTraits.length; i++)
+        {
+            deficits[i] = requiredCounts[i] - comp.getTraitCount(requiredTraits[i]);
+        }
+
+        int slots = maxUnitsOnBoard - comp.size();
+        for (int u = 0; u < requiredUnits.length; u++)
+        {
+            if (comp.contains(requiredUnits[u]))
+                continue;
+            if (!requiredUnitInPool[u])
+                return false;
+
+            slots--;
+            for (int trait : requiredUnitTraits[u])
+            {
+                deficits[trait]--;
+            }
+        }
+        if (slots < 0)
+            return false;
+
+        long[] compMask = comp.getUnitMask();
+        int totalDeficit = 0;
+        for (int i = 0; i < requiredTraits.length; i++)
+        {
+            if (deficits[i] <= 0)
+                continue;
+
+            int available = countAvailable(carrierMasks[i], compMask);
+            if (deficits[i] > Math.min(slots, available) * maxOccurrences[i])
+                return false;
+            totalDeficit += deficits[i];
+        }
+
+        return totalDeficit == 0 || canCoverTogether(comp, deficits, slots, totalDeficit);
+    }
+
+    /**
+     * Check if the units adding the most to the missing traits, one per slot left, add up to every missing trait.
+     * Each unit adds at most one per occurrence of a missing trait, so no pick of as many units covers more.
+     */
+    private boolean canCoverTogether(CompactComposition comp, int[] deficits, int slots, int totalDeficit)
+    {
+        int[] coverageCounts = new int[maxCarrierTraits + 1];
+        for (int c = 0; c < carriers.length; c++)
+        {
+            if (comp.contains(carriers[c]))
+                continue;
+
+            int coverage = 0;
+            for (int trait : carrierTraits[c])
+            {
+                if (deficits[trait] > 0)
+                    coverage++;
+            }
+            coverageCounts[coverage]++;
+        }
+
+        int covered = 0;
+        for (int coverage = coverageCounts.length - 1; coverage > 0 && slots > 0; coverage--)
+        {
+            int picked = Math.min(coverageCounts[coverage], slots);
+            covered += picked * coverage;
+            slots -= picked;
+        }
+        return covered >= totalDeficit;
+    }
+
+    private static int countAvailable(long[] carrierMask, long[] compMask)
+    {
+        int count = 0;
+        for (int word = 0; word < carrierMask.length; word++)
+        {
+            long inComp = word < compMask.length ? compMask[word] : 0;
+            count += Long.bitCount(carrierMask[word] & ~inComp);
+        }
+        return count;
+    }
+}
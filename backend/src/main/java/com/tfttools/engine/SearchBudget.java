@@ -0,0 +1,165 @@
+package com.tfttools.engine;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wall time and expanded node limit shared by every strategy of a single engine run.
+ * Search engines check it cooperatively: once it is exhausted they stop branching and return the best compositions
+ * found so far, and once it is cancelled they stop outright. It is safe to use from the threads of a parallel search.
+ */
+public class SearchBudget
+{
+    private static final long UNLIMITED = Long.MAX_VALUE;
+
+    private final long deadline;
+    private final boolean hasDeadline;
+    private final long maxNodes;
+
+    // Limits of a child budget are those of its parent, only cancelling it is its own
+    private final SearchBudget parent;
+
+    private final AtomicLong expandedNodes = new AtomicLong();
+    private volatile boolean exhausted;
+    private volatile boolean truncated;
+    private volatile boolean cancelled;
+
+    private final List<Runnable> cancellationCallbacks = new CopyOnWriteArrayList<>();
+
+    private SearchBudget(long timeBudgetNanos, long maxNodes)
+    {
+        this.hasDeadline = timeBudgetNanos != UNLIMITED;
+        this.deadline = hasDeadline ? System.nanoTime() + timeBudgetNanos : 0;
+        this.maxNodes = maxNodes;
+        this.parent = null;
+    }
+
+    private SearchBudget(SearchBudget parent)
+    {
+        this.hasDeadline = false;
+        this.deadline = 0;
+        this.maxNodes = UNLIMITED;
+        this.parent = parent;
+    }
+
+    /**
+     * Creates a budget whose time starts running now
+     *
+     * @param timeBudget Wall time after which searches return the best compositions found so far
+     * @param maxNodes   Number of expanded search nodes after which searches return the best compositions found so far
+     * @return The budget
+     */
+    public static SearchBudget of(Duration timeBudget, long maxNodes)
+    {
+        return new SearchBudget(timeBudget.toNanos(), maxNodes);
+    }
+
+    /**
+     * Creates a budget that is never exhausted, but can still be cancelled
+     */
+    public static SearchBudget unlimited()
+    {
+        return new SearchBudget(UNLIMITED, UNLIMITED);
+    }
+
+    /**
+     * Creates a budget sharing the deadline and node count of this one, that can be cancelled on its own to stop some
+     * searches without stopping every search of this budget
+     */
+    public SearchBudget createChild()
+    {
+        return new SearchBudget(this);
+    }
+
+    /**
+     * Counts search nodes against the node limit
+     *
+     * @param count Number of nodes expanded since the last call
+     */
+    public void recordNodes(long count)
+    {
+        if (parent != null)
+            parent.recordNodes(count);
+        else
+            expandedNodes.addAndGet(count);
+    }
+
+    /**
+     * Checks if the time or node limit has been reached, or if the budget was cancelled.
+     * Once this returned true it keeps doing so.
+     */
+    public boolean isExhausted()
+    {
+        if (exhausted)
+            return true;
+
+        if (cancelled || (parent != null && parent.isExhausted()) || expandedNodes.get() >= maxNodes || (hasDeadline && System.nanoTime() - deadline >= 0))
+            exhausted = true;
+
+        return exhausted;
+    }
+
+    /**
+     * Checks if any search observed the budget running out or stopped on a limit of its own, or if the budget was
+     * cancelled, in which case the compositions returned may not be the ones an unlimited search would have found.
+     * Searches stopping on cancellation do not always check the limits again, so cancelling alone counts.
+     */
+    public boolean wasExhausted()
+    {
+        return exhausted || truncated || isCancelled();
+    }
+
+    /**
+     * Records that a search stopped on a time or node limit of its own before exploring everything it would have,
+     * so the results of the run depend on timing even though this budget did not run out
+     */
+    public void markTruncated()
+    {
+        if (parent != null)
+            parent.markTruncated();
+        truncated = true;
+    }
+
+    /**
+     * Stops the searches using this budget, for when nobody is waiting for their result anymore
+     */
+    public void cancel()
+    {
+        synchronized (cancellationCallbacks)
+        {
+            if (cancelled)
+                return;
+            cancelled = true;
+        }
+        cancellationCallbacks.forEach(Runnable::run);
+    }
+
+    /**
+     * Registers a callback run once when this budget is cancelled, right away if it already is.
+     * Callbacks run on the thread cancelling the budget and are not run when only a parent is cancelled.
+     */
+    public void onCancel(Runnable callback)
+    {
+        synchronized (cancellationCallbacks)
+        {
+            if (!cancelled)
+            {
+                cancellationCallbacks.add(callback);
+                return;
+            }
+        }
+        callback.run();
+    }
+
+    public boolean isCancelled()
+    {
+        return cancelled || (parent != null && parent.isCancelled());
+    }
+
+    public long getExpandedNodes()
+    {
+        return parent != null ? parent.getExpandedNodes() : expandedNodes.get();
+    }
+}
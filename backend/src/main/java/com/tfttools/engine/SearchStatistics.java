@@ -0,0 +1,155 @@
+package com.tfttools.engine;
+
+import com.tfttools.engine.heuristic.HeuristicProfile;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Counters and phase timings of a single engine run, read once the run is over to tell where its time went.
+ * A disabled instance records nothing, so the engine can report to one unconditionally.
+ * It is safe to use from the threads of a parallel search.
+ */
+public class SearchStatistics
+{
+    private static final SearchStatistics DISABLED = new SearchStatistics(false, null);
+
+    private final boolean enabled;
+    private final HeuristicProfile heuristicProfile;
+
+    private final Map<String, LongAdder> phaseNanos = new ConcurrentHashMap<>();
+    private final Map<Class<?>, LongAdder> scorerInvocations = new ConcurrentHashMap<>();
+    private final NavigableMap<Integer, Integer> beamFrontierSizes = new ConcurrentSkipListMap<>();
+    private final LongAdder prunedStates = new LongAdder();
+
+    private SearchStatistics(boolean enabled, HeuristicProfile heuristicProfile)
+    {
+        this.enabled = enabled;
+        this.heuristicProfile = heuristicProfile;
+    }
+
+    public static SearchStatistics create()
+    {
+        return new SearchStatistics(true, null);
+    }
+
+    /**
+     * Creates statistics that also profile every weight scorer, which slows scoring down noticeably
+     *
+     * @param heuristicProfile Receives the cost and influence of every scorer of the run
+     */
+    public static SearchStatistics createProfiling(HeuristicProfile heuristicProfile)
+    {
+        return new SearchStatistics(true, heuristicProfile);
+    }
+
+    /**
+     * Gets the shared instance that records nothing
+     */
+    public static SearchStatistics disabled()
+    {
+        return DISABLED;
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Gets the profile the heuristics of the run report to, null unless scorers are profiled
+     */
+    public HeuristicProfile getHeuristicProfile()
+    {
+        return heuristicProfile;
+    }
+
+    /**
+     * Runs the phase, adding its wall time to the phase's total
+     *
+     * @param phase Name of the phase, phases run more than once add up
+     * @return What the phase returned
+     */
+    public <T> T time(String phase, Supplier<T> work)
+    {
+        if (!enabled)
+            return work.get();
+
+        long start = System.nanoTime();
+        try
+        {
+            return work.get();
+        } finally
+        {
+            phaseNanos.computeIfAbsent(phase, key -> new LongAdder()).add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Counts states or subtrees a search dropped without expanding them
+     */
+    public void recordPruned(long count)
+    {
+        if (enabled)
+            prunedStates.add(count);
+    }
+
+    /**
+     * Gets the counter of the weights a scorer computed, weights read from a cache excluded. Resolved once so scoring
+     * only has to increment it.
+     *
+     * @return The counter, null when this instance records nothing
+     */
+    public LongAdder getScorerInvocationCounter(Class<?> scorerClass)
+    {
+        return enabled ? scorerInvocations.computeIfAbsent(scorerClass, key -> new LongAdder()) : null;
+    }
+
+    /**
+     * Records how many states the beam holds after selecting those of a depth, the largest size is kept when several
+     * beam searches reach the same depth
+     */
+    public void recordBeamFrontier(int depth, int size)
+    {
+        if (enabled)
+            beamFrontierSizes.merge(depth, size, Math::max);
+    }
+
+    /**
+     * Gets the wall time spent in each phase
+     */
+    public Map<String, Long> getPhaseNanos()
+    {
+        return sum(phaseNanos);
+    }
+
+    public Map<Class<?>, Long> getScorerInvocations()
+    {
+        return sum(scorerInvocations);
+    }
+
+    /**
+     * Gets the size of the beam at each depth, in depth order
+     */
+    public NavigableMap<Integer, Integer> getBeamFrontierSizes()
+    {
+        return Collections.unmodifiableNavigableMap(beamFrontierSizes);
+    }
+
+    public long getPrunedStates()
+    {
+        return prunedStates.sum();
+    }
+
+    private static <K> Map<K, Long> sum(Map<K, LongAdder> counters)
+    {
+        Map<K, Long> sums = new ConcurrentHashMap<>();
+        counters.forEach((key, counter) -> sums.put(key, counter.sum()));
+        return Collections.unmodifiableMap(sums);
+    }
+}
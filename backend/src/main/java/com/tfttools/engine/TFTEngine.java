@@ -8,24 +8,68 @@ import com.tfttools.engine.engine_strategy.StrategyContext;
 import com.tfttools.engine.manager.EngineFilterManager;
 import com.tfttools.engine.manager.EngineStrategyManager;
 import com.tfttools.engine.manager.EngineTerminatorManager;
+import com.tfttools.repository.TraitRepository;
 import com.tfttools.repository.UnitRepository;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 public class TFTEngine
 {
+    public static final String FILTER_PHASE = "filter";
+
     private final EngineConfiguration engineConfiguration;
     private final EngineTerminatorManager engineTerminatorManager;
     private final EngineFilterManager engineFilterManager;
     private final EngineStrategyManager engineStrategyManager;
 
     private final UnitRepository unitRepository;
+    private final TraitRepository traitRepository;
+
+    private final Executor searchExecutor;
+
+    // Computed on first use unless it was handed over by the caller
+    private Set<Unit> filteredUnitPool;
+
+    public TFTEngine(EngineConfiguration engineConfiguration, UnitRepository unitRepository, TraitRepository traitRepository)
+    {
+        this(engineConfiguration, unitRepository, traitRepository, null);
+    }
+
+    /**
+     * @param searchExecutor Executor used to parallelize within a search, null to run entirely on the calling thread
+     */
+    public TFTEngine(EngineConfiguration engineConfiguration, UnitRepository unitRepository, TraitRepository traitRepository,
+                     Executor searchExecutor)
+    {
+        this(engineConfiguration, unitRepository, traitRepository, searchExecutor, new EngineStrategyManager());
+    }
+
+    /**
+     * @param engineStrategyManager Runs the strategies compositions are built with, the default runs beam search
+     */
+    public TFTEngine(EngineConfiguration engineConfiguration, UnitRepository unitRepository, TraitRepository traitRepository,
+                     Executor searchExecutor, EngineStrategyManager engineStrategyManager)
+    {
+        this(engineConfiguration, unitRepository, traitRepository, searchExecutor, engineStrategyManager, null);
+    }
 
-    public TFTEngine(EngineConfiguration engineConfiguration, UnitRepository unitRepository)
+    /**
+     * @param filteredUnitPool Unit pool left after the filters of the configuration, as returned by
+     *                         {@link #getFilteredUnitPool()} of an engine excluding the same units and traits,
+     *                         null to filter the units of the repository
+     */
+    public TFTEngine(EngineConfiguration engineConfiguration, UnitRepository unitRepository, TraitRepository traitRepository,
+                     Executor searchExecutor, EngineStrategyManager engineStrategyManager, Set<Unit> filteredUnitPool)
     {
+        this.filteredUnitPool = filteredUnitPool;
         this.engineConfiguration = engineConfiguration;
         this.unitRepository = unitRepository;
+        this.traitRepository = traitRepository;
+        this.searchExecutor = searchExecutor;
 
 
         this.engineTerminatorManager = new EngineTerminatorManager(
@@ -38,7 +82,7 @@ public class TFTEngine
                 engineConfiguration.getExcludedTraits()
         );
 
-        this.engineStrategyManager = new EngineStrategyManager();
+        this.engineStrategyManager = engineStrategyManager;
     }
 
     /**
@@ -62,6 +106,26 @@ public class TFTEngine
     }
 
 
+    /**
+     * Gets the units left after applying the configured filters, filtering them on the first call only.
+     * The pool only depends on the excluded units and traits, so it can be shared with engines excluding the same ones.
+     *
+     * @return Unmodifiable unit pool
+     */
+    public Set<Unit> getFilteredUnitPool()
+    {
+        return getFilteredUnitPool(SearchStatistics.disabled());
+    }
+
+    private Set<Unit> getFilteredUnitPool(SearchStatistics searchStatistics)
+    {
+        if (filteredUnitPool == null)
+        {
+            filteredUnitPool = searchStatistics.time(FILTER_PHASE, () -> Collections.unmodifiableSet(applyFilters()));
+        }
+        return filteredUnitPool;
+    }
+
     /**
      * Builds compositions based on the engine configuration
      *
@@ -69,17 +133,58 @@ public class TFTEngine
      */
     public List<Composition> buildCompositions()
     {
-        Set<Unit> filteredUnitPool = applyFilters();
+        return buildCompositions(SearchBudget.unlimited());
+    }
 
+    /**
+     * Builds compositions based on the engine configuration, within the given budget
+     *
+     * @param searchBudget Limits the search, the best compositions found so far are returned once it runs out
+     * @return List of generated compositions
+     */
+    public List<Composition> buildCompositions(SearchBudget searchBudget)
+    {
+        return buildCompositions(searchBudget, composition -> {});
+    }
+
+    /**
+     * Builds compositions based on the engine configuration, within the given budget, reporting every valid composition
+     * as soon as a strategy finds it
+     *
+     * @param searchBudget        Limits the search, the best compositions found so far are returned once it runs out
+     * @param compositionListener Called once per distinct valid composition, in the order they were found
+     * @return List of generated compositions, ranked
+     */
+    public List<Composition> buildCompositions(SearchBudget searchBudget, Consumer<Composition> compositionListener)
+    {
+        return buildCompositions(searchBudget, SearchStatistics.disabled(), compositionListener);
+    }
+
+    /**
+     * Builds compositions based on the engine configuration, within the given budget, reporting every valid composition
+     * as soon as a strategy finds it and what the search did once it is over
+     *
+     * @param searchStatistics    Receives the phase timings and search counters of this run
+     * @param compositionListener Called once per distinct valid composition, in the order they were found
+     * @return List of generated compositions, ranked
+     */
+    public List<Composition> buildCompositions(SearchBudget searchBudget, SearchStatistics searchStatistics,
+                                               Consumer<Composition> compositionListener)
+    {
         StrategyContext strategyContext = new StrategyContext(
                 engineConfiguration,
                 engineTerminatorManager,
                 unitRepository,
-                filteredUnitPool);
+                traitRepository,
+                getFilteredUnitPool(searchStatistics),
+                searchExecutor,
+                searchBudget,
+                searchStatistics);
 
         return engineStrategyManager.buildCompositions(
                 engineConfiguration,
-                strategyContext
+                strategyContext,
+                compositionListener
         );
     }
 }
@@ -0,0 +1,34 @@
+package com.tfttools.engine;
+
+import java.util.Arrays;
+
+/**
+ * Order-independent identity of the units in a {@link CompactComposition}, taken from its unit mask.
+ * Compositions holding the same units have equal keys whatever order the units were added in, which lets the searches
+ * drop transpositions while their frontier is built.
+ */
+public final class UnitSetKey
+{
+    private final long[] unitMask;
+    private final int hash;
+
+    UnitSetKey(long[] unitMask)
+    {
+        this.unitMask = unitMask;
+        this.hash = Arrays.hashCode(unitMask);
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) return true;
+        if (!(o instanceof UnitSetKey other)) return false;
+        return hash == other.hash && Arrays.equals(unitMask, other.unitMask);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return hash;
+    }
+}
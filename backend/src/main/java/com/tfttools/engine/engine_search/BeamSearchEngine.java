@@ -3,84 +3,193 @@ package com.tfttools.engine.engine_search;
 import com.tfttools.domain.Composition;
 import com.tfttools.domain.Unit;
 import com.tfttools.engine.EngineState;
+import com.tfttools.engine.SearchBudget;
+import com.tfttools.engine.SearchStatistics;
+import com.tfttools.engine.UnitSetKey;
 import com.tfttools.engine.heuristic.Heuristic;
 import com.tfttools.engine.manager.EngineTerminatorManager;
-import com.tfttools.util.CompositionUtils;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 
 public class BeamSearchEngine {
-    private final Heuristic heuristic;
+    private final Function<EngineState, Heuristic> heuristicFactory;
     private final EngineState initialEngineState;
     private final EngineTerminatorManager terminatorManager;
     private final int beamWidth;
+    private final Executor executor;
+    private final SearchBudget budget;
+    private final SearchStatistics statistics;
 
-    public BeamSearchEngine(Heuristic heuristic, 
+    public BeamSearchEngine(Function<EngineState, Heuristic> heuristicFactory,
                            EngineState engineState,
                            EngineTerminatorManager terminatorManager, 
                            int beamWidth) {
-        this.heuristic = heuristic;
+        this(heuristicFactory, engineState, terminatorManager, beamWidth, null, SearchBudget.unlimited());
+    }
+
+    /**
+     * @param heuristicFactory Creates a heuristic scoring against the given state, called once per scoring cursor
+     * @param executor         Expands the states of a depth in parallel when not null
+     * @param budget           Once exhausted every state only follows its best unit, once cancelled the search stops
+     */
+    public BeamSearchEngine(Function<EngineState, Heuristic> heuristicFactory,
+                           EngineState engineState,
+                           EngineTerminatorManager terminatorManager,
+                           int beamWidth,
+                           Executor executor,
+                           SearchBudget budget) {
+        this(heuristicFactory, engineState, terminatorManager, beamWidth, executor, budget, SearchStatistics.disabled());
+    }
+
+    /**
+     * @param statistics Receives the beam size at each depth and the number of states dropped
+     */
+    public BeamSearchEngine(Function<EngineState, Heuristic> heuristicFactory,
+                           EngineState engineState,
+                           EngineTerminatorManager terminatorManager,
+                           int beamWidth,
+                           Executor executor,
+                           SearchBudget budget,
+                           SearchStatistics statistics) {
+        this.heuristicFactory = heuristicFactory;
         this.initialEngineState = engineState;
         this.terminatorManager = terminatorManager;
         this.beamWidth = beamWidth;
+        this.executor = executor;
+        this.budget = budget;
+        this.statistics = statistics;
     }
 
     public List<Composition> buildCompositions() {
         List<BeamState> currentBeam = new ArrayList<>();
         currentBeam.add(new BeamState(initialEngineState.copy()));
 
-        while (!currentBeam.isEmpty() && !allBeamStatesComplete(currentBeam)) {
-            List<BeamState> nextBeam = new ArrayList<>();
-
-            for (BeamState currentState : currentBeam) {
-                if (isComplete(currentState)) {
-                    nextBeam.add(currentState);
-                    continue;
-                }
+        List<ScoringCursor> cursors = createCursors();
 
-                // Get top units for this state
-                List<Unit> topUnits = getTopKUnits(currentState.engineState, beamWidth);
+        int depth = 0;
+        while (!currentBeam.isEmpty() && !allBeamStatesComplete(currentBeam) && !budget.isCancelled()) {
+            List<BeamState> nextBeam = new ArrayList<>();
 
-                // Create new states by adding each top unit
-                for (Unit unit : topUnits) {
-                    BeamState newState = expandState(currentState, unit);
-                    if (newState != null) {
-                        nextBeam.add(newState);
+            // Out of budget, the states of the beam are completed greedily so there still are compositions to return
+            int branching = budget.isExhausted() ? 1 : beamWidth;
+
+            // Children are concatenated in beam order whether or not they were expanded in parallel,
+            // so the same request always yields the same beam. Sets of units already reached through another
+            // order are transpositions and only their first occurrence is kept
+            Set<UnitSetKey> transpositions = new HashSet<>();
+            int expanded = 0;
+            for (List<BeamState> children : expandBeam(currentBeam, cursors, branching)) {
+                expanded += children.size();
+                for (BeamState child : children) {
+                    if (transpositions.add(child.key)) {
+                        nextBeam.add(child);
                     }
                 }
             }
 
             // Keep only top beamWidth states based on heuristic evaluation
             currentBeam = selectTopBeamStates(nextBeam, beamWidth);
+
+            statistics.recordPruned(expanded - currentBeam.size());
+            statistics.recordBeamFrontier(++depth, currentBeam.size());
         }
 
-        // Convert beam states to compositions
-        return currentBeam.stream()
-                .filter(this::isComplete)
-                .map(state -> state.engineState.getCurrentComp())
-                .toList();
+        // Convert beam states to compositions, boards swapping in units with the same traits follow the ones searched
+        List<BeamState> completeStates = currentBeam.stream().filter(this::isComplete).toList();
+        return EquivalentCompositions.withEquivalents(completeStates.stream().map(state -> state.engineState).toList());
     }
 
-    private List<Unit> getTopKUnits(EngineState engineState, int k) {
-        Set<Unit> availableUnits = engineState.getUnitPool();
+    // One cursor per worker, so the beam states a worker expands one after another are scored incrementally
+    private List<ScoringCursor> createCursors() {
+        int workers = executor == null ? 1 : getParallelism(executor);
 
-        if (availableUnits.isEmpty()) {
-            return Collections.emptyList();
+        List<ScoringCursor> cursors = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            cursors.add(new ScoringCursor(initialEngineState, heuristicFactory));
         }
+        return cursors;
+    }
 
-        // Calculate weights for all available units
-        Map<Unit, Integer> unitWeights = new HashMap<>();
-        for (Unit unit : availableUnits) {
-            int weight = heuristic.getWeight(unit);
-            unitWeights.put(unit, weight);
+    private static int getParallelism(Executor executor) {
+        if (executor instanceof ForkJoinPool pool) {
+            return pool.getParallelism();
         }
+        return Runtime.getRuntime().availableProcessors();
+    }
 
-        // Sort units by weight (descending) and return top k
-        return unitWeights.entrySet().stream()
-                .sorted((e1, e2) -> Integer.compare(e2.getValue(), e1.getValue()))
-                .limit(k)
-                .map(Map.Entry::getKey)
-                .toList();
+    private List<List<BeamState>> expandBeam(List<BeamState> beam, List<ScoringCursor> cursors, int branching) {
+        if (executor == null || beam.size() < 2 || cursors.size() < 2) {
+            ScoringCursor cursor = cursors.get(0);
+            return beam.stream().map(state -> expandChildren(state, cursor, branching)).toList();
+        }
+
+        // Contiguous slices keep neighbouring (and usually similar) states on the same cursor
+        int slices = Math.min(cursors.size(), beam.size());
+        int sliceSize = (beam.size() + slices - 1) / slices;
+
+        List<CompletableFuture<List<List<BeamState>>>> expansions = new ArrayList<>(slices);
+        for (int from = 0, slice = 0; from < beam.size(); from += sliceSize, slice++) {
+            List<BeamState> states = beam.subList(from, Math.min(from + sliceSize, beam.size()));
+            ScoringCursor cursor = cursors.get(slice);
+            expansions.add(CompletableFuture.supplyAsync(
+                    () -> states.stream().map(state -> expandChildren(state, cursor, branching)).toList(), executor));
+        }
+
+        List<List<BeamState>> children = new ArrayList<>(beam.size());
+        for (CompletableFuture<List<List<BeamState>>> expansion : expansions) {
+            children.addAll(expansion.join());
+        }
+        return children;
+    }
+
+    private List<BeamState> expandChildren(BeamState currentState, ScoringCursor cursor, int branching) {
+        if (isComplete(currentState)) {
+            return List.of(currentState);
+        }
+        budget.recordNodes(1);
+
+        // Only the units this state differs by from the cursor's last state are rescored
+        Heuristic heuristic = cursor.moveTo(currentState.engineState);
+        // Dominated and interchangeable units are left out, the board would activate as many traits with another one
+        List<Unit> availableUnits = currentState.engineState.getBranchingUnits();
+        int[] weights = getWeights(heuristic, availableUnits);
+
+        // Units are tried best first until enough children can still hold the required units and traits, states that
+        // cannot would only be discarded once complete. The selection is widened only when children were dropped
+        List<BeamState> children = new ArrayList<>(branching);
+        int tried = 0;
+        for (int k = branching; children.size() < branching && tried < availableUnits.size(); k = Math.min(k * 2, availableUnits.size())) {
+            int[] selected = TopKSelector.selectTopK(weights, weights.length, k);
+            for (int i = tried; i < selected.length && children.size() < branching; i++) {
+                Unit unit = availableUnits.get(selected[i]);
+                BeamState newState = expandState(currentState, unit);
+                if (newState == null) {
+                    continue;
+                }
+                if (!newState.engineState.isFeasible()) {
+                    statistics.recordPruned(1);
+                    continue;
+                }
+
+                heuristic.notifyUnitPicked(unit);
+                children.add(newState);
+            }
+            tried = selected.length;
+        }
+        return children;
+    }
+
+    // Weights in pool order, so ties resolve the same way every run
+    private static int[] getWeights(Heuristic heuristic, List<Unit> availableUnits) {
+        int[] weights = new int[availableUnits.size()];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = heuristic.getWeight(availableUnits.get(i));
+        }
+        return weights;
     }
 
     private BeamState expandState(BeamState currentState, Unit unitToAdd) {
@@ -88,8 +197,7 @@ public class BeamSearchEngine {
             EngineState newEngineState = currentState.engineState.copy();
 
             // Add the unit to the composition
-            newEngineState.getUnitPool().remove(unitToAdd);
-            newEngineState.getCurrentComp().add(unitToAdd);
+            newEngineState.addUnit(unitToAdd);
 
             return new BeamState(newEngineState);
         } catch (Exception e) {
@@ -103,18 +211,22 @@ public class BeamSearchEngine {
             return candidates;
         }
 
-        // Sort by composition quality/heuristic score
-        candidates.sort((state1, state2) -> {
-            double score1 = evaluateCompositionQuality(state1);
-            double score2 = evaluateCompositionQuality(state2);
-            return Double.compare(score2, score1); // Descending order
-        });
+        // Each state's quality is read once, not on every comparison
+        int[] qualities = new int[candidates.size()];
+        for (int i = 0; i < qualities.length; i++) {
+            qualities[i] = evaluateCompositionQuality(candidates.get(i));
+        }
 
-        return candidates.subList(0, maxBeamWidth);
+        int[] selected = TopKSelector.selectTopK(qualities, qualities.length, maxBeamWidth);
+        List<BeamState> topStates = new ArrayList<>(selected.length);
+        for (int index : selected) {
+            topStates.add(candidates.get(index));
+        }
+        return topStates;
     }
 
-    private double evaluateCompositionQuality(BeamState state) {
-        return CompositionUtils.INSTANCE.getActivatedTraits(state.engineState.getCurrentComp()).size();
+    private int evaluateCompositionQuality(BeamState state) {
+        return state.engineState.getCurrentComp().getActivatedTraitCount();
     }
 
     private boolean isComplete(BeamState state) {
@@ -127,9 +239,11 @@ public class BeamSearchEngine {
 
     private static class BeamState {
         final EngineState engineState;
+        final UnitSetKey key;
 
         BeamState(EngineState engineState) {
             this.engineState = engineState;
+            this.key = engineState.getCurrentComp().getUnitSetKey();
         }
     }
 }
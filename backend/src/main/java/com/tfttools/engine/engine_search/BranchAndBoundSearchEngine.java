@@ -0,0 +1,325 @@
+package com.tfttools.engine.engine_search;
+
+import com.tfttools.domain.Composition;
+import com.tfttools.domain.EngineConfiguration;
+import com.tfttools.domain.Trait;
+import com.tfttools.domain.Unit;
+import com.tfttools.engine.SearchBudget;
+import com.tfttools.engine.SearchStatistics;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Exact search for the boards with the most activated traits, counting every trait whose first threshold is reached
+ * as the strategy manager ranks compositions.
+ * Boards are enumerated as combinations over a fixed unit order, so each board is visited once, and a subtree is cut
+ * as soon as an admissible upper bound on its activated traits cannot beat the worst board kept.
+ * The search stops at its own time or node budget, or when the budget shared with the other strategies runs out, and
+ * then returns the best boards found so far, marking the shared budget truncated so the result is not taken as final.
+ */
+public class BranchAndBoundSearchEngine {
+    private static final int BUDGET_CHECK_INTERVAL = 1024;
+
+    private final EngineConfiguration configuration;
+    private final List<Unit> unitPool;
+    private final int traitOrdinalCapacity;
+    private final int resultCount;
+    private final long timeBudgetNanos;
+    private final long nodeBudget;
+    private final SearchBudget searchBudget;
+    private final SearchStatistics searchStatistics;
+
+    // Candidates in branching order, required units are placed on the board up front and are not candidates
+    private Unit[] candidates;
+    private int[][] candidateTraits;
+    private int[][] suffixTraitCounts;
+
+    private int[] firstThresholds;
+    private int[] requiredCounts;
+    private int[] traitCounts;
+    private int activatedTraits;
+
+    private Unit[] board;
+    private int boardSize;
+
+    // Scratch space of the bound, indexed by deficit and by trait degree
+    private int[] deficitBuckets;
+    private int[] degreeBuckets;
+
+    private PriorityQueue<ScoredBoard> best;
+    private long nodes;
+    private long prunedSubtrees;
+    private long deadline;
+    private boolean budgetExhausted;
+
+    /**
+     * @param resultCount  Number of best boards to return
+     * @param timeBudget   Wall time after which the best boards found so far are returned
+     * @param nodeBudget   Number of search nodes after which the best boards found so far are returned
+     * @param searchBudget Budget of the whole engine run, the search nodes are counted against it as well
+     */
+    public BranchAndBoundSearchEngine(EngineConfiguration configuration,
+                                      List<Unit> unitPool,
+                                      int traitOrdinalCapacity,
+                                      int resultCount,
+                                      Duration timeBudget,
+                                      long nodeBudget,
+                                      SearchBudget searchBudget) {
+        this(configuration, unitPool, traitOrdinalCapacity, resultCount, timeBudget, nodeBudget, searchBudget,
+                SearchStatistics.disabled());
+    }
+
+    /**
+     * @param searchStatistics Receives the number of subtrees cut by the bound
+     */
+    public BranchAndBoundSearchEngine(EngineConfiguration configuration,
+                                      List<Unit> unitPool,
+                                      int traitOrdinalCapacity,
+                                      int resultCount,
+                                      Duration timeBudget,
+                                      long nodeBudget,
+                                      SearchBudget searchBudget,
+                                      SearchStatistics searchStatistics) {
+        this.configuration = configuration;
+        this.unitPool = unitPool;
+        this.traitOrdinalCapacity = traitOrdinalCapacity;
+        this.resultCount = Math.max(1, resultCount);
+        this.timeBudgetNanos = timeBudget.toNanos();
+        this.nodeBudget = nodeBudget;
+        this.searchBudget = searchBudget;
+        this.searchStatistics = searchStatistics;
+    }
+
+    public List<Composition> buildCompositions() {
+        best = new PriorityQueue<>(Comparator.comparingInt(ScoredBoard::score));
+        nodes = 0;
+        prunedSubtrees = 0;
+        budgetExhausted = searchBudget.isExhausted();
+        deadline = System.nanoTime() + timeBudgetNanos;
+
+        if (!initialize()) {
+            return Collections.emptyList();
+        }
+
+        int slots = Math.min(configuration.getMaxUnitsOnBoard() - boardSize, candidates.length);
+        search(0, slots);
+        searchStatistics.recordPruned(prunedSubtrees);
+        if (!isProvenOptimal()) {
+            searchBudget.markTruncated();
+        }
+
+        return best.stream()
+                .sorted(Comparator.comparingInt(ScoredBoard::score).reversed())
+                .map(scoredBoard -> new Composition(new ArrayList<>(Arrays.asList(scoredBoard.units()))))
+                .toList();
+    }
+
+    /**
+     * Check if the last search explored every board that could beat the ones returned
+     */
+    public boolean isProvenOptimal() {
+        return !budgetExhausted;
+    }
+
+    private boolean initialize() {
+        firstThresholds = new int[traitOrdinalCapacity];
+        Arrays.fill(firstThresholds, Integer.MAX_VALUE);
+        requiredCounts = new int[traitOrdinalCapacity];
+        traitCounts = new int[traitOrdinalCapacity];
+        activatedTraits = 0;
+
+        for (Unit unit : unitPool) {
+            for (Trait trait : unit.getTraits()) {
+                int[] thresholds = trait.getThresholds();
+                if (thresholds.length > 0)
+                    firstThresholds[trait.getOrdinal()] = thresholds[0];
+            }
+        }
+        configuration.getRequiredTraits().forEach((trait, count) -> requiredCounts[trait.getOrdinal()] = count);
+
+        int maxUnits = configuration.getMaxUnitsOnBoard();
+        board = new Unit[Math.max(maxUnits, 0)];
+        boardSize = 0;
+
+        Set<Unit> requiredUnits = configuration.getRequiredUnits();
+        if (requiredUnits.size() > maxUnits)
+            return false;
+        for (Unit unit : unitPool) {
+            if (requiredUnits.contains(unit))
+                place(unit, traitOrdinals(unit));
+        }
+        // A required unit outside of the pool was filtered out, so no board can satisfy the request
+        if (boardSize < requiredUnits.size())
+            return false;
+
+        // Units carrying more traits first, so good boards are found early and cut more of the search
+        candidates = unitPool.stream()
+                .filter(unit -> !requiredUnits.contains(unit))
+                .sorted(Comparator.comparingInt((Unit unit) -> unit.getTraits().size()).reversed()
+                        .thenComparingInt(Unit::getOrdinal))
+                .toArray(Unit[]::new);
+
+        candidateTraits = new int[candidates.length][];
+        int maxDegree = 0;
+        int maxThreshold = 0;
+        for (int i = 0; i < candidates.length; i++) {
+            candidateTraits[i] = traitOrdinals(candidates[i]);
+            maxDegree = Math.max(maxDegree, candidateTraits[i].length);
+            for (int trait : candidateTraits[i]) {
+                if (firstThresholds[trait] != Integer.MAX_VALUE)
+                    maxThreshold = Math.max(maxThreshold, firstThresholds[trait]);
+            }
+        }
+
+        suffixTraitCounts = new int[candidates.length + 1][traitOrdinalCapacity];
+        for (int i = candidates.length - 1; i >= 0; i--) {
+            System.arraycopy(suffixTraitCounts[i + 1], 0, suffixTraitCounts[i], 0, traitOrdinalCapacity);
+            for (int trait : candidateTraits[i]) {
+                suffixTraitCounts[i][trait]++;
+            }
+        }
+
+        deficitBuckets = new int[maxThreshold + 1];
+        degreeBuckets = new int[maxDegree + 1];
+        return true;
+    }
+
+    private static int[] traitOrdinals(Unit unit) {
+        return unit.getTraits().stream().mapToInt(Trait::getOrdinal).distinct().toArray();
+    }
+
+    private void search(int from, int slots) {
+        if (budgetExhausted || isOverBudget()) {
+            return;
+        }
+
+        if (slots == 0) {
+            offer();
+            return;
+        }
+
+        // Every remaining candidate is needed to fill the board from here on
+        for (int i = from; i <= candidates.length - slots; i++) {
+            // The bound only shrinks as candidates are skipped, so once it fails every later branch fails too
+            if (!canImprove(i, slots)) {
+                prunedSubtrees++;
+                return;
+            }
+
+            place(candidates[i], candidateTraits[i]);
+            search(i + 1, slots - 1);
+            unplace(candidateTraits[i]);
+
+            if (budgetExhausted) {
+                return;
+            }
+        }
+    }
+
+    private boolean isOverBudget() {
+        if (++nodes % BUDGET_CHECK_INTERVAL == 0) {
+            searchBudget.recordNodes(BUDGET_CHECK_INTERVAL);
+            if (System.nanoTime() - deadline > 0 || searchBudget.isExhausted()) {
+                budgetExhausted = true;
+            }
+        }
+        if (nodes >= nodeBudget) {
+            budgetExhausted = true;
+        }
+        return budgetExhausted;
+    }
+
+    private void place(Unit unit, int[] traits) {
+        board[boardSize++] = unit;
+        for (int trait : traits) {
+            if (++traitCounts[trait] == firstThresholds[trait])
+                activatedTraits++;
+        }
+    }
+
+    private void unplace(int[] traits) {
+        boardSize--;
+        for (int trait : traits) {
+            if (traitCounts[trait]-- == firstThresholds[trait])
+                activatedTraits--;
+        }
+    }
+
+    private void offer() {
+        for (int trait = 0; trait < traitOrdinalCapacity; trait++) {
+            if (traitCounts[trait] < requiredCounts[trait])
+                return;
+        }
+
+        if (best.size() == resultCount) {
+            if (best.peek().score() >= activatedTraits)
+                return;
+            best.poll();
+        }
+        best.add(new ScoredBoard(activatedTraits, Arrays.copyOf(board, boardSize)));
+    }
+
+    /**
+     * Check if picking the given number of units out of the candidates from the given position on could still satisfy
+     * the required traits and beat the worst board kept.
+     * The bound on newly activated traits spends the most trait increments those units could add on the traits closest
+     * to their first threshold, which never undercounts what any actual pick achieves.
+     */
+    private boolean canImprove(int from, int slots) {
+        int[] remaining = suffixTraitCounts[from];
+
+        for (int trait = 0; trait < traitOrdinalCapacity; trait++) {
+            int missing = requiredCounts[trait] - traitCounts[trait];
+            if (missing > 0 && missing > Math.min(slots, remaining[trait]))
+                return false;
+        }
+
+        if (best.size() < resultCount) {
+            return true;
+        }
+
+        Arrays.fill(deficitBuckets, 0);
+        Arrays.fill(degreeBuckets, 0);
+
+        for (int trait = 0; trait < traitOrdinalCapacity; trait++) {
+            int threshold = firstThresholds[trait];
+            if (threshold == Integer.MAX_VALUE || traitCounts[trait] >= threshold)
+                continue;
+
+            int deficit = threshold - traitCounts[trait];
+            if (deficit <= Math.min(slots, remaining[trait]))
+                deficitBuckets[deficit]++;
+        }
+
+        // Only traits that are not yet activated can gain from another unit
+        for (int i = from; i < candidates.length; i++) {
+            int degree = 0;
+            for (int trait : candidateTraits[i]) {
+                if (traitCounts[trait] < firstThresholds[trait])
+                    degree++;
+            }
+            degreeBuckets[degree]++;
+        }
+
+        int increments = 0;
+        int picked = 0;
+        for (int degree = degreeBuckets.length - 1; degree > 0 && picked < slots; degree--) {
+            int take = Math.min(degreeBuckets[degree], slots - picked);
+            increments += take * degree;
+            picked += take;
+        }
+
+        int gained = 0;
+        for (int deficit = 1; deficit < deficitBuckets.length && increments >= deficit; deficit++) {
+            int take = Math.min(deficitBuckets[deficit], increments / deficit);
+            gained += take;
+            increments -= take * deficit;
+        }
+
+        return activatedTraits + gained > best.peek().score();
+    }
+
+    private record ScoredBoard(int score, Unit[] units) {
+    }
+}
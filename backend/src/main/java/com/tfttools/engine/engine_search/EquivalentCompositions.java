@@ -0,0 +1,52 @@
+package com.tfttools.engine.engine_search;
+
+import com.tfttools.domain.Composition;
+import com.tfttools.engine.CompactComposition;
+import com.tfttools.engine.EngineState;
+import com.tfttools.engine.UnitSetKey;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Output stage of the search engines branching on {@link EngineState#getBranchingUnits()}. Boards only differing by
+ * units carrying the same traits are never searched separately, they are expanded from the searched boards here, as
+ * are the boards using a dominated unit instead, for requests asking for more boards than were searched.
+ */
+final class EquivalentCompositions {
+
+    private EquivalentCompositions() {
+    }
+
+    /**
+     * Materializes the searched states, followed by the boards swapping one of their units for an available unit with
+     * the same traits, then by those swapping one for a unit it dominates, so these only fill up the results after
+     * every searched board
+     *
+     * @param states Complete states, in the order their compositions should be returned
+     * @return Distinct compositions
+     */
+    static List<Composition> withEquivalents(List<EngineState> states) {
+        Set<UnitSetKey> seen = new HashSet<>();
+        List<Composition> compositions = new ArrayList<>();
+        for (EngineState state : states) {
+            if (seen.add(state.getCurrentComp().getUnitSetKey())) {
+                compositions.add(state.getCurrentComp().toComposition());
+            }
+        }
+        addAll(compositions, seen, states, EngineState::getEquivalentCompositions);
+        addAll(compositions, seen, states, EngineState::getDominatedCompositions);
+        return compositions;
+    }
+
+    private static void addAll(List<Composition> compositions, Set<UnitSetKey> seen, List<EngineState> states,
+                               Function<EngineState, List<CompactComposition>> swaps) {
+        for (EngineState state : states) {
+            for (CompactComposition swapped : swaps.apply(state)) {
+                if (seen.add(swapped.getUnitSetKey())) {
+                    compositions.add(swapped.toComposition());
+                }
+            }
+        }
+    }
+}
@@ -3,88 +3,135 @@ package com.tfttools.engine.engine_search;
 import com.tfttools.domain.Composition;
 import com.tfttools.domain.Unit;
 import com.tfttools.engine.EngineState;
+import com.tfttools.engine.SearchBudget;
+import com.tfttools.engine.SearchStatistics;
+import com.tfttools.engine.UnitSetKey;
 import com.tfttools.engine.manager.EngineTerminatorManager;
 import com.tfttools.engine.heuristic.Heuristic;
-import com.tfttools.util.CompositionUtils;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Function;
 
 public class ExhaustiveSearchEngine {
-    private final Heuristic heuristic;
+    private final ScoringCursor cursor;
     private final EngineState initialEngineState;
     private final EngineTerminatorManager terminatorManager;
+    private final SearchBudget budget;
+    private final SearchStatistics statistics;
 
-    public ExhaustiveSearchEngine(Heuristic heuristic, 
+    public ExhaustiveSearchEngine(Function<EngineState, Heuristic> heuristicFactory,
                                  EngineState engineState,
                                  EngineTerminatorManager terminatorManager) {
-        this.heuristic = heuristic;
+        this(heuristicFactory, engineState, terminatorManager, SearchBudget.unlimited());
+    }
+
+    /**
+     * @param heuristicFactory Creates the heuristic of the scoring cursor, which is moved to every expanded state
+     * @param budget           Once exhausted every state only follows its first best unit, once cancelled the search stops
+     */
+    public ExhaustiveSearchEngine(Function<EngineState, Heuristic> heuristicFactory,
+                                 EngineState engineState,
+                                 EngineTerminatorManager terminatorManager,
+                                 SearchBudget budget) {
+        this(heuristicFactory, engineState, terminatorManager, budget, SearchStatistics.disabled());
+    }
+
+    /**
+     * @param statistics Receives the number of transpositions and ties dropped
+     */
+    public ExhaustiveSearchEngine(Function<EngineState, Heuristic> heuristicFactory,
+                                 EngineState engineState,
+                                 EngineTerminatorManager terminatorManager,
+                                 SearchBudget budget,
+                                 SearchStatistics statistics) {
+        this.cursor = new ScoringCursor(engineState, heuristicFactory);
         this.initialEngineState = engineState;
         this.terminatorManager = terminatorManager;
+        this.budget = budget;
+        this.statistics = statistics;
     }
 
     public List<Composition> buildCompositions() {
         List<SearchState> currentStates = new ArrayList<>();
         currentStates.add(new SearchState(initialEngineState.copy()));
 
-        while (!currentStates.isEmpty() && !allStatesComplete(currentStates)) {
+        while (!currentStates.isEmpty() && !allStatesComplete(currentStates) && !budget.isCancelled()) {
             List<SearchState> nextStates = new ArrayList<>();
 
+            // Out of budget, the states reached so far are completed greedily instead of branching on every tie
+            boolean exhausted = budget.isExhausted();
+
+            // Sets of units reached through another order are transpositions, they are neither kept nor expanded twice
+            Set<UnitSetKey> transpositions = new HashSet<>();
+            int pruned = 0;
+
             for (SearchState currentState : currentStates) {
                 if (isComplete(currentState)) {
-                    nextStates.add(currentState);
+                    if (transpositions.add(currentState.engineState.getCurrentComp().getUnitSetKey())) {
+                        nextStates.add(currentState);
+                    } else {
+                        pruned++;
+                    }
                     continue;
                 }
 
                 // Get all units with maximum weight for this state
                 List<Unit> maxWeightUnits = getUnitsWithMaxWeight(currentState.engineState);
+                if (exhausted && maxWeightUnits.size() > 1) {
+                    pruned += maxWeightUnits.size() - 1;
+                    maxWeightUnits = maxWeightUnits.subList(0, 1);
+                }
+                budget.recordNodes(1);
 
                 // Create new states by adding each max weight unit
                 for (Unit unit : maxWeightUnits) {
+                    if (!transpositions.add(currentState.engineState.getCurrentComp().getUnitSetKeyWith(unit))) {
+                        pruned++;
+                        continue;
+                    }
+
+                    // A state that can no longer hold the required units and traits would only be discarded once complete
                     SearchState newState = expandState(currentState, unit);
-                    if (newState != null) {
+                    if (newState != null && newState.engineState.isFeasible()) {
                         nextStates.add(newState);
+                    } else {
+                        pruned++;
                     }
                 }
             }
 
-            // Keep all states (no pruning based on beam width)
+            // Keep all distinct states (no pruning based on beam width)
             currentStates = nextStates;
+            statistics.recordPruned(pruned);
         }
 
-        // Convert search states to compositions and remove duplicates
-        return currentStates.stream()
+        // Boards swapping in units with the same traits follow the ones searched
+        return EquivalentCompositions.withEquivalents(currentStates.stream()
                 .filter(this::isComplete)
-                .map(state -> state.engineState.getCurrentComp())
-                .distinct()
-                .collect(Collectors.toList());
+                .map(state -> state.engineState)
+                .toList());
     }
 
     private List<Unit> getUnitsWithMaxWeight(EngineState engineState) {
-        Set<Unit> availableUnits = engineState.getUnitPool();
+        // Dominated and interchangeable units are left out, the board would activate as many traits with another one
+        List<Unit> availableUnits = engineState.getBranchingUnits();
 
-        if (availableUnits.isEmpty()) {
-            return Collections.emptyList();
-        }
+        Heuristic heuristic = cursor.moveTo(engineState);
 
-        // Calculate weights for all available units
-        Map<Unit, Integer> unitWeights = new HashMap<>();
-        for (Unit unit : availableUnits) {
-            int weight = heuristic.getWeight(unit);
-            unitWeights.put(unit, weight);
+        // Calculate weights for all available units, in pool order
+        int[] weights = new int[availableUnits.size()];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = heuristic.getWeight(availableUnits.get(i));
         }
 
-        // Find the maximum weight
-        int maxWeight = unitWeights.values().stream()
-                .mapToInt(Integer::intValue)
-                .max()
-                .orElse(0);
-
         // Return all units with maximum weight
-        return unitWeights.entrySet().stream()
-                .filter(entry -> entry.getValue() == maxWeight)
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
+        int[] maxima = TopKSelector.selectMaxima(weights, weights.length);
+        List<Unit> maxWeightUnits = new ArrayList<>(maxima.length);
+        for (int index : maxima) {
+            maxWeightUnits.add(availableUnits.get(index));
+            heuristic.notifyUnitPicked(availableUnits.get(index));
+        }
+        return maxWeightUnits;
     }
 
     private SearchState expandState(SearchState currentState, Unit unitToAdd) {
@@ -92,8 +139,7 @@ public class ExhaustiveSearchEngine {
             EngineState newEngineState = currentState.engineState.copy();
 
             // Add the unit to the composition
-            newEngineState.getUnitPool().remove(unitToAdd);
-            newEngineState.getCurrentComp().add(unitToAdd);
+            newEngineState.addUnit(unitToAdd);
 
             return new SearchState(newEngineState);
         } catch (Exception e) {
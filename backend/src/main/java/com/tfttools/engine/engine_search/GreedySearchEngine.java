@@ -3,76 +3,89 @@ package com.tfttools.engine.engine_search;
 import com.tfttools.domain.Composition;
 import com.tfttools.domain.Unit;
 import com.tfttools.engine.EngineState;
+import com.tfttools.engine.SearchBudget;
 import com.tfttools.engine.heuristic.Heuristic;
 import com.tfttools.engine.manager.EngineTerminatorManager;
 import com.tfttools.engine.heuristic.tiebreaker.TieBreakerScorer;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class GreedySearchEngine {
     private final Heuristic heuristic;
     private final EngineState engineState;
     private final EngineTerminatorManager terminatorManager;
+    private final SearchBudget budget;
 
     public GreedySearchEngine(Heuristic heuristic, 
                              EngineState engineState,
                              EngineTerminatorManager terminatorManager) {
+        this(heuristic, engineState, terminatorManager, SearchBudget.unlimited());
+    }
+
+    /**
+     * @param budget Counts the units picked, the composition is abandoned once it is cancelled
+     */
+    public GreedySearchEngine(Heuristic heuristic,
+                             EngineState engineState,
+                             EngineTerminatorManager terminatorManager,
+                             SearchBudget budget) {
         this.heuristic = heuristic;
         this.engineState = engineState;
         this.terminatorManager = terminatorManager;
+        this.budget = budget;
     }
 
     public List<Composition> buildCompositions() {
         while (!terminatorManager.shouldTerminate(engineState.getCurrentComp()) 
                && engineState.hasUnitsAvailable()) {
 
+            // A greedy composition is already the cheapest way to complete a board, so only cancellation stops it
+            if (budget.isCancelled()) {
+                return List.of();
+            }
+            budget.recordNodes(1);
+
             Unit bestUnit = selectNextUnit();
             if (bestUnit == null) {
                 break;
             }
 
             // Notify heuristic and update state
+            heuristic.notifyUnitPicked(bestUnit);
             heuristic.notifyUnitChosen(bestUnit);
-            engineState.getUnitPool().remove(bestUnit);
-            engineState.getCurrentComp().add(bestUnit);
+            engineState.addUnit(bestUnit);
+            heuristic.notifyUnitAdded(bestUnit);
         }
 
-        return List.of(engineState.getCurrentComp());
+        return List.of(engineState.getCurrentComp().toComposition());
     }
 
     private Unit selectNextUnit() {
-        if (engineState.getUnitPool().isEmpty()) {
+        if (!engineState.hasUnitsAvailable()) {
             return null;
         }
 
-        // Calculate weights for all available units
-        Map<Unit, Integer> unitWeights = engineState.getUnitPool().stream()
-                .collect(Collectors.toMap(
-                        unit -> unit,
-                        heuristic::getWeight
-                ));
+        // Calculate weights for all available units, in pool order
+        List<Unit> availableUnits = engineState.getAvailableUnits();
+        int[] weights = new int[availableUnits.size()];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = heuristic.getWeight(availableUnits.get(i));
+        }
 
-        return selectBestUnit(unitWeights);
+        return selectBestUnit(availableUnits, weights);
     }
 
-    private Unit selectBestUnit(Map<Unit, Integer> unitWeights) {
-        // Find the maximum weight - O(n)
-        int maxWeight = unitWeights.values().stream()
-                .mapToInt(Integer::intValue)
-                .max()
-                .orElse(0);
-
-        // Get all units with maximum weight - O(n)
-        List<Unit> topCandidates = unitWeights.entrySet().stream()
-                .filter(entry -> entry.getValue() == maxWeight)
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
-
-        if (topCandidates.size() == 1) {
-            return topCandidates.get(0);
+    private Unit selectBestUnit(List<Unit> availableUnits, int[] weights) {
+        // Get all units with maximum weight in a single pass
+        int[] maxima = TopKSelector.selectMaxima(weights, weights.length);
+        if (maxima.length == 1) {
+            return availableUnits.get(maxima[0]);
         }
 
+        List<Unit> topCandidates = new ArrayList<>(maxima.length);
+        for (int index : maxima) {
+            topCandidates.add(availableUnits.get(index));
+        }
         return breakTie(topCandidates);
     }
 
@@ -83,22 +96,17 @@ public class GreedySearchEngine {
             if (remainingCandidates.size() <= 1) break;
 
             // Score all candidates with this tiebreaker
-            Map<Unit, Integer> scores = remainingCandidates.stream()
-                    .collect(Collectors.toMap(
-                            unit -> unit,
-                            tieBreaker::getScore
-                    ));
-
-            // Find the maximum score
-            int maxScore = scores.values().stream()
-                    .mapToInt(Integer::intValue)
-                    .max()
-                    .orElse(0);
+            int[] scores = new int[remainingCandidates.size()];
+            for (int i = 0; i < scores.length; i++) {
+                scores[i] = tieBreaker.getScore(remainingCandidates.get(i));
+            }
 
             // Keep only units with the maximum score
-            remainingCandidates = remainingCandidates.stream()
-                    .filter(unit -> scores.get(unit) == maxScore)
-                    .toList();
+            List<Unit> bestCandidates = new ArrayList<>();
+            for (int index : TopKSelector.selectMaxima(scores, scores.length)) {
+                bestCandidates.add(remainingCandidates.get(index));
+            }
+            remainingCandidates = bestCandidates;
         }
 
         // If we still have ties after all tiebreakers, pick randomly
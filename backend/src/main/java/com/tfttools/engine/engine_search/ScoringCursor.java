@@ -0,0 +1,57 @@
+package com.tfttools.engine.engine_search;
+
+import com.tfttools.domain.Unit;
+import com.tfttools.engine.CompactComposition;
+import com.tfttools.engine.EngineState;
+import com.tfttools.engine.heuristic.Heuristic;
+
+import java.util.function.Function;
+
+/**
+ * A private engine state with one heuristic bound to it, moved from search state to search state.
+ * Moving undoes and applies only the units the two compositions differ by, so the incremental scorers keep every
+ * cached weight the difference does not touch. A cursor must only be used by one thread at a time.
+ */
+class ScoringCursor
+{
+    private final EngineState engineState;
+    private final Heuristic heuristic;
+
+    ScoringCursor(EngineState initialState, Function<EngineState, Heuristic> heuristicFactory)
+    {
+        this.engineState = initialState.copy();
+        this.heuristic = heuristicFactory.apply(engineState);
+    }
+
+    /**
+     * Brings the cursor to the composition of the target state
+     *
+     * @return The heuristic, now scoring against the target's composition
+     */
+    Heuristic moveTo(EngineState target)
+    {
+        CompactComposition current = engineState.getCurrentComp();
+        CompactComposition wanted = target.getCurrentComp();
+
+        for (Unit unit : current.getUnits())
+        {
+            if (!wanted.contains(unit))
+            {
+                engineState.removeUnit(unit);
+                heuristic.notifyUnitRemoved(unit);
+            }
+        }
+
+        for (int i = 0; i < wanted.size(); i++)
+        {
+            Unit unit = wanted.getUnit(i);
+            if (!current.contains(unit))
+            {
+                engineState.addUnit(unit);
+                heuristic.notifyUnitAdded(unit);
+            }
+        }
+
+        return heuristic;
+    }
+}
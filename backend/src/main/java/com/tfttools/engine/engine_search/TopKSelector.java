@@ -0,0 +1,111 @@
+package com.tfttools.engine.engine_search;
+
+import java.util.Arrays;
+
+/**
+ * Selection over primitive scores shared by the search engines. Candidates are addressed by their index in the
+ * caller's list and equal scores always resolve to the lower index, so selections are stable and repeatable.
+ */
+final class TopKSelector {
+
+    private TopKSelector() {
+    }
+
+    /**
+     * Selects the k best scores with a bounded min-heap, O(n log k) and without boxing
+     *
+     * @param scores Score of each candidate
+     * @param count  Number of candidates, the first count entries of scores are read
+     * @param k      Number of candidates to select
+     * @return Indices of the selected candidates, best first
+     */
+    static int[] selectTopK(int[] scores, int count, int k) {
+        int size = Math.min(k, count);
+        if (size <= 0) {
+            return new int[0];
+        }
+
+        // Root holds the worst selected candidate
+        int[] heap = new int[size];
+        int heapSize = 0;
+        for (int candidate = 0; candidate < count; candidate++) {
+            if (heapSize < size) {
+                heap[heapSize] = candidate;
+                siftUp(heap, heapSize++, scores);
+            } else if (isBetter(candidate, heap[0], scores)) {
+                heap[0] = candidate;
+                siftDown(heap, heapSize, scores);
+            }
+        }
+
+        // Popping the worst into the back of the array leaves the selection ordered best first
+        for (int last = heapSize - 1; last > 0; last--) {
+            int worst = heap[0];
+            heap[0] = heap[last];
+            heap[last] = worst;
+            siftDown(heap, last, scores);
+        }
+        return heap;
+    }
+
+    /**
+     * Selects every candidate sharing the best score
+     *
+     * @param scores Score of each candidate
+     * @param count  Number of candidates, the first count entries of scores are read
+     * @return Indices of the best candidates in ascending order
+     */
+    static int[] selectMaxima(int[] scores, int count) {
+        int[] maxima = new int[count];
+        int size = 0;
+        int max = Integer.MIN_VALUE;
+
+        for (int candidate = 0; candidate < count; candidate++) {
+            if (scores[candidate] > max) {
+                max = scores[candidate];
+                size = 0;
+            }
+            if (scores[candidate] == max) {
+                maxima[size++] = candidate;
+            }
+        }
+        return Arrays.copyOf(maxima, size);
+    }
+
+    private static boolean isBetter(int a, int b, int[] scores) {
+        return scores[a] > scores[b] || (scores[a] == scores[b] && a < b);
+    }
+
+    private static void siftUp(int[] heap, int index, int[] scores) {
+        int candidate = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!isBetter(heap[parent], candidate, scores)) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = candidate;
+    }
+
+    private static void siftDown(int[] heap, int size, int[] scores) {
+        int index = 0;
+        int candidate = heap[0];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && isBetter(heap[child], heap[child + 1], scores)) {
+                child++;
+            }
+            if (!isBetter(candidate, heap[child], scores)) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = candidate;
+    }
+}
@@ -2,14 +2,22 @@ package com.tfttools.engine.engine_strategy;
 
 import com.tfttools.domain.EngineConfiguration;
 import com.tfttools.domain.Unit;
+import com.tfttools.engine.CompactComposition;
 import com.tfttools.engine.heuristic.WeightRegistry;
 import com.tfttools.engine.manager.*;
 import com.tfttools.engine.EngineState;
-import com.tfttools.domain.Composition;
+import com.tfttools.engine.RequirementFeasibility;
+import com.tfttools.engine.SearchBudget;
+import com.tfttools.engine.SearchStatistics;
+import com.tfttools.repository.TraitRepository;
 import com.tfttools.repository.UnitRepository;
+import com.tfttools.util.UnitEquivalence;
 import lombok.Getter;
 
+import java.util.Comparator;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 @Getter
 public class StrategyContext {
@@ -17,26 +25,95 @@ public class StrategyContext {
     private final EngineConfiguration engineConfiguration;
     private final WeightRegistry weightRegistry;
 
-    private final Set<Unit> unitPool;
+    private final List<Unit> unitPool;
+
+    private final int unitOrdinalCapacity;
+    private final int traitOrdinalCapacity;
+
+    /**
+     * Checks states of the strategies against the required units and traits of the configuration
+     */
+    private final RequirementFeasibility requirementFeasibility;
+
+    /**
+     * Lets the search engines branch once per group of interchangeable units
+     */
+    private final UnitEquivalence unitEquivalence;
+
+    /**
+     * Executor strategies may use to parallelize work within a search, null to search on the calling thread
+     */
+    private final Executor searchExecutor;
+
+    /**
+     * Time and node limit shared by the strategies, checked cooperatively while they search
+     */
+    private final SearchBudget searchBudget;
+
+    /**
+     * Where the strategies report what their search did, disabled unless the run is measured
+     */
+    private final SearchStatistics searchStatistics;
 
     public StrategyContext(EngineConfiguration engineConfiguration,
-                           EngineTerminatorManager terminatorManager, UnitRepository unitRepository, Set<Unit> unitPool) {
+                           EngineTerminatorManager terminatorManager, UnitRepository unitRepository, TraitRepository traitRepository, Set<Unit> unitPool,
+                           Executor searchExecutor, SearchBudget searchBudget) {
+        this(engineConfiguration, terminatorManager, unitRepository, traitRepository, unitPool, searchExecutor, searchBudget,
+                SearchStatistics.disabled());
+    }
+
+    public StrategyContext(EngineConfiguration engineConfiguration,
+                           EngineTerminatorManager terminatorManager, UnitRepository unitRepository, TraitRepository traitRepository, Set<Unit> unitPool,
+                           Executor searchExecutor, SearchBudget searchBudget, SearchStatistics searchStatistics) {
         this.engineConfiguration = engineConfiguration;
         this.engineTerminatorManager = terminatorManager;
-        this.unitPool = unitPool;
+        this.searchExecutor = searchExecutor;
+        this.searchBudget = searchBudget;
+        this.searchStatistics = searchStatistics;
+
+        // Ordinal order keeps iteration over the pool identical between runs of the same request
+        this.unitPool = unitPool.stream().sorted(Comparator.comparingInt(Unit::getOrdinal)).toList();
+
+        this.unitOrdinalCapacity = unitRepository.getOrdinalCapacity();
+        this.traitOrdinalCapacity = traitRepository.getOrdinalCapacity();
+        this.requirementFeasibility = new RequirementFeasibility(engineConfiguration, this.unitPool, unitOrdinalCapacity);
+        this.unitEquivalence = unitRepository.getUnitEquivalence();
 
-        this.weightRegistry = new WeightRegistry(engineConfiguration, unitRepository);
+        this.weightRegistry = new WeightRegistry(engineConfiguration, unitRepository, traitRepository.getThresholdTable(), searchStatistics);
 
     }
 
+    private StrategyContext(StrategyContext original, SearchBudget searchBudget) {
+        this.engineConfiguration = original.engineConfiguration;
+        this.engineTerminatorManager = original.engineTerminatorManager;
+        this.searchExecutor = original.searchExecutor;
+        this.searchBudget = searchBudget;
+        this.searchStatistics = original.searchStatistics;
+        this.unitPool = original.unitPool;
+        this.unitOrdinalCapacity = original.unitOrdinalCapacity;
+        this.traitOrdinalCapacity = original.traitOrdinalCapacity;
+        this.requirementFeasibility = original.requirementFeasibility;
+        this.unitEquivalence = original.unitEquivalence;
+        this.weightRegistry = original.weightRegistry;
+    }
+
+    /**
+     * Create a context sharing everything with this one except for the search budget
+     */
+    public StrategyContext withSearchBudget(SearchBudget searchBudget) {
+        return new StrategyContext(this, searchBudget);
+    }
+
     /**
      * Create a fresh EngineState for strategy use
      */
     public EngineState createEngineState() {
         return new EngineState(
-                new Composition(),
+                new CompactComposition(unitOrdinalCapacity, traitOrdinalCapacity),
                 engineConfiguration,
-                unitPool
+                unitPool,
+                requirementFeasibility,
+                unitEquivalence
         );
     }
 
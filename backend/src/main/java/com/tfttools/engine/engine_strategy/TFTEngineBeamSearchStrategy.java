@@ -31,21 +31,14 @@ public class TFTEngineBeamSearchStrategy implements TFTEngineStrategy {
                 context.getEngineConfiguration().getCompSize();
 
 
-        // Create heuristic without diversity tie breaker since beam search handles diversity naturally
-        Heuristic heuristic = registry.builder()
-                .with(
-                        registry.createSynergyLookahead(engineState),
-                        registry.createRequiredTraitsWeight(engineState),
-                        registry.createRequiredUnitsWeight(engineState),
-                        registry.createTraitsAddedWeightWithEmblems(engineState, registry.createEmblemWeightScorer(engineState))
-                )
-                .build();
-
         BeamSearchEngine beamSearchEngine = new BeamSearchEngine(
-                heuristic,
+                state -> createHeuristic(registry, state),
                 engineState,
                 context.getEngineTerminatorManager(),
-                beamWidth
+                beamWidth,
+                context.getSearchExecutor(),
+                context.getSearchBudget(),
+                context.getSearchStatistics()
         );
 
         List<Composition> beamResults = beamSearchEngine.buildCompositions();
@@ -56,4 +49,17 @@ public class TFTEngineBeamSearchStrategy implements TFTEngineStrategy {
                 .limit(requestedSize)
                 .toList();
     }
+
+    private Heuristic createHeuristic(WeightRegistry registry, EngineState engineState)
+    {
+        // Create heuristic without diversity tie breaker since beam search handles diversity naturally
+        return registry.builder()
+                .with(
+                        registry.createSynergyLookahead(engineState),
+                        registry.createRequiredTraitsWeight(engineState),
+                        registry.createRequiredUnitsWeight(engineState),
+                        registry.createTraitsAddedWeightWithEmblems(engineState, registry.createEmblemWeightScorer(engineState))
+                )
+                .build();
+    }
 }
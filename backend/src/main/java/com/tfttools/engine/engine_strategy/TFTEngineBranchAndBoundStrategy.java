@@ -0,0 +1,45 @@
+package com.tfttools.engine.engine_strategy;
+
+import com.tfttools.domain.Composition;
+import com.tfttools.engine.engine_search.BranchAndBoundSearchEngine;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Searches for the boards with provably the most activated traits, falling back to the best boards found when the
+ * budget runs out first
+ */
+public class TFTEngineBranchAndBoundStrategy implements TFTEngineStrategy {
+
+    private static final Duration DEFAULT_TIME_BUDGET = Duration.ofMillis(250);
+    private static final long DEFAULT_NODE_BUDGET = 5_000_000;
+
+    private final Duration timeBudget;
+    private final long nodeBudget;
+
+    public TFTEngineBranchAndBoundStrategy() {
+        this(DEFAULT_TIME_BUDGET, DEFAULT_NODE_BUDGET);
+    }
+
+    public TFTEngineBranchAndBoundStrategy(Duration timeBudget, long nodeBudget) {
+        this.timeBudget = timeBudget;
+        this.nodeBudget = nodeBudget;
+    }
+
+    @Override
+    public List<Composition> buildCompositions(StrategyContext context) {
+        BranchAndBoundSearchEngine branchAndBoundEngine = new BranchAndBoundSearchEngine(
+                context.getEngineConfiguration(),
+                context.getUnitPool(),
+                context.getTraitOrdinalCapacity(),
+                context.getEngineConfiguration().getCompSize(),
+                timeBudget,
+                nodeBudget,
+                context.getSearchBudget(),
+                context.getSearchStatistics()
+        );
+
+        return branchAndBoundEngine.buildCompositions();
+    }
+}
@@ -14,20 +14,12 @@ public class TFTEngineExhaustiveSearchStrategy implements TFTEngineStrategy {
         EngineState engineState = context.createEngineState();
         WeightRegistry registry = context.getWeightRegistry();
 
-        // Create heuristic without diversity tie breaker since exhaustive search handles diversity naturally
-        Heuristic heuristic = registry.builder()
-                .with(
-                        registry.createSynergyLookahead(engineState),
-                        registry.createRequiredTraitsWeight(engineState),
-                        registry.createRequiredUnitsWeight(engineState),
-                        registry.createTraitsAddedWeightWithEmblems(engineState, registry.createEmblemWeightScorer(engineState))
-                )
-                .build();
-
         ExhaustiveSearchEngine exhaustiveEngine = new ExhaustiveSearchEngine(
-                heuristic,
+                state -> createHeuristic(registry, state),
                 engineState, 
-                context.getEngineTerminatorManager()
+                context.getEngineTerminatorManager(),
+                context.getSearchBudget(),
+                context.getSearchStatistics()
         );
 
         List<Composition> allResults = exhaustiveEngine.buildCompositions();
@@ -38,4 +30,17 @@ public class TFTEngineExhaustiveSearchStrategy implements TFTEngineStrategy {
                 .limit(requestedSize)
                 .toList();
     }
+
+    private Heuristic createHeuristic(WeightRegistry registry, EngineState engineState)
+    {
+        // Create heuristic without diversity tie breaker since exhaustive search handles diversity naturally
+        return registry.builder()
+                .with(
+                        registry.createSynergyLookahead(engineState),
+                        registry.createRequiredTraitsWeight(engineState),
+                        registry.createRequiredUnitsWeight(engineState),
+                        registry.createTraitsAddedWeightWithEmblems(engineState, registry.createEmblemWeightScorer(engineState))
+                )
+                .build();
+    }
 }
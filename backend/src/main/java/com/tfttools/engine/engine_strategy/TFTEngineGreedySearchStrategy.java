@@ -14,6 +14,11 @@ public class TFTEngineGreedySearchStrategy implements TFTEngineStrategy {
         List<Composition> compositions = new ArrayList<>();
 
         for (int i = 0; i < context.getEngineConfiguration().getCompSize(); i++) {
+            // Out of budget, the compositions built so far are the best ones found
+            if (!compositions.isEmpty() && context.getSearchBudget().isExhausted()) {
+                break;
+            }
+
             List<Composition> newComps = buildComposition(context, compositions);
             compositions.addAll(newComps);
         }
@@ -37,7 +42,7 @@ public class TFTEngineGreedySearchStrategy implements TFTEngineStrategy {
                 )
                 .build();
 
-        GreedySearchEngine greedySearchEngine = new GreedySearchEngine(heuristic, engineState, context.getEngineTerminatorManager());
+        GreedySearchEngine greedySearchEngine = new GreedySearchEngine(heuristic, engineState, context.getEngineTerminatorManager(), context.getSearchBudget());
         return greedySearchEngine.buildCompositions();
     }
 }
\ No newline at end of file
@@ -1,6 +1,6 @@
 package com.tfttools.engine.engine_terminator;
 
-import com.tfttools.domain.Composition;
+import com.tfttools.engine.CompactComposition;
 
 public class CompSizeEngineTerminator implements EngineTerminator{
     private final int tactitionLevel;
@@ -11,7 +11,7 @@ public class CompSizeEngineTerminator implements EngineTerminator{
         this.numCrowns = numCrowns;
     }
 
-    public boolean shouldTerminate(Composition currentComposition) {
+    public boolean shouldTerminate(CompactComposition currentComposition) {
         // the current comp has exceeded the maximum number of playable units on board
         return tactitionLevel + numCrowns <= currentComposition.size();
     }
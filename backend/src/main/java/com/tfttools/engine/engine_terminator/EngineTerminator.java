@@ -1,7 +1,7 @@
 package com.tfttools.engine.engine_terminator;
 
-import com.tfttools.domain.Composition;
+import com.tfttools.engine.CompactComposition;
 
 public interface EngineTerminator {
-    boolean shouldTerminate(Composition comp);
+    boolean shouldTerminate(CompactComposition comp);
 }
@@ -3,25 +3,89 @@ package com.tfttools.engine.heuristic;
 import com.tfttools.domain.Unit;
 import com.tfttools.engine.heuristic.tiebreaker.TieBreakerScorer;
 import com.tfttools.engine.heuristic.weight.EngineWeightScorer;
+import com.tfttools.engine.heuristic.weight.IncrementalEngineWeightScorer;
 import com.tfttools.engine.heuristic.weight.StatefulEngineWeightScorer;
 import lombok.Getter;
 
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 @Getter
 public class Heuristic {
     private final List<EngineWeightScorer> weights;
     private final List<TieBreakerScorer> tieBreakers;
 
+    // Counters of the weights computed on every call, null when invocations are not counted
+    @Getter(lombok.AccessLevel.NONE)
+    private final LongAdder[] invocationCounters;
+
     public Heuristic(List<EngineWeightScorer> weights, List<TieBreakerScorer> tieBreakers) {
+        this(weights, tieBreakers, null);
+    }
+
+    /**
+     * @param invocationCounters Counters incremented on every call, one per weight that computes its weight every time,
+     *                           null to not count. Weights caching theirs count their own computations.
+     */
+    public Heuristic(List<EngineWeightScorer> weights, List<TieBreakerScorer> tieBreakers, LongAdder[] invocationCounters) {
         this.weights = weights;
         this.tieBreakers = tieBreakers;
+        this.invocationCounters = invocationCounters;
     }
 
     public int getWeight(Unit unit) {
-        return weights.stream()
-                .mapToInt(weight -> weight.getWeight(unit))
-                .sum();
+        int weight = 0;
+        for (EngineWeightScorer engineWeightScorer : weights) {
+            weight += engineWeightScorer.getWeight(unit);
+        }
+
+        countInvocations();
+        return weight;
+    }
+
+    /**
+     * Counts one invocation of every weight scorer that computes its weight on every call
+     */
+    protected void countInvocations() {
+        if (invocationCounters != null) {
+            for (LongAdder counter : invocationCounters) {
+                counter.increment();
+            }
+        }
+    }
+
+    /**
+     * Tells the heuristic that the search picked the unit out of those it last computed weights for
+     */
+    public void notifyUnitPicked(Unit unit) {
+    }
+
+    /**
+     * Tells the incremental scorers that the unit was added to the composition they read
+     */
+    public void notifyUnitAdded(Unit unit)
+    {
+        for (EngineWeightScorer engineWeightScorer : weights)
+        {
+            if (engineWeightScorer instanceof IncrementalEngineWeightScorer incrementalScorer)
+            {
+                incrementalScorer.onUnitAdded(unit);
+            }
+        }
+    }
+
+    /**
+     * Tells the incremental scorers that the unit was removed from the composition they read
+     */
+    public void notifyUnitRemoved(Unit unit)
+    {
+        for (EngineWeightScorer engineWeightScorer : weights)
+        {
+            if (engineWeightScorer instanceof IncrementalEngineWeightScorer incrementalScorer)
+            {
+                incrementalScorer.onUnitRemoved(unit);
+            }
+        }
     }
 
     public void notifyUnitChosen(Unit unit)
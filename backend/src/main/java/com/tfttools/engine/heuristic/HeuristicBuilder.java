@@ -1,17 +1,32 @@
 package com.tfttools.engine.heuristic;
 
+import com.tfttools.engine.SearchStatistics;
 import com.tfttools.engine.heuristic.tiebreaker.TieBreakerScorer;
+import com.tfttools.engine.heuristic.weight.CachedEngineWeightScorer;
 import com.tfttools.engine.heuristic.weight.EngineWeightScorer;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 public class HeuristicBuilder {
     private final List<EngineWeightScorer> weights = new ArrayList<>();
     private final List<TieBreakerScorer> tieBreakers = new ArrayList<>();
+    private final SearchStatistics searchStatistics;
+
+    public HeuristicBuilder() {
+        this(SearchStatistics.disabled());
+    }
+
+    /**
+     * @param searchStatistics Counts the weights every weight scorer of the built heuristic computes
+     */
+    public HeuristicBuilder(SearchStatistics searchStatistics) {
+        this.searchStatistics = searchStatistics;
+    }
 
     public HeuristicBuilder with(EngineWeightScorer... weights) {
         this.weights.addAll(Arrays.asList(weights));
@@ -29,6 +44,25 @@ public class HeuristicBuilder {
             .sorted(Comparator.comparingInt(TieBreakerScorer::getPriority))
             .collect(Collectors.toList());
 
-        return new Heuristic(weights, sortedTieBreakers);
+        // Caching scorers count their own computations, so weights read from their cache are not counted
+        LongAdder[] invocationCounters = null;
+        if (searchStatistics.isEnabled()) {
+            List<LongAdder> counters = new ArrayList<>();
+            for (EngineWeightScorer weight : weights) {
+                LongAdder counter = searchStatistics.getScorerInvocationCounter(weight.getClass());
+                if (weight instanceof CachedEngineWeightScorer cachedWeight) {
+                    cachedWeight.countComputationsWith(counter);
+                } else {
+                    counters.add(counter);
+                }
+            }
+            invocationCounters = counters.toArray(LongAdder[]::new);
+        }
+
+        HeuristicProfile profile = searchStatistics.getHeuristicProfile();
+        if (profile != null) {
+            return new ProfilingHeuristic(weights, sortedTieBreakers, invocationCounters, profile);
+        }
+        return new Heuristic(weights, sortedTieBreakers, invocationCounters);
     }
 }
@@ -0,0 +1,68 @@
+package com.tfttools.engine.heuristic;
+
+import lombok.Getter;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cost and influence of every weight scorer over an engine run, accumulated by the {@link ProfilingHeuristic}s of the
+ * run. Scorers are profiled by class, so the scorers of every strategy add up.
+ * It is safe to use from the threads of a parallel search.
+ */
+public class HeuristicProfile {
+    private final Map<Class<?>, ScorerProfile> scorerProfiles = new ConcurrentHashMap<>();
+    private final LongAdder picks = new LongAdder();
+
+    public ScorerProfile getScorerProfile(Class<?> scorerClass) {
+        return scorerProfiles.computeIfAbsent(scorerClass, key -> new ScorerProfile());
+    }
+
+    void recordPick() {
+        picks.increment();
+    }
+
+    public long getPicks() {
+        return picks.sum();
+    }
+
+    /**
+     * Describes every scorer, most expensive first
+     */
+    public String toReport() {
+        StringBuilder report = new StringBuilder("Heuristic profile, ").append(getPicks()).append(" picks");
+        scorerProfiles.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<Class<?>, ScorerProfile> entry) -> entry.getValue().getNanos().sum()).reversed())
+                .forEach(entry -> {
+                    ScorerProfile profile = entry.getValue();
+                    report.append(String.format("%n  %s: %d calls, %.3f ms, ~%d KB allocated, %d weight on picked units, decided %d picks",
+                            entry.getKey().getSimpleName(),
+                            profile.getCalls().sum(),
+                            profile.getNanos().sum() / 1_000_000.0,
+                            profile.getAllocatedBytes().sum() / 1024,
+                            profile.getPickedWeight().sum(),
+                            profile.getDecisivePicks().sum()));
+                });
+        return report.toString();
+    }
+
+    /**
+     * What a single scorer cost and changed
+     */
+    @Getter
+    public static class ScorerProfile {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        // Estimated from the allocation counter of the scoring thread, zero where the JVM does not keep one
+        private final LongAdder allocatedBytes = new LongAdder();
+
+        // Weight the scorer gave the units the search picked
+        private final LongAdder pickedWeight = new LongAdder();
+
+        // Picks that a unit ranked below the picked one would have outranked without this scorer
+        private final LongAdder decisivePicks = new LongAdder();
+    }
+}
@@ -0,0 +1,115 @@
+package com.tfttools.engine.heuristic;
+
+import com.tfttools.domain.Unit;
+import com.tfttools.engine.heuristic.tiebreaker.TieBreakerScorer;
+import com.tfttools.engine.heuristic.weight.EngineWeightScorer;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Heuristic that times every weight scorer separately and tracks how much each one weighed in the units the search
+ * picked, reporting to a {@link HeuristicProfile}. Weights are the same as those of a plain heuristic.
+ * Like the scorers it wraps, it must only be used by one thread at a time.
+ */
+public class ProfilingHeuristic extends Heuristic {
+    private static final com.sun.management.ThreadMXBean THREADS = getAllocationCountingThreads();
+
+    private final HeuristicProfile profile;
+    private final HeuristicProfile.ScorerProfile[] scorerProfiles;
+
+    // Per scorer weights of every unit scored since the last pick, the total follows them
+    private final Map<Unit, int[]> round = new HashMap<>();
+    private boolean roundPicked;
+
+    public ProfilingHeuristic(List<EngineWeightScorer> weights, List<TieBreakerScorer> tieBreakers,
+                              LongAdder[] invocationCounters, HeuristicProfile profile) {
+        super(weights, tieBreakers, invocationCounters);
+        this.profile = profile;
+        this.scorerProfiles = weights.stream()
+                .map(weight -> profile.getScorerProfile(weight.getClass()))
+                .toArray(HeuristicProfile.ScorerProfile[]::new);
+    }
+
+    @Override
+    public int getWeight(Unit unit) {
+        // Weights computed after a pick belong to the next decision of the search
+        if (roundPicked) {
+            round.clear();
+            roundPicked = false;
+        }
+
+        List<EngineWeightScorer> weights = getWeights();
+        int[] unitWeights = new int[weights.size() + 1];
+        int total = 0;
+
+        for (int i = 0; i < weights.size(); i++) {
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            int weight = weights.get(i).getWeight(unit);
+            long elapsed = System.nanoTime() - start;
+
+            HeuristicProfile.ScorerProfile scorerProfile = scorerProfiles[i];
+            scorerProfile.getCalls().increment();
+            scorerProfile.getNanos().add(elapsed);
+            scorerProfile.getAllocatedBytes().add(allocatedBytes() - allocatedBefore);
+
+            unitWeights[i] = weight;
+            total += weight;
+        }
+        unitWeights[weights.size()] = total;
+        round.put(unit, unitWeights);
+
+        countInvocations();
+        return total;
+    }
+
+    @Override
+    public void notifyUnitPicked(Unit unit) {
+        roundPicked = true;
+
+        int[] picked = round.get(unit);
+        if (picked == null) {
+            return;
+        }
+        profile.recordPick();
+
+        int scorers = picked.length - 1;
+        int pickedTotal = picked[scorers];
+        for (int i = 0; i < scorers; i++) {
+            scorerProfiles[i].getPickedWeight().add(picked[i]);
+            if (isDecisive(unit, picked, i)) {
+                scorerProfiles[i].getDecisivePicks().increment();
+            }
+        }
+    }
+
+    // Check if a unit ranked at most as high as the picked one would outrank it without the scorer
+    private boolean isDecisive(Unit pickedUnit, int[] picked, int scorer) {
+        int total = picked.length - 1;
+        int pickedWithout = picked[total] - picked[scorer];
+
+        for (Map.Entry<Unit, int[]> entry : round.entrySet()) {
+            int[] other = entry.getValue();
+            if (entry.getKey() != pickedUnit && other[total] <= picked[total] && other[total] - other[scorer] > pickedWithout) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long allocatedBytes() {
+        return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    private static com.sun.management.ThreadMXBean getAllocationCountingThreads() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads;
+        }
+        return null;
+    }
+}
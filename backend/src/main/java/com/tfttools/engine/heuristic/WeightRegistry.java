@@ -3,9 +3,11 @@ package com.tfttools.engine.heuristic;
 import com.tfttools.domain.Composition;
 import com.tfttools.domain.EngineConfiguration;
 import com.tfttools.engine.EngineState;
+import com.tfttools.engine.SearchStatistics;
 import com.tfttools.engine.heuristic.tiebreaker.DiversityTieBreaker;
 import com.tfttools.engine.heuristic.weight.*;
 import com.tfttools.repository.UnitRepository;
+import com.tfttools.util.TraitThresholdTable;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -13,36 +15,48 @@ import java.util.List;
 public class WeightRegistry {
     private final EngineConfiguration configuration;
     private final UnitRepository unitRepository;
+    private final TraitThresholdTable thresholdTable;
+    private final SearchStatistics searchStatistics;
 
-    public WeightRegistry(EngineConfiguration configuration, UnitRepository unitRepository) {
+    public WeightRegistry(EngineConfiguration configuration, UnitRepository unitRepository, TraitThresholdTable thresholdTable) {
+        this(configuration, unitRepository, thresholdTable, SearchStatistics.disabled());
+    }
+
+    /**
+     * @param searchStatistics Counts the scorer invocations of the heuristics built through {@link #builder()}
+     */
+    public WeightRegistry(EngineConfiguration configuration, UnitRepository unitRepository, TraitThresholdTable thresholdTable,
+                          SearchStatistics searchStatistics) {
         this.configuration = configuration;
         this.unitRepository = unitRepository;
+        this.thresholdTable = thresholdTable;
+        this.searchStatistics = searchStatistics;
     }
 
     public SynergyLookaheadWeightScorer createSynergyLookahead(EngineState engineState) {
-        return new SynergyLookaheadWeightScorer(engineState, unitRepository); // Pass it here
+        return new SynergyLookaheadWeightScorer(engineState, unitRepository, thresholdTable);
     }
 
     public EmblemWeightScorer createEmblemWeightScorer(EngineState engineState)
     {
-        return new EmblemWeightScorer(engineState, new ArrayList<>(configuration.getEmblems()));
+        return new EmblemWeightScorer(engineState, unitRepository, new ArrayList<>(configuration.getEmblems()));
     }
 
     // When you want traits scorer to consider emblems
     public TraitsAddedWeightScorer createTraitsAddedWeightWithEmblems(
             EngineState engineState,
             EmblemWeightScorer emblemScorer) {
-        return new TraitsAddedWeightScorer(engineState, emblemScorer);
+        return new TraitsAddedWeightScorer(engineState, unitRepository, thresholdTable, emblemScorer);
     }
 
     // When you want traits scorer to work independently
     public TraitsAddedWeightScorer createTraitsAddedWeight(EngineState engineState) {
-        return new TraitsAddedWeightScorer(engineState);
+        return new TraitsAddedWeightScorer(engineState, unitRepository, thresholdTable);
     }
 
 
     public RequiredTraitsWeightScorer createRequiredTraitsWeight(EngineState engineState) {
-        return new RequiredTraitsWeightScorer(engineState, configuration.getRequiredTraits());
+        return new RequiredTraitsWeightScorer(engineState, unitRepository, configuration.getRequiredTraits());
     }
 
     public LuckWeightScorer createLuckWeight(EngineState engineState) {
@@ -64,6 +78,6 @@ public class WeightRegistry {
 
     // Builder factory method
     public HeuristicBuilder builder() {
-        return new HeuristicBuilder();
+        return new HeuristicBuilder(searchStatistics);
     }
 }
\ No newline at end of file
@@ -0,0 +1,124 @@
+package com.tfttools.engine.heuristic.weight;
+
+import com.tfttools.domain.Trait;
+import com.tfttools.domain.Unit;
+import com.tfttools.repository.UnitRepository;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Base for scorers whose weight for a candidate only depends on the counts of the candidate's own traits.
+ * Weights are cached by {@link Unit#getOrdinal()} and a change to the composition only drops the candidates sharing a
+ * trait with the changed unit. Scorers with further dependencies widen {@link #invalidateAffectedBy(Unit)}.
+ * Not thread safe, like the engine state it reads.
+ */
+public abstract class CachedEngineWeightScorer implements IncrementalEngineWeightScorer
+{
+    private final UnitRepository unitRepository;
+    private final int[] weights;
+    private final long[] cached;
+
+    // Incremented whenever a weight is computed rather than read from the cache, null to not count
+    private LongAdder computationCounter;
+
+    protected CachedEngineWeightScorer(UnitRepository unitRepository)
+    {
+        this.unitRepository = unitRepository;
+        this.weights = new int[unitRepository.getOrdinalCapacity()];
+        this.cached = new long[(weights.length + 63) >>> 6];
+    }
+
+    /**
+     * Counts the weights this scorer computes from now on, cached weights it returns are not counted
+     */
+    public void countComputationsWith(LongAdder computationCounter)
+    {
+        this.computationCounter = computationCounter;
+    }
+
+    @Override
+    public final int getWeight(Unit unit)
+    {
+        int ordinal = unit.getOrdinal();
+        if (ordinal >= weights.length)
+            return countedComputeWeight(unit);
+
+        long bit = 1L << ordinal;
+        if ((cached[ordinal >>> 6] & bit) != 0)
+            return weights[ordinal];
+
+        int weight = countedComputeWeight(unit);
+        weights[ordinal] = weight;
+        cached[ordinal >>> 6] |= bit;
+        return weight;
+    }
+
+    private int countedComputeWeight(Unit unit)
+    {
+        if (computationCounter != null)
+            computationCounter.increment();
+        return computeWeight(unit);
+    }
+
+    /**
+     * Computes the weight of the candidate against the current composition, the result is cached until the candidate
+     * is invalidated
+     */
+    protected abstract int computeWeight(Unit unit);
+
+    @Override
+    public void onUnitAdded(Unit unit)
+    {
+        invalidateAffectedBy(unit);
+    }
+
+    @Override
+    public void onUnitRemoved(Unit unit)
+    {
+        invalidateAffectedBy(unit);
+    }
+
+    /**
+     * Drops the cached weights that the unit entering or leaving the composition may have changed
+     */
+    protected void invalidateAffectedBy(Unit changedUnit)
+    {
+        invalidate(changedUnit);
+        for (Trait trait : changedUnit.getTraits())
+        {
+            for (Unit unit : unitRepository.getUnitsByTrait(trait))
+            {
+                invalidate(unit);
+            }
+        }
+    }
+
+    protected final void invalidate(Unit unit)
+    {
+        int ordinal = unit.getOrdinal();
+        if (ordinal < weights.length)
+            cached[ordinal >>> 6] &= ~(1L << ordinal);
+    }
+
+    /**
+     * Drops the cached weights of every unit whose bit is set in the mask
+     */
+    protected final void invalidate(long[] unitMask)
+    {
+        for (int i = 0; i < cached.length && i < unitMask.length; i++)
+        {
+            cached[i] &= ~unitMask[i];
+        }
+    }
+
+    protected final void invalidateAll()
+    {
+        Arrays.fill(cached, 0L);
+    }
+
+    protected final int getOrdinalCapacity()
+    {
+        return weights.length;
+    }
+}
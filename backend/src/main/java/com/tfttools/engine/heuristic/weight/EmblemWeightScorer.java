@@ -1,29 +1,52 @@
 package com.tfttools.engine.heuristic.weight;
 
-import com.tfttools.domain.Composition;
 import com.tfttools.domain.Emblem;
 import com.tfttools.domain.Trait;
 import com.tfttools.domain.Unit;
 import com.tfttools.engine.EngineState;
+import com.tfttools.repository.UnitRepository;
 
 import java.util.*;
 
-public class EmblemWeightScorer implements EngineWeightScorer {
+public class EmblemWeightScorer extends CachedEngineWeightScorer {
     private final EngineState engineState;
     private final List<Emblem> availableEmblems;
 
-    public EmblemWeightScorer(EngineState engineState, List<Emblem> availableEmblems) {
+    public EmblemWeightScorer(EngineState engineState, UnitRepository unitRepository, List<Emblem> availableEmblems) {
+        super(unitRepository);
         this.engineState = engineState;
         this.availableEmblems = availableEmblems;
     }
 
     @Override
-    public int getWeight(Unit unit) {
+    protected int computeWeight(Unit unit) {
         return getBestEmblemForUnit(unit)
                 .map(emblem -> calculateEmblemValue(unit, emblem))
                 .orElse(0);
     }
 
+    /**
+     * Weights only read the counts of emblem traits, so they can only change when a unit carrying one of them moves
+     */
+    @Override
+    protected void invalidateAffectedBy(Unit changedUnit) {
+        if (isAffectedBy(changedUnit)) {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Check if adding or removing the unit changes the count of any emblem trait
+     */
+    public boolean isAffectedBy(Unit changedUnit) {
+        for (Emblem emblem : availableEmblems) {
+            if (changedUnit.getTraits().contains(emblem.getTrait())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     // New method to expose the best emblem for a unit
     public Optional<Emblem> getBestEmblemForUnit(Unit unit) {
         return availableEmblems.stream()
@@ -39,12 +62,9 @@ public class EmblemWeightScorer implements EngineWeightScorer {
 
     private int calculateEmblemValue(Unit unit, Emblem emblem) {
         // Calculate how much value adding this emblem would provide
-        Composition tempComp = new Composition(engineState.getCurrentComp());
-        tempComp.add(unit);
-
-        // Simulate adding the emblem trait
+        // The unit never carries the emblem trait itself (see canReceiveEmblem), so adding it leaves the count unchanged
         Trait emblemTrait = emblem.getTrait();
-        int currentCount = tempComp.getTraits().getOrDefault(emblemTrait, 0);
+        int currentCount = engineState.getCurrentComp().getTraitCount(emblemTrait);
 
         // Check if this would activate or improve a trait threshold
         if (emblemTrait.isActivated(currentCount + 1) &&
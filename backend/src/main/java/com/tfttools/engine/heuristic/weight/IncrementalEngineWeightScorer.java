@@ -0,0 +1,20 @@
+package com.tfttools.engine.heuristic.weight;
+
+import com.tfttools.domain.Unit;
+
+/**
+ * A scorer that is told about every change to the composition it reads, so it can keep weights between calls and
+ * recompute only the candidates a change affects
+ */
+public interface IncrementalEngineWeightScorer extends EngineWeightScorer
+{
+    /**
+     * Called after the unit has been added to the composition this scorer reads
+     */
+    void onUnitAdded(Unit unit);
+
+    /**
+     * Called after the unit has been removed from the composition this scorer reads
+     */
+    void onUnitRemoved(Unit unit);
+}
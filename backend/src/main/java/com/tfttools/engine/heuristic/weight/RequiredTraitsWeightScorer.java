@@ -3,27 +3,27 @@ package com.tfttools.engine.heuristic.weight;
 import com.tfttools.domain.Trait;
 import com.tfttools.domain.Unit;
 import com.tfttools.engine.EngineState;
+import com.tfttools.repository.UnitRepository;
 
 import java.util.Map;
 
-public class RequiredTraitsWeightScorer implements EngineWeightScorer
+public class RequiredTraitsWeightScorer extends CachedEngineWeightScorer
 {
     private final EngineState engineState;
     private final Map<Trait, Integer> requiredTraits;
-    private int weight;
 
-    public RequiredTraitsWeightScorer(EngineState engineState, Map<Trait, Integer> requiredTraits) {
+    public RequiredTraitsWeightScorer(EngineState engineState, UnitRepository unitRepository, Map<Trait, Integer> requiredTraits) {
+        super(unitRepository);
         this.engineState = engineState;
         this.requiredTraits = requiredTraits;
-        this.weight = 0;
     }
 
     @Override
-    public int getWeight(Unit unit) {
-        this.weight = 0;
+    protected int computeWeight(Unit unit) {
+        int weight = 0;
         for (Trait trait : unit.getTraits()) {
             if (requiredTraits.containsKey(trait)) {
-                if (engineState.getCurrentComp().getTraits().getOrDefault(trait, 0) < requiredTraits.get(trait)) {
+                if (engineState.getCurrentComp().getTraitCount(trait) < requiredTraits.get(trait)) {
                     weight += 10;
                 }
             }
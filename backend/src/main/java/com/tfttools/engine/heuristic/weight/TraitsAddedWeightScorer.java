@@ -4,38 +4,70 @@ import com.tfttools.domain.Emblem;
 import com.tfttools.domain.Trait;
 import com.tfttools.domain.Unit;
 import com.tfttools.engine.EngineState;
-import com.tfttools.util.CompositionUtils;
+import com.tfttools.repository.UnitRepository;
+import com.tfttools.util.TraitThresholdTable;
 
+import java.util.Arrays;
 import java.util.Optional;
 
-public class TraitsAddedWeightScorer implements EngineWeightScorer
+public class TraitsAddedWeightScorer extends CachedEngineWeightScorer
 {
     private final EngineState engineState;
+    private final TraitThresholdTable thresholdTable;
     private final Optional<EmblemWeightScorer> emblemScorer;
 
+    // Candidates whose cached weight read the remaining turns, which every added or removed unit changes
+    private final long[] boardSizeDependent;
+
     // Constructor without emblem scorer
-    public TraitsAddedWeightScorer(EngineState engineState) {
-        this.engineState = engineState;
-        this.emblemScorer = Optional.empty();
+    public TraitsAddedWeightScorer(EngineState engineState, UnitRepository unitRepository, TraitThresholdTable thresholdTable) {
+        this(engineState, unitRepository, thresholdTable, null);
     }
 
     // Constructor with optional emblem scorer
-    public TraitsAddedWeightScorer(EngineState engineState, EmblemWeightScorer emblemScorer) {
+    public TraitsAddedWeightScorer(EngineState engineState, UnitRepository unitRepository, TraitThresholdTable thresholdTable, EmblemWeightScorer emblemScorer) {
+        super(unitRepository);
         this.engineState = engineState;
+        this.thresholdTable = thresholdTable;
         this.emblemScorer = Optional.ofNullable(emblemScorer);
+        this.boardSizeDependent = new long[(getOrdinalCapacity() + 63) >>> 6];
     }
 
+    @Override
+    public void onUnitAdded(Unit unit) {
+        super.onUnitAdded(unit);
+        emblemScorer.ifPresent(scorer -> scorer.onUnitAdded(unit));
+    }
+
+    @Override
+    public void onUnitRemoved(Unit unit) {
+        super.onUnitRemoved(unit);
+        emblemScorer.ifPresent(scorer -> scorer.onUnitRemoved(unit));
+    }
 
+    @Override
+    protected void invalidateAffectedBy(Unit changedUnit) {
+        // The best emblem of any candidate may change with the count of an emblem trait
+        if (emblemScorer.isPresent() && emblemScorer.get().isAffectedBy(changedUnit)) {
+            invalidateAll();
+        } else {
+            super.invalidateAffectedBy(changedUnit);
+            invalidate(boardSizeDependent);
+        }
+        Arrays.fill(boardSizeDependent, 0L);
+    }
 
     @Override
-    public int getWeight(Unit unit)
+    protected int computeWeight(Unit unit)
     {
         int weight = 0;
+        boolean readsBoardSize = false;
 
         // Calculate weight for unit's natural traits
         for (Trait trait : unit.getTraits()) {
             if (!trait.isCountable()) continue;
             weight += calculateTraitWeight(trait);
+            readsBoardSize |= readsBoardSize(trait);
         }
 
         // If emblem scorer is available, check for potential emblem traits
@@ -43,9 +75,14 @@ public class TraitsAddedWeightScorer implements EngineWeightScorer
             Optional<Trait> potentialEmblemTrait = getBestEmblemTrait(unit, emblemScorer.get());
             if (potentialEmblemTrait.isPresent() && potentialEmblemTrait.get().isCountable()) {
                 weight += calculateTraitWeight(potentialEmblemTrait.get());
+                readsBoardSize |= readsBoardSize(potentialEmblemTrait.get());
             }
         }
 
+        if (readsBoardSize && unit.getOrdinal() < getOrdinalCapacity()) {
+            boardSizeDependent[unit.getOrdinal() >>> 6] |= 1L << unit.getOrdinal();
+        }
+
         return weight;
     }
 
@@ -55,9 +92,17 @@ public class TraitsAddedWeightScorer implements EngineWeightScorer
                 .map(Emblem::getTrait);
     }
 
+    // Mirrors the branch of calculateTraitWeight that compares against the remaining turns
+    private boolean readsBoardSize(Trait trait) {
+        int currentTraitCount = engineState.getCurrentComp().getTraitCount(trait);
+        return currentTraitCount <= thresholdTable.getNextThreshold(trait, currentTraitCount)
+                && !thresholdTable.willActivateNextThreshold(trait, currentTraitCount)
+                && !thresholdTable.hasReachedFirstThreshold(trait, currentTraitCount);
+    }
+
     private int calculateTraitWeight(Trait trait) {
-        Integer currentTraitCount = engineState.getCurrentComp().getTraits().getOrDefault(trait, 0);
-        int nextThreshold = CompositionUtils.INSTANCE.getNextThreshold(trait, currentTraitCount);
+        int currentTraitCount = engineState.getCurrentComp().getTraitCount(trait);
+        int nextThreshold = thresholdTable.getNextThreshold(trait, currentTraitCount);
 
         //If the current threshold has reached the max or is past the max, then no more traits you can activate.
         if (currentTraitCount > nextThreshold) {
@@ -68,8 +113,8 @@ public class TraitsAddedWeightScorer implements EngineWeightScorer
         int currWeight = 0;
 
         //if the next unit to be added increases actives a threshold, then weight should be very desirable.
-        if (CompositionUtils.INSTANCE.willActivateNextThreshold(trait, currentTraitCount)) {
-            if (!CompositionUtils.INSTANCE.hasReachedFirstThreshold(trait, currentTraitCount)) {
+        if (thresholdTable.willActivateNextThreshold(trait, currentTraitCount)) {
+            if (!thresholdTable.hasReachedFirstThreshold(trait, currentTraitCount)) {
                 currWeight += 3;
             } else {
                 currWeight += 1;
@@ -78,7 +123,7 @@ public class TraitsAddedWeightScorer implements EngineWeightScorer
         else //does not activate but progresses
         {
 
-            if (!CompositionUtils.INSTANCE.hasReachedFirstThreshold(trait, currentTraitCount)) {
+            if (!thresholdTable.hasReachedFirstThreshold(trait, currentTraitCount)) {
 
                 if(currentTraitCount == 0)
                 {
@@ -90,11 +135,11 @@ public class TraitsAddedWeightScorer implements EngineWeightScorer
                 }
 
                 int requiredTurns = nextThreshold - currentTraitCount;
-                int remainingTurns = engineState.getEngineConfiguration().getMaxUnitsOnBoard() - engineState.getCurrentComp().getUnits().size();
+                int remainingTurns = engineState.getEngineConfiguration().getMaxUnitsOnBoard() - engineState.getCurrentComp().size();
                 //if te
                 if(remainingTurns >= requiredTurns)
                 {
-                    int difference = currentTraitCount - CompositionUtils.INSTANCE.getPreviousThreshold(trait, currentTraitCount) + 1;
+                    int difference = currentTraitCount - thresholdTable.getPreviousThreshold(trait, currentTraitCount) + 1;
                     currWeight += difference;
                 }
             } else {
@@ -3,43 +3,208 @@ package com.tfttools.engine.manager;
 import com.tfttools.domain.Composition;
 import com.tfttools.domain.EngineConfiguration;
 import com.tfttools.domain.Trait;
-import com.tfttools.engine.engine_strategy.StrategyContext;
-import com.tfttools.engine.engine_strategy.TFTEngineBeamSearchStrategy;
-import com.tfttools.engine.engine_strategy.TFTEngineStrategy;
+import com.tfttools.engine.SearchBudget;
+import com.tfttools.engine.SearchStatistics;
+import com.tfttools.engine.engine_strategy.*;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
 
 public class EngineStrategyManager
 {
+    public static final String VALIDATION_PHASE = "validation";
+    public static final String RANKING_PHASE = "ranking";
+
     private final List<TFTEngineStrategy> strategies;
     private final CompositionValidationManager validationManager;
 
+    // Runs the strategies concurrently when not null
+    private final Executor portfolioExecutor;
+    private final int qualityTarget;
+
+    /**
+     * Creates the manager of interactive searches. Branch and bound is left to background jobs and the portfolio: run
+     * after beam search it would add its whole time limit to most searches, and cut short it keeps them out of the
+     * result cache.
+     */
     public EngineStrategyManager()
     {
-        this.strategies = List.of(
+        this(List.of(
                 new TFTEngineBeamSearchStrategy(12)
                 //new TFTEngineDefaultStrategy()
                 // Add more strategies here
-        );
+        ));
+    }
+
+    /**
+     * @param strategies Strategies whose compositions are validated, ranked and deduplicated together
+     */
+    public EngineStrategyManager(List<TFTEngineStrategy> strategies)
+    {
+        this(strategies, null, 0);
+    }
+
+    /**
+     * @param strategies        Strategies whose compositions are validated, ranked and deduplicated together
+     * @param portfolioExecutor Runs the strategies concurrently, null to run them one after another on the calling thread
+     * @param qualityTarget     Activated traits every requested composition should reach for the strategies still
+     *                          running to be stopped early, 0 to always wait for every strategy
+     */
+    public EngineStrategyManager(List<TFTEngineStrategy> strategies, Executor portfolioExecutor, int qualityTarget)
+    {
+        this.strategies = List.copyOf(strategies);
         this.validationManager = new CompositionValidationManager();
+        this.portfolioExecutor = portfolioExecutor;
+        this.qualityTarget = qualityTarget;
+    }
 
+    /**
+     * Creates a manager running every search strategy concurrently, so adding a strategy costs threads rather than
+     * response time
+     *
+     * @param portfolioExecutor Runs the strategies, best bounded since every search submits one task per strategy
+     * @param qualityTarget     Activated traits every requested composition should reach for the strategies still
+     *                          running to be stopped early, 0 to always wait for every strategy
+     */
+    public static EngineStrategyManager createPortfolio(Executor portfolioExecutor, int qualityTarget)
+    {
+        return new EngineStrategyManager(List.of(
+                new TFTEngineBeamSearchStrategy(12),
+                new TFTEngineBranchAndBoundStrategy(),
+                new TFTEngineGreedySearchStrategy(),
+                new TFTEngineExhaustiveSearchStrategy()
+        ), portfolioExecutor, qualityTarget);
     }
 
     public List<Composition> buildCompositions(EngineConfiguration engineConfiguration,
                                                StrategyContext context)
     {
-        List<Composition> allStrategyComps = new ArrayList<>();
+        return buildCompositions(engineConfiguration, context, composition -> {});
+    }
+
+    /**
+     * Builds compositions, handing every distinct valid composition to the listener as soon as the strategy that found
+     * it returns, before the ranking of all of them is known
+     *
+     * @param compositionListener Called on the calling thread, once per distinct valid composition
+     * @return The ranked compositions
+     */
+    public List<Composition> buildCompositions(EngineConfiguration engineConfiguration,
+                                               StrategyContext context,
+                                               Consumer<Composition> compositionListener)
+    {
+        Consumer<List<Composition>> arrivals = distinctArrivals(compositionListener);
+
+        List<Composition> validCompositions = portfolioExecutor == null ?
+                runSequentially(engineConfiguration, context, arrivals) :
+                runPortfolio(engineConfiguration, context, arrivals);
+
+        return context.getSearchStatistics().time(RANKING_PHASE,
+                () -> rankAndDeduplicate(validCompositions, engineConfiguration));
+    }
+
+    /**
+     * Runs a strategy and keeps its valid compositions, timing the search and the validation as separate phases.
+     * Strategies are timed under their class name.
+     */
+    private List<Composition> runStrategy(TFTEngineStrategy strategy, EngineConfiguration engineConfiguration,
+                                          StrategyContext context)
+    {
+        SearchStatistics statistics = context.getSearchStatistics();
+        List<Composition> compositions = statistics.time(strategy.getClass().getSimpleName(),
+                () -> strategy.buildCompositions(context));
+        return statistics.time(VALIDATION_PHASE,
+                () -> validationManager.filterValidCompositions(compositions, engineConfiguration));
+    }
+
+    // Strategies often find the same boards, each is only reported the first time
+    private static Consumer<List<Composition>> distinctArrivals(Consumer<Composition> compositionListener)
+    {
+        Set<Composition> reported = new HashSet<>();
+        return compositions -> compositions.stream()
+                .filter(reported::add)
+                .forEach(compositionListener);
+    }
+
+    private List<Composition> runSequentially(EngineConfiguration engineConfiguration, StrategyContext context,
+                                              Consumer<List<Composition>> arrivals)
+    {
+        List<Composition> validCompositions = new ArrayList<>();
 
         this.strategies.forEach(strategy ->
         {
-            List<Composition> comps = strategy.buildCompositions(context);
-            allStrategyComps.addAll(comps);
+            List<Composition> comps = runStrategy(strategy, engineConfiguration, context);
+            arrivals.accept(comps);
+            validCompositions.addAll(comps);
         });
 
-        List<Composition> validCompositions = validationManager.filterValidCompositions(allStrategyComps, engineConfiguration);
+        return validCompositions;
+    }
 
+    /**
+     * Runs every strategy concurrently and merges their compositions as they arrive.
+     * Strategies return the best compositions found so far once the search budget runs out, so the portfolio finishes
+     * by the deadline too. Once the merged compositions reach the quality target the strategies still running are
+     * stopped and not waited for.
+     */
+    private List<Composition> runPortfolio(EngineConfiguration engineConfiguration, StrategyContext context,
+                                           Consumer<List<Composition>> arrivals)
+    {
+        // Stopping the strategies of this portfolio must not cancel the request's budget
+        SearchBudget portfolioBudget = context.getSearchBudget().createChild();
+        StrategyContext portfolioContext = context.withSearchBudget(portfolioBudget);
 
-        return rankAndDeduplicate(validCompositions, engineConfiguration);
+        CompletionService<StrategyResult> completionService = new ExecutorCompletionService<>(portfolioExecutor);
+        for (int i = 0; i < strategies.size(); i++)
+        {
+            int strategyIndex = i;
+            TFTEngineStrategy strategy = strategies.get(i);
+            completionService.submit(() -> new StrategyResult(strategyIndex,
+                    runStrategy(strategy, engineConfiguration, portfolioContext)));
+        }
+
+        // Kept in strategy order rather than arrival order, so ties rank the same way however the threads were scheduled
+        List<List<Composition>> validByStrategy = new ArrayList<>(Collections.nCopies(strategies.size(), List.of()));
+        List<Composition> arrived = new ArrayList<>();
+        try
+        {
+            for (int completed = 0; completed < strategies.size(); completed++)
+            {
+                StrategyResult result = completionService.take().get();
+                validByStrategy.set(result.strategyIndex(), result.validCompositions());
+                arrived.addAll(result.validCompositions());
+                arrivals.accept(result.validCompositions());
+
+                if (reachesQualityTarget(arrived, engineConfiguration))
+                    break;
+            }
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException runtimeException)
+                throw runtimeException;
+            throw new RuntimeException("Search strategy failed", e.getCause());
+        } finally
+        {
+            portfolioBudget.cancel();
+        }
+
+        return validByStrategy.stream().flatMap(List::stream).toList();
+    }
+
+    private boolean reachesQualityTarget(List<Composition> validCompositions, EngineConfiguration engineConfiguration)
+    {
+        if (qualityTarget <= 0)
+            return false;
+
+        long reachingTarget = validCompositions.stream()
+                .distinct()
+                .filter(comp -> evaluateComposition(comp) >= qualityTarget)
+                .count();
+        return reachingTarget >= engineConfiguration.getCompSize();
     }
 
     private List<Composition> rankAndDeduplicate(List<Composition> compositions,
@@ -63,4 +228,8 @@ public class EngineStrategyManager
             return trait.isActivated(currentTraitCount);
         }).toList().size();
     }
+
+    private record StrategyResult(int strategyIndex, List<Composition> validCompositions)
+    {
+    }
 }
@@ -1,6 +1,6 @@
 package com.tfttools.engine.manager;
 
-import com.tfttools.domain.Composition;
+import com.tfttools.engine.CompactComposition;
 import com.tfttools.engine.engine_terminator.EngineTerminator;
 import com.tfttools.engine.engine_terminator.*;
 
@@ -20,7 +20,7 @@ public class EngineTerminatorManager {
         return engineTerminators;
     }
 
-    public boolean shouldTerminate(Composition comp)
+    public boolean shouldTerminate(CompactComposition comp)
     {
         for (EngineTerminator terminator : getEngineTerminators()) {
             if (terminator.shouldTerminate(comp)) {
@@ -37,6 +37,13 @@ public class CompositionMapper implements Function<Composition, CompositionDTO>
 
     @Override
     public CompositionDTO apply(Composition composition) {
+        return apply(composition, null);
+    }
+
+    /**
+     * Maps a composition of the given set, null for the current set
+     */
+    public CompositionDTO apply(Composition composition, String setNumber) {
         List<UnitDTO> unitDTOs = composition.getUnits().stream()
                 .map(unitMapper)
                 .collect(Collectors.toList());
@@ -48,7 +55,7 @@ public class CompositionMapper implements Function<Composition, CompositionDTO>
                 ));
 
         final int activatedTraits = CompositionUtils.INSTANCE.getActivatedTraits(composition).size();
-        final String teamCode = teamPlannerService.exportToTeamCode(composition);
+        final String teamCode = teamPlannerService.exportToTeamCode(composition, setNumber);
 
         return new CompositionDTO(unitDTOs, traitDTOs, activatedTraits, teamCode);
     }
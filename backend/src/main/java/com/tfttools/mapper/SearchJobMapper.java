@@ -0,0 +1,34 @@
+package com.tfttools.mapper;
+
+import com.tfttools.dto.SearchJobDTO;
+import com.tfttools.service.SearchJob;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+
+/**
+ * Maps a background {@link SearchJob} to the {@link SearchJobDTO} clients poll
+ */
+@Component
+public class SearchJobMapper implements Function<SearchJob, SearchJobDTO> {
+
+    /**
+     * Creates a new {@link SearchJobDTO} from the current state of the job
+     * @param job Job to report on
+     * @return Snapshot of the job
+     */
+    @Override
+    public SearchJobDTO apply(SearchJob job) {
+        return new SearchJobDTO(
+                job.getId(),
+                job.getStatus().name(),
+                job.getNodesExpanded(),
+                job.getCompositionsFound(),
+                job.getBestActivatedTraits(),
+                job.getCompositions(),
+                job.getError(),
+                job.getSubmittedAt(),
+                job.getFinishedAt()
+        );
+    }
+}
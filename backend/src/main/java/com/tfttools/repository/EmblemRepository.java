@@ -1,106 +1,54 @@
 package com.tfttools.repository;
 
 import com.tfttools.domain.Emblem;
-import com.tfttools.domain.Trait;
-import com.tfttools.domain.communitydragon.CommunityDragonItems;
-import com.tfttools.domain.communitydragon.CommunityDragonObject;
-import com.tfttools.prefixtrie.PrefixTrie;
-import com.tfttools.service.CommunityDragonDataService;
-import com.tfttools.service.TFTSetContextService;
-import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
+/**
+ * Emblems of the current set, read from the game data snapshot published last. Instances pinned to a snapshot, see
+ * {@link GameDataSnapshot#getEmblemRepository()}, keep serving that snapshot.
+ */
 @Component
 @DependsOn("TFTSetContextService")
 public class EmblemRepository
 {
 
-    private final Map<String, Emblem> emblems;
-
-    private final PrefixTrie<Emblem> emblemPrefixTrie;
-
-    private final TraitRepository traitRepository;
-    private final CommunityDragonDataService dataService;
-    private final TFTSetContextService setContextService;
+    private final GameDataRepository gameDataRepository;
+    private final GameDataSnapshot pinnedSnapshot;
 
     @Autowired
-    public EmblemRepository(TraitRepository traitRepository,
-                            CommunityDragonDataService dataService,
-                            TFTSetContextService setContextService)
+    public EmblemRepository(GameDataRepository gameDataRepository)
     {
-        this.emblems = new HashMap<>();
-
-        this.emblemPrefixTrie = new PrefixTrie<>();
-
-        this.traitRepository = traitRepository;
-        this.dataService = dataService;
-        this.setContextService = setContextService;
+        this.gameDataRepository = gameDataRepository;
+        this.pinnedSnapshot = null;
     }
 
-    @PostConstruct
-    public void init()
+    EmblemRepository(GameDataSnapshot pinnedSnapshot)
     {
-        loadEmblems(setContextService.getCurrentSetNumber());
-        emblems.values().forEach(this.emblemPrefixTrie::add);
+        this.gameDataRepository = null;
+        this.pinnedSnapshot = pinnedSnapshot;
     }
 
-    private void loadEmblems(String set)
+    private GameDataSnapshot snapshot()
     {
-        try
-        {
-            CommunityDragonObject communityDragonObject = dataService.getCommunityDragonData();
-            List<CommunityDragonItems> communityDragonItemsList = communityDragonObject.getItems();
-
-            for (CommunityDragonItems communityDragonItems : communityDragonItemsList)
-            {
-                String apiName = communityDragonItems.getApiName();
-                String name = communityDragonItems.getName();
-
-                // Skip non-emblems
-                if (!apiName.startsWith("TFT" + set) || !apiName.endsWith("EmblemItem"))
-                {
-                    continue;
-                }
-
-                String traitName = communityDragonItems.getName().substring(0, communityDragonItems.getName().indexOf(" Emblem"));
-                Trait trait = traitRepository.getTraitByName(traitName);
-
-                if (trait == null)
-                {
-                    throw new RuntimeException("Trait not found: " + traitName);
-                }
-
-                Emblem emblem = new Emblem(name, trait);
-                this.emblems.put(name, emblem);
-            }
-        } catch (Exception e)
-        {
-            throw new RuntimeException("Failed to load emblems", e);
-        }
-    }
-
-    public void reloadEmblems() {
-        loadEmblems(setContextService.getCurrentSetNumber());
+        return pinnedSnapshot != null ? pinnedSnapshot : gameDataRepository.getSnapshot();
     }
 
     public List<Emblem> getAllEmblems()
     {
-        return this.emblems.values().stream().toList();
+        return snapshot().getEmblems().values().stream().toList();
     }
 
     public Emblem getEmblemByName(String emblemName)
     {
-        return this.emblems.get(emblemName);
+        return snapshot().getEmblems().get(emblemName);
     }
 
     public List<Emblem> getAllEmblemsStartingWith(String prefix)
     {
-        return this.emblemPrefixTrie.getAllDescendantsByPrefix(prefix);
+        return snapshot().getEmblemPrefixTrie().getAllDescendantsByPrefix(prefix);
     }
 }
@@ -0,0 +1,203 @@
+package com.tfttools.repository;
+
+import com.tfttools.domain.communitydragon.CommunityDragonObject;
+import com.tfttools.service.CommunityDragonDataService;
+import com.tfttools.service.TFTSetContextService;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Holds the game data snapshot of the current set. Reloading builds a whole new snapshot off to the side and publishes
+ * it with a single reference swap: readers never wait, and never see a half loaded set.
+ * Other sets, as asked for during set transitions or to compare with the PBE, are loaded on first use and kept next to
+ * the current one. Only the configured sets can be selected, and only a few of them stay resident, the one used least
+ * recently is dropped to make room for another.
+ */
+@Component
+@DependsOn("TFTSetContextService")
+public class GameDataRepository
+{
+    private static final Logger logger = LoggerFactory.getLogger(GameDataRepository.class);
+
+    private final CommunityDragonDataService dataService;
+    private final TFTSetContextService setContextService;
+
+    private final int maxResidentSets;
+    private final Set<String> selectableSets;
+    private final AtomicLong lastVersion = new AtomicLong();
+
+    private volatile GameDataSnapshot snapshot;
+
+    // Snapshots of sets other than the current one, in access order
+    private final Map<String, GameDataSnapshot> residentSets;
+    // Sets loading right now, so each set loads once however many requests ask for it
+    private final Map<String, CompletableFuture<GameDataSnapshot>> loadingSets = new ConcurrentHashMap<>();
+    // Counts the drops of resident sets, guarded by residentSets. A load only makes its snapshot resident if nothing
+    // was dropped while it ran, since it may have been built from the data the drop was meant to replace.
+    private long residentEpoch;
+
+    @Autowired
+    public GameDataRepository(CommunityDragonDataService dataService, TFTSetContextService setContextService,
+                              @Value("${tft.data.max-resident-sets:3}") int maxResidentSets,
+                              @Value("${tft.data.selectable-sets:}") String[] selectableSets)
+    {
+        this.dataService = dataService;
+        this.setContextService = setContextService;
+        this.maxResidentSets = Math.max(1, maxResidentSets);
+        this.selectableSets = Arrays.stream(selectableSets).map(String::trim).filter(set -> !set.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        this.residentSets = new LinkedHashMap<>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, GameDataSnapshot> eldest)
+            {
+                // The current set is always resident and counts towards the bound
+                boolean evict = size() > GameDataRepository.this.maxResidentSets - 1;
+                if (evict)
+                    logger.info("Dropping game data of set {}, used least recently", eldest.getKey());
+                return evict;
+            }
+        };
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        reload();
+        dataService.addSetDataListener(this::evict);
+    }
+
+    /**
+     * Builds the snapshot of the current set from the data held and publishes it. Reloads run one at a time so
+     * versions are published in order. Other sets are dropped, they are loaded again from the new data on next use,
+     * and loads of other sets that started before the reload do not keep their snapshots.
+     */
+    public synchronized void reload()
+    {
+        long version = lastVersion.incrementAndGet();
+        GameDataSnapshot reloaded = GameDataSnapshot.build(dataService.getCommunityDragonData(),
+                setContextService.getCurrentSetNumber(), version);
+
+        this.snapshot = reloaded;
+        synchronized (residentSets)
+        {
+            // Loads still running read the previous data, they must not put their snapshots back
+            residentEpoch++;
+            residentSets.clear();
+        }
+        logger.info("Published game data snapshot {} of set {}", version, reloaded.getSetNumber());
+    }
+
+    /**
+     * Drops the snapshot of a set, so the next request for it builds one from the data kept of it now
+     */
+    public void evict(String setNumber)
+    {
+        synchronized (residentSets)
+        {
+            residentEpoch++;
+            if (residentSets.remove(setNumber) != null)
+                logger.info("Dropping game data of set {}, newer data was downloaded", setNumber);
+        }
+    }
+
+    /**
+     * Gets the current snapshot. Callers needing several lookups to agree should hold on to it rather than calling
+     * this again.
+     */
+    public GameDataSnapshot getSnapshot()
+    {
+        return snapshot;
+    }
+
+    /**
+     * Gets the snapshot of a set, building it on the calling thread from the data kept of the set if it is not
+     * resident. Callers never wait for a download: a set whose data was never downloaded is downloaded in the
+     * background, and asking for it fails until then. A snapshot built from data kept of an earlier version is served
+     * while the newer data downloads, and dropped once the download completes.
+     *
+     * @param setNumber Number of the set, null or blank for the current set
+     * @throws IllegalArgumentException     If the set is unknown or cannot be selected
+     * @throws GameDataUnavailableException If the data of the set is still downloading
+     */
+    public GameDataSnapshot getSnapshot(String setNumber)
+    {
+        GameDataSnapshot current = snapshot;
+        if (setNumber == null || setNumber.isBlank() || setNumber.equals(current.getSetNumber()))
+            return current;
+        if (!selectableSets.contains(setNumber))
+            throw new IllegalArgumentException("Set " + setNumber + " cannot be selected");
+
+        GameDataSnapshot resident;
+        synchronized (residentSets)
+        {
+            resident = residentSets.get(setNumber);
+        }
+        if (resident != null)
+            return resident;
+
+        CompletableFuture<GameDataSnapshot> load = new CompletableFuture<>();
+        CompletableFuture<GameDataSnapshot> loading = loadingSets.putIfAbsent(setNumber, load);
+        if (loading != null)
+            return await(loading);
+
+        long epoch;
+        synchronized (residentSets)
+        {
+            epoch = residentEpoch;
+        }
+
+        // Only sets that loaded take up room, an unknown set never pushes a resident one out
+        try
+        {
+            CommunityDragonObject data = dataService.getSetDataIfAvailable(setNumber);
+            if (data == null)
+                throw new GameDataUnavailableException("Data of set " + setNumber + " is downloading, retry later");
+
+            GameDataSnapshot loaded = GameDataSnapshot.build(data, setNumber, lastVersion.incrementAndGet());
+            synchronized (residentSets)
+            {
+                if (residentEpoch == epoch)
+                    residentSets.put(setNumber, loaded);
+            }
+            logger.info("Loaded game data snapshot {} of set {}", loaded.getVersion(), setNumber);
+            load.complete(loaded);
+            return loaded;
+        } catch (RuntimeException e)
+        {
+            load.completeExceptionally(e);
+            throw e;
+        } finally
+        {
+            loadingSets.remove(setNumber, load);
+        }
+    }
+
+    private static GameDataSnapshot await(CompletableFuture<GameDataSnapshot> load)
+    {
+        try
+        {
+            return load.join();
+        } catch (CompletionException e)
+        {
+            if (e.getCause() instanceof RuntimeException runtimeException)
+                throw runtimeException;
+            throw e;
+        }
+    }
+}
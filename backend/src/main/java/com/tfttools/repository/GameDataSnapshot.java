@@ -0,0 +1,300 @@
+package com.tfttools.repository;
+
+import com.tfttools.domain.Emblem;
+import com.tfttools.domain.Role;
+import com.tfttools.domain.Trait;
+import com.tfttools.domain.Unit;
+import com.tfttools.domain.communitydragon.ChampionStats;
+import com.tfttools.domain.communitydragon.CommunityDragonChampions;
+import com.tfttools.domain.communitydragon.CommunityDragonItems;
+import com.tfttools.domain.communitydragon.CommunityDragonObject;
+import com.tfttools.domain.communitydragon.CommunityDragonTraitEffects;
+import com.tfttools.domain.communitydragon.CommunityDragonTraits;
+import com.tfttools.prefixtrie.PrefixTrie;
+import com.tfttools.util.SynergyGraph;
+import com.tfttools.util.TraitThresholdTable;
+import com.tfttools.util.UnitEquivalence;
+
+import java.util.*;
+
+/**
+ * The traits, units and emblems of a set along with every lookup built from them, as one immutable value. A snapshot
+ * is built in full before it is published, and never changes afterwards, so whoever holds one sees a consistent set
+ * even while a newer one replaces it. Engine runs hold on to the snapshot they started with through the repositories
+ * pinned to it.
+ */
+public final class GameDataSnapshot
+{
+    private final long version;
+    private final String setNumber;
+
+    private final Map<String, Trait> traits;
+    private final PrefixTrie<Trait> traitPrefixTrie;
+    private final int traitOrdinalCapacity;
+    private final TraitThresholdTable thresholdTable;
+
+    private final Map<String, Unit> units;
+    private final PrefixTrie<Unit> unitPrefixTrie;
+    private final int unitOrdinalCapacity;
+    private final Map<Trait, List<Unit>> traitToUnits;
+    private final SynergyGraph synergyGraph;
+    private final UnitEquivalence unitEquivalence;
+
+    private final Map<String, Emblem> emblems;
+    private final PrefixTrie<Emblem> emblemPrefixTrie;
+
+    private final TraitRepository traitRepository;
+    private final UnitRepository unitRepository;
+    private final EmblemRepository emblemRepository;
+
+    private GameDataSnapshot(long version, String setNumber, Map<String, Trait> traits, Map<String, Unit> units,
+                             Map<String, Emblem> emblems)
+    {
+        this.version = version;
+        this.setNumber = setNumber;
+
+        this.traits = Collections.unmodifiableMap(traits);
+        this.traitPrefixTrie = new PrefixTrie<>();
+        traits.values().forEach(traitPrefixTrie::add);
+        this.traitOrdinalCapacity = traits.values().stream().mapToInt(Trait::getOrdinal).max().orElse(-1) + 1;
+        this.thresholdTable = TraitThresholdTable.build(traits.values(), traitOrdinalCapacity);
+
+        this.units = Collections.unmodifiableMap(units);
+        this.unitPrefixTrie = new PrefixTrie<>();
+        units.values().forEach(unitPrefixTrie::add);
+        this.unitOrdinalCapacity = units.values().stream().mapToInt(Unit::getOrdinal).max().orElse(-1) + 1;
+        this.traitToUnits = groupUnitsByTrait(units.values());
+        this.synergyGraph = SynergyGraph.build(traitToUnits, unitOrdinalCapacity, traitOrdinalCapacity);
+        this.unitEquivalence = UnitEquivalence.build(units.values(), unitOrdinalCapacity);
+
+        this.emblems = Collections.unmodifiableMap(emblems);
+        this.emblemPrefixTrie = new PrefixTrie<>();
+        emblems.values().forEach(emblemPrefixTrie::add);
+
+        this.traitRepository = new TraitRepository(this);
+        this.unitRepository = new UnitRepository(this);
+        this.emblemRepository = new EmblemRepository(this);
+    }
+
+    /**
+     * Builds the snapshot of a set from the Community Dragon data
+     *
+     * @param communityDragonObject Data holding the set, and its emblem items
+     * @param set                   Number of the set, as keyed in the data
+     * @param version               Version of the snapshot, higher for every snapshot built after it
+     */
+    public static GameDataSnapshot build(CommunityDragonObject communityDragonObject, String set, long version)
+    {
+        Map<String, Trait> traits = loadTraits(communityDragonObject, set);
+        Map<String, Unit> units = loadUnits(communityDragonObject, set, traits);
+        Map<String, Emblem> emblems = loadEmblems(communityDragonObject, set, traits);
+        return new GameDataSnapshot(version, set, traits, units, emblems);
+    }
+
+    private static Map<String, Trait> loadTraits(CommunityDragonObject communityDragonObject, String set)
+    {
+        try
+        {
+            List<CommunityDragonTraits> setTraits = communityDragonObject.getSets().get(set).getTraits();
+            Map<String, Trait> traits = new HashMap<>();
+            int nextOrdinal = 0;
+
+            for (CommunityDragonTraits communityDragonTrait : setTraits)
+            {
+                String apiName = communityDragonTrait.getApiName();
+                String name = communityDragonTrait.getName();
+                List<CommunityDragonTraitEffects> effects = communityDragonTrait.getEffects();
+
+                // Skip mechanic traits
+                if (apiName.contains("MechanicTrait"))
+                    continue;
+                if (effects.isEmpty() && !apiName.contains("UndeterminedTrait")) //todo MF is Conduit/Challenger/Replicator
+                    continue;
+
+                Trait trait = new Trait(apiName, name,
+                        effects.stream().mapToInt(CommunityDragonTraitEffects::getMinUnits).toArray(),
+                        effects.stream().map(CommunityDragonTraitEffects::getStyle).toList(),
+                        nextOrdinal++);
+                traits.put(name, trait);
+            }
+            return traits;
+        } catch (Exception e)
+        {
+            throw new RuntimeException("Failed to load traits", e);
+        }
+    }
+
+    private static Map<String, Unit> loadUnits(CommunityDragonObject communityDragonObject, String set, Map<String, Trait> traits)
+    {
+        try
+        {
+            List<CommunityDragonChampions> champions = communityDragonObject.getSets().get(set).getChampions();
+            Map<String, Unit> units = new HashMap<>();
+            int nextOrdinal = 0;
+
+            for (CommunityDragonChampions champion : champions)
+            {
+                String apiName = champion.getApiName();
+                String name = champion.getName().trim();
+                int cost = champion.getCost();
+                Role role = Role.getRoleFromDisplayName(champion.getRole());
+                ChampionStats championStats = champion.getStats();
+                List<Trait> unitTraits = champion.getTraits().stream()
+                        .map(traits::get)
+                        .toList();
+
+                if (unitTraits.isEmpty())
+                    continue;
+
+                units.put(name, new Unit(apiName, name, cost, role, championStats, unitTraits, nextOrdinal++));
+            }
+            return units;
+        } catch (Exception e)
+        {
+            throw new RuntimeException("Failed to load units", e);
+        }
+    }
+
+    private static Map<String, Emblem> loadEmblems(CommunityDragonObject communityDragonObject, String set, Map<String, Trait> traits)
+    {
+        try
+        {
+            Map<String, Emblem> emblems = new HashMap<>();
+
+            for (CommunityDragonItems communityDragonItems : communityDragonObject.getItems())
+            {
+                String apiName = communityDragonItems.getApiName();
+                String name = communityDragonItems.getName();
+
+                // Skip non-emblems
+                if (!apiName.startsWith("TFT" + set) || !apiName.endsWith("EmblemItem"))
+                    continue;
+
+                String traitName = name.substring(0, name.indexOf(" Emblem"));
+                Trait trait = traits.get(traitName);
+
+                if (trait == null)
+                    throw new RuntimeException("Trait not found: " + traitName);
+
+                emblems.put(name, new Emblem(name, trait));
+            }
+            return emblems;
+        } catch (Exception e)
+        {
+            throw new RuntimeException("Failed to load emblems", e);
+        }
+    }
+
+    private static Map<Trait, List<Unit>> groupUnitsByTrait(Collection<Unit> units)
+    {
+        Map<Trait, List<Unit>> traitToUnits = new HashMap<>();
+
+        for (Unit unit : units)
+        {
+            for (Trait trait : unit.getTraits())
+            {
+                traitToUnits.computeIfAbsent(trait, k -> new ArrayList<>()).add(unit);
+            }
+        }
+
+        traitToUnits.replaceAll((trait, traitUnits) -> Collections.unmodifiableList(traitUnits));
+        return Collections.unmodifiableMap(traitToUnits);
+    }
+
+    /**
+     * Gets the version of the snapshot, every reload publishes a higher one
+     */
+    public long getVersion()
+    {
+        return version;
+    }
+
+    public String getSetNumber()
+    {
+        return setNumber;
+    }
+
+    /**
+     * Gets the traits of this snapshot, as a repository that keeps serving them after newer snapshots are published
+     */
+    public TraitRepository getTraitRepository()
+    {
+        return traitRepository;
+    }
+
+    /**
+     * Gets the units of this snapshot, as a repository that keeps serving them after newer snapshots are published
+     */
+    public UnitRepository getUnitRepository()
+    {
+        return unitRepository;
+    }
+
+    /**
+     * Gets the emblems of this snapshot, as a repository that keeps serving them after newer snapshots are published
+     */
+    public EmblemRepository getEmblemRepository()
+    {
+        return emblemRepository;
+    }
+
+    Map<String, Trait> getTraits()
+    {
+        return traits;
+    }
+
+    PrefixTrie<Trait> getTraitPrefixTrie()
+    {
+        return traitPrefixTrie;
+    }
+
+    int getTraitOrdinalCapacity()
+    {
+        return traitOrdinalCapacity;
+    }
+
+    TraitThresholdTable getThresholdTable()
+    {
+        return thresholdTable;
+    }
+
+    Map<String, Unit> getUnits()
+    {
+        return units;
+    }
+
+    PrefixTrie<Unit> getUnitPrefixTrie()
+    {
+        return unitPrefixTrie;
+    }
+
+    int getUnitOrdinalCapacity()
+    {
+        return unitOrdinalCapacity;
+    }
+
+    Map<Trait, List<Unit>> getTraitToUnits()
+    {
+        return traitToUnits;
+    }
+
+    SynergyGraph getSynergyGraph()
+    {
+        return synergyGraph;
+    }
+
+    UnitEquivalence getUnitEquivalence()
+    {
+        return unitEquivalence;
+    }
+
+    Map<String, Emblem> getEmblems()
+    {
+        return emblems;
+    }
+
+    PrefixTrie<Emblem> getEmblemPrefixTrie()
+    {
+        return emblemPrefixTrie;
+    }
+}
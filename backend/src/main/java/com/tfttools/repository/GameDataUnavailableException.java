@@ -0,0 +1,16 @@
+package com.tfttools.repository;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when the data of a set is still downloading, requests for that set can be retried once it is
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class GameDataUnavailableException extends RuntimeException
+{
+    public GameDataUnavailableException(String message)
+    {
+        super(message);
+    }
+}
@@ -1,87 +1,65 @@
 package com.tfttools.repository;
 
 import com.tfttools.domain.Trait;
-import com.tfttools.domain.communitydragon.CommunityDragonObject;
-import com.tfttools.domain.communitydragon.CommunityDragonTraitEffects;
-import com.tfttools.domain.communitydragon.CommunityDragonTraits;
-import com.tfttools.prefixtrie.PrefixTrie;
-import com.tfttools.service.TFTSetContextService;
-import jakarta.annotation.PostConstruct;
+import com.tfttools.util.TraitThresholdTable;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-
-import com.tfttools.service.CommunityDragonDataService;
 
+/**
+ * Traits of the current set, read from the game data snapshot published last. Instances pinned to a snapshot, see
+ * {@link GameDataSnapshot#getTraitRepository()}, keep serving that snapshot.
+ */
 @Component
 @DependsOn("TFTSetContextService")
 public class TraitRepository {
-    
-    private final Map<String, Trait> traits;
-
-    private final PrefixTrie<Trait> traitPrefixTrie;
 
-    private final CommunityDragonDataService dataService;
-    private final TFTSetContextService setContextService;
+    private final GameDataRepository gameDataRepository;
+    private final GameDataSnapshot pinnedSnapshot;
 
     @Autowired
-    public TraitRepository(CommunityDragonDataService dataService, TFTSetContextService setContextService) {
-        this.traits = new HashMap<>();
-
-        this.traitPrefixTrie = new PrefixTrie<>();
-
-        this.dataService = dataService;
-        this.setContextService = setContextService;
+    public TraitRepository(GameDataRepository gameDataRepository) {
+        this.gameDataRepository = gameDataRepository;
+        this.pinnedSnapshot = null;
     }
 
-    @PostConstruct
-    public void init()
-    {
-        loadTraits(setContextService.getCurrentSetNumber());
-        this.traits.values().forEach(this.traitPrefixTrie::add);
+    TraitRepository(GameDataSnapshot pinnedSnapshot) {
+        this.gameDataRepository = null;
+        this.pinnedSnapshot = pinnedSnapshot;
     }
 
-    private void loadTraits(String set) {
-        try {
-            CommunityDragonObject communityDragonObject = dataService.getCommunityDragonData();
-            List<CommunityDragonTraits> set15Traits = communityDragonObject.getSets().get(set).getTraits();
-            
-            for (CommunityDragonTraits communityDragonTrait : set15Traits) {
-                String apiName = communityDragonTrait.getApiName();
-                String name = communityDragonTrait.getName();
-                List<CommunityDragonTraitEffects> effects = communityDragonTrait.getEffects();
-
-                // Skip mechanic traits
-                if (apiName.contains("MechanicTrait")) {
-                    continue;
-                }
-                if(effects.isEmpty() && !apiName.contains("UndeterminedTrait")) //todo MF is Conduit/Challenger/Replicator
-                    continue;
+    private GameDataSnapshot snapshot() {
+        return pinnedSnapshot != null ? pinnedSnapshot : gameDataRepository.getSnapshot();
+    }
 
-                Trait trait = new Trait(apiName, name,
-                        effects.stream().mapToInt(CommunityDragonTraitEffects::getMinUnits).toArray(), 
-                        effects.stream().map(CommunityDragonTraitEffects::getStyle).toList());
-                this.traits.put(name, trait);
-            }
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to load traits", e);
-        }
+    public List<Trait> getAllTraits() {
+        return snapshot().getTraits().values().stream().toList();
     }
-    public void reloadTraits() {
 
-        loadTraits(setContextService.getCurrentSetNumber());
+    public Trait getTraitByName(String traitName) {
+        return snapshot().getTraits().get(traitName);
     }
 
-    public List<Trait> getAllTraits() {
-        return this.traits.values().stream().toList();
+    /**
+     * Gets the threshold lookup built for the loaded set
+     *
+     * @return Table indexed by trait ordinal and trait count
+     */
+    public TraitThresholdTable getThresholdTable()
+    {
+        return snapshot().getThresholdTable();
     }
 
-    public Trait getTraitByName(String traitName) {
-        return this.traits.get(traitName);
+    /**
+     * Gets the exclusive upper bound of {@link Trait#getOrdinal()} for the loaded set
+     *
+     * @return Size an array must have to be indexed by any trait ordinal
+     */
+    public int getOrdinalCapacity()
+    {
+        return snapshot().getTraitOrdinalCapacity();
     }
 
     /**
@@ -92,6 +70,6 @@ public class TraitRepository {
      */
     public List<Trait> getAllTraitsStartingWith(String prefix)
     {
-        return this.traitPrefixTrie.getAllDescendantsByPrefix(prefix);
+        return snapshot().getTraitPrefixTrie().getAllDescendantsByPrefix(prefix);
     }
 }
@@ -1,15 +1,9 @@
 package com.tfttools.repository;
 
-import com.tfttools.domain.Role;
 import com.tfttools.domain.Trait;
 import com.tfttools.domain.Unit;
-import com.tfttools.domain.communitydragon.ChampionStats;
-import com.tfttools.domain.communitydragon.CommunityDragonChampions;
-import com.tfttools.domain.communitydragon.CommunityDragonObject;
-import com.tfttools.prefixtrie.PrefixTrie;
-import com.tfttools.service.CommunityDragonDataService;
-import com.tfttools.service.TFTSetContextService;
-import jakarta.annotation.PostConstruct;
+import com.tfttools.util.SynergyGraph;
+import com.tfttools.util.UnitEquivalence;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Component;
@@ -17,96 +11,33 @@ import org.springframework.stereotype.Component;
 import java.util.*;
 
 /**
- * Repository for managing TFT Units loaded from Community Dragon data
+ * Repository for managing TFT Units loaded from Community Dragon data, read from the game data snapshot published last.
+ * Instances pinned to a snapshot, see {@link GameDataSnapshot#getUnitRepository()}, keep serving that snapshot.
  */
 @Component
 @DependsOn("TFTSetContextService")
 public class UnitRepository
 {
 
-    private final Map<String, Unit> units;
-
-    private final PrefixTrie<Unit> unitPrefixTrie;
-    private Map<Trait, List<Unit>> traitToUnits;
-
-    private final TraitRepository traitRepository;
-    private final CommunityDragonDataService dataService;
-    private final TFTSetContextService setContextService;
+    private final GameDataRepository gameDataRepository;
+    private final GameDataSnapshot pinnedSnapshot;
 
     @Autowired
-    public UnitRepository(TraitRepository traitRepository, CommunityDragonDataService dataService, TFTSetContextService setContextService)
-    {
-        this.units = new HashMap<>();
-        this.unitPrefixTrie = new PrefixTrie<>();
-
-        this.traitRepository = traitRepository;
-        this.dataService = dataService;
-        this.setContextService = setContextService;
-    }
-
-    @PostConstruct
-    public void init()
-    {
-        loadUnits(setContextService.getCurrentSetNumber());
-        this.units.values().forEach(this.unitPrefixTrie::add);
-
-        registerTraitToUnitsMapping();
-    }
-
-    private void registerTraitToUnitsMapping()
+    public UnitRepository(GameDataRepository gameDataRepository)
     {
-        Map<Trait, List<Unit>> tempTraitToUnits = new HashMap<>();
-
-        for (Unit unit : getAllUnits())
-        {
-            for (Trait trait : unit.getTraits())
-            {
-                tempTraitToUnits.computeIfAbsent(trait, k -> new ArrayList<>()).add(unit);
-            }
-        }
-
-        // Make all trait lists unmodifiable
-        tempTraitToUnits.replaceAll((trait, units) -> Collections.unmodifiableList(units));
-
-        // Now assign the immutable map
-        this.traitToUnits = Collections.unmodifiableMap(tempTraitToUnits);
+        this.gameDataRepository = gameDataRepository;
+        this.pinnedSnapshot = null;
     }
 
-
-    private void loadUnits(String set)
+    UnitRepository(GameDataSnapshot pinnedSnapshot)
     {
-        try
-        {
-            CommunityDragonObject communityDragonObject = dataService.getCommunityDragonData();
-            List<CommunityDragonChampions> units = communityDragonObject.getSets().get(set).getChampions();
-
-            for (CommunityDragonChampions champions : units)
-            {
-                String apiName = champions.getApiName();
-                String name = champions.getName().trim();
-                int cost = champions.getCost();
-                Role role = Role.getRoleFromDisplayName(champions.getRole());
-                ChampionStats championStats = champions.getStats();
-                List<Trait> traits = champions.getTraits().stream()
-                        .map(traitRepository::getTraitByName)
-                        .toList();
-
-                if (traits.isEmpty())
-                {
-                    continue;
-                }
-
-                this.units.put(name, new Unit(apiName, name, cost, role, championStats, traits));
-            }
-        } catch (Exception e)
-        {
-            throw new RuntimeException("Failed to load units", e);
-        }
+        this.gameDataRepository = null;
+        this.pinnedSnapshot = pinnedSnapshot;
     }
 
-    public void reloadUnits()
+    private GameDataSnapshot snapshot()
     {
-        loadUnits(setContextService.getCurrentSetNumber());
+        return pinnedSnapshot != null ? pinnedSnapshot : gameDataRepository.getSnapshot();
     }
 
     /**
@@ -116,7 +47,7 @@ public class UnitRepository
      */
     public List<Unit> getUnitsByTrait(Trait trait)
     {
-        return traitToUnits.getOrDefault(trait, Collections.emptyList());
+        return snapshot().getTraitToUnits().getOrDefault(trait, Collections.emptyList());
     }
 
     /**
@@ -126,21 +57,51 @@ public class UnitRepository
      */
     public List<Unit> getUnitsByTrait(Trait trait, Set<Unit> availableUnits)
     {
-        return traitToUnits.getOrDefault(trait, Collections.emptyList())
+        return snapshot().getTraitToUnits().getOrDefault(trait, Collections.emptyList())
                 .stream()
                 .filter(availableUnits::contains)
                 .toList();
     }
 
+    /**
+     * Gets the unit–trait graph of the loaded set
+     *
+     * @return The synergy graph, built with every snapshot
+     */
+    public SynergyGraph getSynergyGraph()
+    {
+        return snapshot().getSynergyGraph();
+    }
+
+
+    /**
+     * Gets the units of the loaded set grouped by the traits they carry
+     *
+     * @return The grouping, built with every snapshot
+     */
+    public UnitEquivalence getUnitEquivalence()
+    {
+        return snapshot().getUnitEquivalence();
+    }
 
     public Unit getUnitByName(String unit)
     {
-        return this.units.get(unit);
+        return snapshot().getUnits().get(unit);
     }
 
     public Set<Unit> getAllUnits()
     {
-        return new HashSet<>(this.units.values());
+        return new HashSet<>(snapshot().getUnits().values());
+    }
+
+    /**
+     * Gets the exclusive upper bound of {@link Unit#getOrdinal()} for the loaded set
+     *
+     * @return Number of bits a unit mask needs to address any unit ordinal
+     */
+    public int getOrdinalCapacity()
+    {
+        return snapshot().getUnitOrdinalCapacity();
     }
 
     /**
@@ -151,7 +112,7 @@ public class UnitRepository
      */
     public List<Unit> getAllChampionsStartingWith(String prefix)
     {
-        return this.unitPrefixTrie.getAllDescendantsByPrefix(prefix);
+        return snapshot().getUnitPrefixTrie().getAllDescendantsByPrefix(prefix);
     }
 
 }
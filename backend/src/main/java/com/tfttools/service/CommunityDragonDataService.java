@@ -4,26 +4,56 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategies;
 import com.tfttools.domain.communitydragon.TeamPlannerData;
+import com.tfttools.web.client.CommunityDragonDataReader;
 import com.tfttools.web.client.CommunityDragonWebClient;
 import com.tfttools.domain.communitydragon.CommunityDragonObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.time.Duration;
+import java.nio.file.Path;
 import java.time.Instant;
-
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Serves the Community Dragon data of the current patch. Only the first load blocks its caller: afterwards the data is
+ * revalidated in the background on a jittered schedule, with a conditional request, while callers keep being served the
+ * data held. A single refresh runs at a time and every caller asking for one joins it. Failed refreshes are retried with
+ * exponential backoff, keeping the data held, or the local fallback when nothing could be loaded yet.
+ * Every download of the current set is also written to a snapshot file, which the next boot serves from while the data
+ * is revalidated in the background.
+ */
 @Service
 public class CommunityDragonDataService {
 
     private static final Logger logger = LoggerFactory.getLogger(CommunityDragonDataService.class);
-    private static final String FALLBACK_RESOURCE_PATH = "/com/tfttools/domain/repository/communitydragon/en_us.json";
+    public static final String FALLBACK_RESOURCE_PATH = "/com/tfttools/domain/repository/communitydragon/en_us.json";
 
     @Value("${tft.communitydragon.cache.duration.hours:1}")
     private int cacheDurationHours;
@@ -31,135 +61,468 @@ public class CommunityDragonDataService {
     @Value("${tft.communitydragon.fallback.enabled:true}")
     private boolean fallbackEnabled;
 
+    @Value("${tft.communitydragon.refresh.jitter:0.1}")
+    private double refreshJitter;
+
+    @Value("${tft.communitydragon.refresh.backoff.initial-ms:30000}")
+    private long initialBackoffMs;
+
+    @Value("${tft.communitydragon.refresh.backoff.max-ms:1800000}")
+    private long maxBackoffMs;
+
+    @Value("${tft.communitydragon.snapshot.enabled:true}")
+    private boolean snapshotEnabled;
+
+    @Value("${tft.communitydragon.snapshot.path:cache/community-dragon.snapshot}")
+    private String snapshotPath;
+
+    @Value("${tft.communitydragon.set-cache.path:cache/sets}")
+    private String setCachePath;
+
     private final TFTSetContextService setContextService;
 
     private final CommunityDragonWebClient webClient;
 
-    private CommunityDragonObject cachedData;
-    private TeamPlannerData cachedTeamPlannerData;
+    private final ScheduledExecutorService refreshScheduler;
+    private final AtomicReference<CompletableFuture<CachedData>> inFlightRefresh = new AtomicReference<>();
+    private ScheduledFuture<?> scheduledRefresh;
+    private volatile int consecutiveFailures;
+    private final List<Runnable> dataChangeListeners = new CopyOnWriteArrayList<>();
+    private final List<Consumer<String>> setDataListeners = new CopyOnWriteArrayList<>();
+    // Sets other than the one held that are downloading on the refresh thread
+    private final Set<String> setDownloads = ConcurrentHashMap.newKeySet();
 
-    private Instant lastFetchTime;
-    private String lastModified;
+    private volatile CachedData cachedData;
+    private volatile TeamPlannerData cachedTeamPlannerData;
+    // Snapshots only hold the team planner champions of their set
+    private volatile boolean teamPlannerDataPartial;
 
     @Autowired
     public CommunityDragonDataService(CommunityDragonWebClient webClient, TFTSetContextService setContextService)
     {
         this.webClient = webClient;
         this.setContextService = setContextService;
+        this.refreshScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "community-dragon-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Serves the data of the snapshot written by a previous run, if there is a valid one, and revalidates it in the
+     * background right away
+     */
+    @PostConstruct
+    public void loadSnapshot() {
+        if (!snapshotEnabled) {
+            return;
+        }
+
+        try {
+            CommunityDragonSnapshot snapshot = CommunityDragonSnapshot.read(Path.of(snapshotPath));
+            if (snapshot == null) {
+                logger.info("No Community Dragon snapshot at {}, loading from the network", snapshotPath);
+                return;
+            }
+
+            cachedData = new CachedData(snapshot.data(), snapshot.setNumber(), snapshot.fetchTime(), snapshot.lastModified());
+            cachedTeamPlannerData = snapshot.teamPlannerData();
+            teamPlannerDataPartial = true;
+            logger.info("Loaded Community Dragon data of set {} from snapshot fetched at {}", snapshot.setNumber(), snapshot.fetchTime());
+
+            refreshAsync(true);
+        } catch (IOException e) {
+            logger.warn("Ignoring Community Dragon snapshot at {}: {}", snapshotPath, e.getMessage());
+        }
     }
 
+    /**
+     * Registers a listener run on the refresh thread whenever a background refresh replaced the data held with data
+     * that changed, so whatever was built from the previous data can be rebuilt
+     */
+    public void addDataChangeListener(Runnable listener) {
+        dataChangeListeners.add(listener);
+    }
+
+    /**
+     * Registers a listener run on the refresh thread with the number of a set whenever a download kept new data of it,
+     * so whatever was built from the data served before can be dropped
+     */
+    public void addSetDataListener(Consumer<String> listener) {
+        setDataListeners.add(listener);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshScheduler.shutdownNow();
+    }
+
+    /**
+     * Gets the data held, waiting for it only if nothing was loaded yet
+     */
     public CommunityDragonObject getCommunityDragonData() {
-        if (shouldRefreshCache()) {
-            refreshCache();
+        CachedData current = cachedData;
+        if (current != null) {
+            return current.data;
         }
-        return cachedData;
+        return awaitRefresh().data;
+    }
+
+    /**
+     * Refreshes the data now and waits for it, joining the refresh already running if there is one
+     *
+     * @return The refreshed data, or the data held if the refresh failed
+     */
+    public CommunityDragonObject refreshCommunityDragonData() {
+        return awaitRefresh().data;
     }
 
     private boolean shouldRefreshCache() {
-        if (cachedData == null || lastFetchTime == null) {
+        CachedData current = cachedData;
+        if (current == null || current.fetchTime == null) {
             return true;
         }
 
-        Duration timeSinceLastFetch = Duration.between(lastFetchTime, Instant.now());
+        Duration timeSinceLastFetch = Duration.between(current.fetchTime, Instant.now());
         return timeSinceLastFetch.toHours() >= cacheDurationHours;
     }
 
-    private void refreshCache() {
+    private CachedData awaitRefresh() {
+        try {
+            return refreshAsync(false).join();
+        } catch (CompletionException e) {
+            throw new RuntimeException("Failed to load Community Dragon data", e.getCause());
+        }
+    }
+
+    /**
+     * Starts a refresh on the refresh thread, or gets the one already running
+     *
+     * @param background Whether nobody waits for the refresh, data change listeners are only run for those
+     */
+    private CompletableFuture<CachedData> refreshAsync(boolean background) {
+        CompletableFuture<CachedData> refresh = new CompletableFuture<>();
+        CompletableFuture<CachedData> running = inFlightRefresh.compareAndExchange(null, refresh);
+        if (running != null) {
+            return running;
+        }
+
+        try {
+            refreshScheduler.execute(() -> refreshCache(refresh, background));
+        } catch (RejectedExecutionException e) {
+            inFlightRefresh.set(null);
+            refresh.completeExceptionally(e);
+        }
+        return refresh;
+    }
+
+    private void refreshCache(CompletableFuture<CachedData> refresh, boolean background) {
         try {
             logger.info("Refreshing Community Dragon data cache");
 
-            CommunityDragonObject freshData = fetchFromWebClient();
+            CachedData previous = cachedData;
+            CachedData refreshed = fetchFromWebClient(previous);
+            boolean changed = previous == null || refreshed.data != previous.data;
+            if (changed && background) {
+                // A new patch usually comes with new team planner codes
+                TeamPlannerData teamPlannerData = fetchTeamPlannerData();
+                if (teamPlannerData != null) {
+                    cachedTeamPlannerData = teamPlannerData;
+                    teamPlannerDataPartial = false;
+                }
+            }
+            cachedData = refreshed;
+            consecutiveFailures = 0;
+            logger.info("Successfully refreshed Community Dragon data cache");
+
+            if (changed) {
+                writeSnapshot(refreshed);
+            }
+            scheduleRefresh(jitter(Duration.ofHours(cacheDurationHours)));
+            finishRefresh(refresh, refreshed, null);
 
-            if (freshData != null) {
-                cachedData = freshData;
-                lastFetchTime = Instant.now();
-                logger.info("Successfully refreshed Community Dragon data cache");
-            } else if (fallbackEnabled && cachedData == null) {
-                logger.warn("Failed to fetch from web client, loading from local fallback");
-                cachedData = loadFromLocalResource();
-                lastFetchTime = Instant.now();
+            if (changed && background && previous != null) {
+                notifyDataChanged();
             }
 
         } catch (Exception e) {
-            logger.error("Error refreshing cache", e);
+            int failures = ++consecutiveFailures;
+            Duration backoff = jitter(backoff(failures));
+            if (failures == 1) {
+                logger.error("Error refreshing cache, retrying in {}", backoff, e);
+            } else {
+                logger.warn("Error refreshing cache, attempt {} failed, retrying in {}: {}", failures, backoff, e.getMessage());
+            }
 
             if (fallbackEnabled && cachedData == null) {
                 try {
                     logger.info("Loading Community Dragon data from local fallback");
                     cachedData = loadFromLocalResource();
-                    lastFetchTime = Instant.now();
                 } catch (IOException ioException) {
                     logger.error("Failed to load from local fallback", ioException);
-                    throw new RuntimeException("Failed to load Community Dragon data", ioException);
                 }
-            } else if (cachedData == null) {
-                throw new RuntimeException("Failed to load Community Dragon data and no fallback available", e);
             }
+
+            scheduleRefresh(backoff);
+            finishRefresh(refresh, cachedData, e);
         }
     }
 
-    private CommunityDragonObject fetchFromWebClient() {
-        try {
-            logger.debug("Fetching Community Dragon data using web client");
+    // Callers asking for a refresh once this one completes start a new one instead of joining it
+    private void finishRefresh(CompletableFuture<CachedData> refresh, CachedData result, Exception failure) {
+        inFlightRefresh.compareAndSet(refresh, null);
+        if (result != null) {
+            refresh.complete(result);
+        } else {
+            refresh.completeExceptionally(failure);
+        }
+    }
 
-            Mono<CommunityDragonObject> responseMono;
+    private void notifyDataChanged() {
+        for (Runnable listener : dataChangeListeners) {
+            try {
+                listener.run();
+            } catch (Exception e) {
+                logger.error("Community Dragon data change listener failed", e);
+            }
+        }
+    }
 
-            // Use conditional fetch if we have lastModified header
-            if (lastModified != null && !lastModified.isEmpty()) {
-                responseMono = webClient.fetchDataIfModified(lastModified);
-            } else {
-                responseMono = webClient.fetchData();
+    private void notifySetDataKept(String setNumber) {
+        for (Consumer<String> listener : setDataListeners) {
+            try {
+                listener.accept(setNumber);
+            } catch (Exception e) {
+                logger.error("Community Dragon set data listener failed", e);
             }
+        }
+    }
 
-            CommunityDragonObject result = responseMono
-                    .onErrorResume(ex -> {
-                        logger.error("Error fetching from web client: {}\n\n{}", ex.getMessage(), ex.getStackTrace());
-                        return Mono.empty();
-                    })
-                    .block();
+    private void writeSnapshot(CachedData data) {
+        if (!snapshotEnabled || data.setNumber == null || data.data.getSets().get(data.setNumber) == null) {
+            return;
+        }
 
-            if (result != null) {
-                logger.debug("Successfully fetched Community Dragon data");
-                return result;
-            }
+        TeamPlannerData teamPlannerData = getTeamPlannerData();
+        if (teamPlannerData == null || teamPlannerData.getSetData("TFTSet" + data.setNumber) == null) {
+            logger.warn("No team planner data for set {}, not writing a snapshot", data.setNumber);
+            return;
+        }
 
-            // If result is null (304 Not Modified or error), return existing cache
-            return cachedData;
+        try {
+            new CommunityDragonSnapshot(data.setNumber, data.fetchTime, data.lastModified, data.data, teamPlannerData)
+                    .write(Path.of(snapshotPath));
+            logger.debug("Wrote Community Dragon snapshot of set {} to {}", data.setNumber, snapshotPath);
+        } catch (IOException e) {
+            logger.warn("Failed to write Community Dragon snapshot to {}", snapshotPath, e);
+        }
+    }
 
-        } catch (Exception e) {
-            logger.error("Failed to fetch Community Dragon data from web client", e);
-            return null;
+    private synchronized void scheduleRefresh(Duration delay) {
+        if (scheduledRefresh != null) {
+            scheduledRefresh.cancel(false);
+        }
+        try {
+            scheduledRefresh = refreshScheduler.schedule(() -> refreshAsync(true), delay.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Refresh scheduler shut down, not scheduling the next refresh");
+        }
+    }
+
+    private Duration backoff(int failures) {
+        long backoffMs = initialBackoffMs << Math.min(failures - 1, 30);
+        return Duration.ofMillis(backoffMs <= 0 ? maxBackoffMs : Math.min(backoffMs, maxBackoffMs));
+    }
+
+    // Spreads refreshes of several instances so they do not all hit Community Dragon at once
+    private Duration jitter(Duration delay) {
+        double factor = 1 + refreshJitter * ThreadLocalRandom.current().nextDouble(-1, 1);
+        return Duration.ofMillis(Math.max(0, (long) (delay.toMillis() * factor)));
+    }
+
+    /**
+     * Downloads the data of the current set, or only revalidates the data held when it was downloaded for the same set
+     * with a Last-Modified header
+     */
+    private CachedData fetchFromWebClient(CachedData current) {
+        logger.debug("Fetching Community Dragon data using web client");
+
+        String setNumber = getCurrentSetNumber();
+        String lastModified = current == null || !Objects.equals(current.setNumber, setNumber) ? null : current.lastModified;
+        ResponseEntity<CommunityDragonObject> response = webClient.fetchDataIfModified(lastModified, setNumber).block();
+        if (response == null) {
+            throw new IllegalStateException("No response from Community Dragon");
+        }
+
+        if (response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED) && current != null) {
+            logger.debug("Community Dragon data not modified since {}", lastModified);
+            return new CachedData(current.data, setNumber, Instant.now(), current.lastModified);
+        }
+        if (response.getBody() == null) {
+            throw new IllegalStateException("Empty response from Community Dragon, status " + response.getStatusCode());
         }
+
+        logger.debug("Successfully fetched Community Dragon data");
+        return new CachedData(response.getBody(), setNumber, Instant.now(), response.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED));
+    }
+
+    private CachedData loadFromLocalResource() throws IOException {
+        String setNumber = getCurrentSetNumber();
+        return new CachedData(readLocalResource(setNumber), setNumber, null, null);
     }
 
-    private CommunityDragonObject loadFromLocalResource() throws IOException {
+    private CommunityDragonObject readLocalResource(String setNumber) throws IOException {
         logger.debug("Loading Community Dragon data from local resource: {}", FALLBACK_RESOURCE_PATH);
 
         ClassPathResource resource = new ClassPathResource(FALLBACK_RESOURCE_PATH);
         try (InputStream inputStream = resource.getInputStream()) {
-            ObjectMapper mapper = CommunityDragonWebClient.createCommunityDragonObjectMapper();
-            return mapper.readValue(inputStream, CommunityDragonObject.class);
+            return CommunityDragonDataReader.read(inputStream, setNumber);
         }
     }
 
     /**
-     * Forces a refresh of the cached data on the next call to getCommunityDragonData()
+     * Gets the data of a set without waiting for the network: the data held if it is of that set, or the data of the
+     * set as kept on disk by an earlier download. When the kept data is older than the data held, or there is none, a
+     * download of the set is started on the refresh thread, at most one per set however many callers ask, and the kept
+     * data is served meanwhile.
+     *
+     * @return The data of the set, null while it is downloading for the first time
+     * @throws IllegalArgumentException If the set is unknown
+     */
+    public CommunityDragonObject getSetDataIfAvailable(String setNumber) {
+        CachedData current = cachedData;
+        if (current != null && current.data.getSets().containsKey(setNumber)) {
+            return current.data;
+        }
+        // Checked against the much smaller team planner data first, so unknown sets never cause a download
+        if (getTeamPlannerData(setNumber) == null) {
+            throw new IllegalArgumentException("Unknown set: " + setNumber);
+        }
+
+        CommunityDragonSnapshot kept = readSetData(setNumber);
+        if (kept != null && isFresh(kept, current)) {
+            return kept.data();
+        }
+
+        if (setDownloads.add(setNumber)) {
+            try {
+                refreshScheduler.execute(() -> downloadSetData(setNumber));
+            } catch (RejectedExecutionException e) {
+                setDownloads.remove(setNumber);
+            }
+        }
+        return kept == null ? null : kept.data();
+    }
+
+    // Data of a set downloaded along with the data held, or within the cache duration, is as recent as there is
+    private boolean isFresh(CommunityDragonSnapshot kept, CachedData current) {
+        if (current != null && current.lastModified != null && current.lastModified.equals(kept.lastModified())) {
+            return true;
+        }
+        return kept.fetchTime() != null && Duration.between(kept.fetchTime(), Instant.now()).toHours() < cacheDurationHours;
+    }
+
+    private CommunityDragonSnapshot readSetData(String setNumber) {
+        try {
+            return CommunityDragonSnapshot.read(getSetDataPath(setNumber));
+        } catch (IOException e) {
+            logger.warn("Ignoring kept data of set {}: {}", setNumber, e.getMessage());
+            return null;
+        }
+    }
+
+    private Path getSetDataPath(String setNumber) {
+        return Path.of(setCachePath, "set-" + setNumber + ".snapshot");
+    }
+
+    private void downloadSetData(String setNumber) {
+        try {
+            CommunityDragonObject data;
+            String lastModified = null;
+            try {
+                logger.info("Downloading Community Dragon data of set {}", setNumber);
+                ResponseEntity<CommunityDragonObject> response = webClient.fetchDataIfModified(null, setNumber).block();
+                if (response == null || response.getBody() == null) {
+                    throw new IllegalStateException("Empty response from Community Dragon");
+                }
+                data = response.getBody();
+                lastModified = response.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED);
+            } catch (RuntimeException e) {
+                if (!fallbackEnabled) {
+                    throw e;
+                }
+                logger.warn("Failed to download data of set {}, loading it from local fallback: {}", setNumber, e.getMessage());
+                data = readLocalResource(setNumber);
+            }
+
+            TeamPlannerData teamPlannerData = getTeamPlannerData(setNumber);
+            if (data.getSets().get(setNumber) == null || teamPlannerData == null) {
+                logger.warn("No data for set {} in the download", setNumber);
+                return;
+            }
+            new CommunityDragonSnapshot(setNumber, Instant.now(), lastModified, data, teamPlannerData)
+                    .write(getSetDataPath(setNumber));
+            logger.info("Kept Community Dragon data of set {} at {}", setNumber, getSetDataPath(setNumber));
+            notifySetDataKept(setNumber);
+        } catch (Exception e) {
+            logger.error("Failed to download data of set {}", setNumber, e);
+        } finally {
+            setDownloads.remove(setNumber);
+        }
+    }
+
+    // Only the current set is kept once it is known, until then the set held is kept, or every set if none is
+    private String getCurrentSetNumber() {
+        String setNumber = setContextService == null ? null : setContextService.getCurrentSetNumber();
+        if (setNumber != null) {
+            return setNumber;
+        }
+        CachedData current = cachedData;
+        return current == null ? null : current.setNumber;
+    }
+
+    /**
+     * Marks the cached data as expired, so the next refresh downloads it in full. The data held is still served until
+     * then, call refreshCommunityDragonData() to refresh it right away.
      */
     public void invalidateCache() {
-        logger.info("Cache invalidated, will refresh on next request");
-        cachedData = null;
+        logger.info("Cache invalidated, will download the data in full on next refresh");
+        CachedData current = cachedData;
+        if (current != null) {
+            cachedData = new CachedData(current.data, current.setNumber, null, null);
+        }
         cachedTeamPlannerData = null;
-        lastFetchTime = null;
-        lastModified = null;
     }
 
     public TeamPlannerData getTeamPlannerData() {
         if (cachedTeamPlannerData == null) {
             cachedTeamPlannerData = fetchTeamPlannerData();
+            teamPlannerDataPartial = false;
         }
         return cachedTeamPlannerData;
     }
 
+    /**
+     * Gets the team planner data holding the champions of a set, fetching it in full if only the data of another set
+     * was loaded from a snapshot
+     *
+     * @return The data, or null if it has no champions for the set
+     */
+    public TeamPlannerData getTeamPlannerData(String setNumber) {
+        String setKey = "TFTSet" + setNumber;
+        TeamPlannerData data = getTeamPlannerData();
+        if ((data == null || data.getSetData(setKey) == null) && teamPlannerDataPartial) {
+            TeamPlannerData fetched = fetchTeamPlannerData();
+            if (fetched != null) {
+                cachedTeamPlannerData = fetched;
+                teamPlannerDataPartial = false;
+                data = fetched;
+            }
+        }
+        return data == null || data.getSetData(setKey) == null ? null : data;
+    }
+
     private TeamPlannerData fetchTeamPlannerData() {
         try {
             logger.debug("Fetching Team Planner data using web client");
@@ -191,8 +554,30 @@ public class CommunityDragonDataService {
      * Returns information about the current cache status
      */
     public CacheStatus getCacheStatus() {
+        CachedData current = cachedData;
         boolean needsRefresh = shouldRefreshCache();
-        return new CacheStatus(cachedData != null, lastFetchTime, lastModified, needsRefresh);
+        return current == null ?
+                new CacheStatus(false, null, null, needsRefresh, inFlightRefresh.get() != null, consecutiveFailures) :
+                new CacheStatus(true, current.fetchTime, current.lastModified, needsRefresh,
+                        inFlightRefresh.get() != null, consecutiveFailures);
+    }
+
+    /**
+     * Data held, with the set it was read for, null for every set, and when it was last downloaded or revalidated,
+     * null for the local fallback
+     */
+    private static final class CachedData {
+        private final CommunityDragonObject data;
+        private final String setNumber;
+        private final Instant fetchTime;
+        private final String lastModified;
+
+        private CachedData(CommunityDragonObject data, String setNumber, Instant fetchTime, String lastModified) {
+            this.data = data;
+            this.setNumber = setNumber;
+            this.fetchTime = fetchTime;
+            this.lastModified = lastModified;
+        }
     }
 
     public static class CacheStatus {
@@ -200,17 +585,24 @@ public class CommunityDragonDataService {
         private final Instant lastFetchTime;
         private final String lastModified;
         private final boolean needsRefresh;
+        private final boolean refreshing;
+        private final int consecutiveFailures;
 
-        public CacheStatus(boolean hasCachedData, Instant lastFetchTime, String lastModified, boolean needsRefresh) {
+        public CacheStatus(boolean hasCachedData, Instant lastFetchTime, String lastModified, boolean needsRefresh,
+                           boolean refreshing, int consecutiveFailures) {
             this.hasCachedData = hasCachedData;
             this.lastFetchTime = lastFetchTime;
             this.lastModified = lastModified;
             this.needsRefresh = needsRefresh;
+            this.refreshing = refreshing;
+            this.consecutiveFailures = consecutiveFailures;
         }
 
         public boolean hasCachedData() { return hasCachedData; }
         public Instant getLastFetchTime() { return lastFetchTime; }
         public String getLastModified() { return lastModified; }
         public boolean needsRefresh() { return needsRefresh; }
+        public boolean isRefreshing() { return refreshing; }
+        public int getConsecutiveFailures() { return consecutiveFailures; }
     }
 }
\ No newline at end of file
@@ -0,0 +1,316 @@
+package com.tfttools.service;
+
+import com.tfttools.domain.communitydragon.ChampionStats;
+import com.tfttools.domain.communitydragon.CommunityDragonChampions;
+import com.tfttools.domain.communitydragon.CommunityDragonItems;
+import com.tfttools.domain.communitydragon.CommunityDragonObject;
+import com.tfttools.domain.communitydragon.CommunityDragonSet;
+import com.tfttools.domain.communitydragon.CommunityDragonTraitEffects;
+import com.tfttools.domain.communitydragon.CommunityDragonTraits;
+import com.tfttools.domain.communitydragon.TeamPlannerChampion;
+import com.tfttools.domain.communitydragon.TeamPlannerData;
+import com.tfttools.domain.communitydragon.TeamPlannerTrait;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * The Community Dragon and team planner data of one set, as written to disk after a download so the next boot can
+ * load the repositories from it without going to the network.
+ * The file holds a magic number and format version, the length of the payload, the payload and its CRC32. Files of
+ * another version or with a wrong checksum are rejected, and the data is downloaded again instead.
+ *
+ * @param setNumber       Set the data was read for
+ * @param fetchTime       When the data was last downloaded or revalidated
+ * @param lastModified    Last-Modified header of the download, null if there was none
+ * @param data            Champions and traits of the set, with its emblem items
+ * @param teamPlannerData Team planner champions of the set
+ */
+public record CommunityDragonSnapshot(String setNumber, Instant fetchTime, String lastModified,
+                                      CommunityDragonObject data, TeamPlannerData teamPlannerData) {
+
+    private static final int MAGIC = 0x54465453; // "TFTS"
+    private static final int VERSION = 1;
+
+    /**
+     * Reads the snapshot at the path
+     *
+     * @return The snapshot, null if there is no file at the path
+     * @throws IOException When the file cannot be read, is of another version or is corrupted
+     */
+    public static CommunityDragonSnapshot read(Path path) throws IOException {
+        byte[] file;
+        try {
+            file = Files.readAllBytes(path);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+
+        DataInputStream header = new DataInputStream(new ByteArrayInputStream(file));
+        if (header.readInt() != MAGIC) {
+            throw new IOException("Not a snapshot file: " + path);
+        }
+        int version = header.readInt();
+        if (version != VERSION) {
+            throw new IOException("Snapshot version " + version + " is not supported, expected " + VERSION);
+        }
+
+        int payloadLength = header.readInt();
+        if (payloadLength < 0 || payloadLength > header.available()) {
+            throw new IOException("Snapshot truncated: " + path);
+        }
+        byte[] payload = header.readNBytes(payloadLength);
+        CRC32 checksum = new CRC32();
+        checksum.update(payload);
+        if (header.readLong() != checksum.getValue()) {
+            throw new IOException("Snapshot checksum mismatch: " + path);
+        }
+
+        return readPayload(new DataInputStream(new ByteArrayInputStream(payload)));
+    }
+
+    /**
+     * Writes the snapshot to the path, replacing the file there at once so a concurrent reader never sees half of it
+     */
+    public void write(Path path) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        writePayload(new DataOutputStream(payload));
+        CRC32 checksum = new CRC32();
+        checksum.update(payload.toByteArray());
+
+        ByteArrayOutputStream file = new ByteArrayOutputStream(payload.size() + 20);
+        DataOutputStream out = new DataOutputStream(file);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(payload.size());
+        payload.writeTo(out);
+        out.writeLong(checksum.getValue());
+
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporary, file.toByteArray());
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private void writePayload(DataOutputStream out) throws IOException {
+        out.writeUTF(setNumber);
+        out.writeLong(fetchTime == null ? -1 : fetchTime.toEpochMilli());
+        writeNullable(out, lastModified);
+
+        CommunityDragonSet set = data.getSets().get(setNumber);
+        writeList(out, set.getChampions(), CommunityDragonSnapshot::writeChampion);
+        writeList(out, set.getTraits(), CommunityDragonSnapshot::writeTrait);
+        writeList(out, data.getItems(), CommunityDragonSnapshot::writeItem);
+
+        String setKey = "TFTSet" + setNumber;
+        out.writeUTF(setKey);
+        writeList(out, teamPlannerData.getSetData(setKey), CommunityDragonSnapshot::writeTeamPlannerChampion);
+    }
+
+    private static CommunityDragonSnapshot readPayload(DataInputStream in) throws IOException {
+        String setNumber = in.readUTF();
+        long fetchMillis = in.readLong();
+        String lastModified = readNullable(in);
+
+        CommunityDragonSet set = new CommunityDragonSet();
+        set.setChampions(readList(in, CommunityDragonSnapshot::readChampion));
+        set.setTraits(readList(in, CommunityDragonSnapshot::readTrait));
+
+        Map<String, CommunityDragonSet> sets = new HashMap<>();
+        sets.put(setNumber, set);
+        CommunityDragonObject data = new CommunityDragonObject();
+        data.setSets(sets);
+        data.setItems(readList(in, CommunityDragonSnapshot::readItem));
+
+        TeamPlannerData teamPlannerData = new TeamPlannerData();
+        String setKey = in.readUTF();
+        teamPlannerData.setDynamicProperty(setKey, readList(in, CommunityDragonSnapshot::readTeamPlannerChampion));
+
+        return new CommunityDragonSnapshot(setNumber, fetchMillis < 0 ? null : Instant.ofEpochMilli(fetchMillis),
+                lastModified, data, teamPlannerData);
+    }
+
+    private static void writeChampion(DataOutputStream out, CommunityDragonChampions champion) throws IOException {
+        writeNullable(out, champion.getApiName());
+        writeNullable(out, champion.getCharacterName());
+        out.writeInt(champion.getCost());
+        writeNullable(out, champion.getName());
+        writeNullable(out, champion.getRole());
+
+        ChampionStats stats = champion.getStats();
+        out.writeBoolean(stats != null);
+        if (stats != null) {
+            out.writeInt(stats.getArmor());
+            out.writeInt(stats.getAttackSpeed());
+            out.writeInt(stats.getCritChance());
+            out.writeInt(stats.getCritMultiplier());
+            out.writeInt(stats.getDamage());
+            out.writeInt(stats.getHp());
+            out.writeInt(stats.getInitialMana());
+            out.writeInt(stats.getMagicResist());
+            out.writeInt(stats.getMana());
+            out.writeInt(stats.getRange());
+        }
+        writeList(out, champion.getTraits(), DataOutputStream::writeUTF);
+    }
+
+    private static CommunityDragonChampions readChampion(DataInputStream in) throws IOException {
+        CommunityDragonChampions champion = new CommunityDragonChampions();
+        champion.setApiName(readNullable(in));
+        champion.setCharacterName(readNullable(in));
+        champion.setCost(in.readInt());
+        champion.setName(readNullable(in));
+        champion.setRole(readNullable(in));
+
+        if (in.readBoolean()) {
+            ChampionStats stats = new ChampionStats();
+            stats.setArmor(in.readInt());
+            stats.setAttackSpeed(in.readInt());
+            stats.setCritChance(in.readInt());
+            stats.setCritMultiplier(in.readInt());
+            stats.setDamage(in.readInt());
+            stats.setHp(in.readInt());
+            stats.setInitialMana(in.readInt());
+            stats.setMagicResist(in.readInt());
+            stats.setMana(in.readInt());
+            stats.setRange(in.readInt());
+            champion.setStats(stats);
+        }
+        champion.setTraits(readList(in, DataInput::readUTF));
+        return champion;
+    }
+
+    private static void writeTrait(DataOutputStream out, CommunityDragonTraits trait) throws IOException {
+        writeNullable(out, trait.getApiName());
+        writeNullable(out, trait.getName());
+        writeList(out, trait.getEffects(), (effectOut, effect) -> {
+            effectOut.writeInt(effect.getMinUnits());
+            effectOut.writeInt(effect.getMaxUnits());
+            effectOut.writeInt(effect.getStyle());
+        });
+    }
+
+    private static CommunityDragonTraits readTrait(DataInputStream in) throws IOException {
+        CommunityDragonTraits trait = new CommunityDragonTraits();
+        trait.setApiName(readNullable(in));
+        trait.setName(readNullable(in));
+        trait.setEffects(readList(in, effectIn -> {
+            CommunityDragonTraitEffects effect = new CommunityDragonTraitEffects();
+            effect.setMinUnits(effectIn.readInt());
+            effect.setMaxUnits(effectIn.readInt());
+            effect.setStyle(effectIn.readInt());
+            return effect;
+        }));
+        return trait;
+    }
+
+    private static void writeItem(DataOutputStream out, CommunityDragonItems item) throws IOException {
+        writeNullable(out, item.getApiName());
+        writeNullable(out, item.getName());
+        writeList(out, item.getIncompatibleTraits(), DataOutputStream::writeUTF);
+    }
+
+    private static CommunityDragonItems readItem(DataInputStream in) throws IOException {
+        CommunityDragonItems item = new CommunityDragonItems();
+        item.setApiName(readNullable(in));
+        item.setName(readNullable(in));
+        item.setIncompatibleTraits(readList(in, DataInput::readUTF));
+        return item;
+    }
+
+    private static void writeTeamPlannerChampion(DataOutputStream out, TeamPlannerChampion champion) throws IOException {
+        writeNullable(out, champion.getCharacterId());
+        out.writeInt(champion.getTeamPlannerCode());
+        writeNullable(out, champion.getDisplayName());
+        out.writeInt(champion.getTier());
+        writeNullable(out, champion.getPath());
+        writeNullable(out, champion.getSquareIconPath());
+        writeNullable(out, champion.getSquareSplashIconPath());
+        writeList(out, champion.getTraits(), (traitOut, trait) -> {
+            writeNullable(traitOut, trait.getName());
+            writeNullable(traitOut, trait.getId());
+            traitOut.writeInt(trait.getAmount());
+        });
+    }
+
+    private static TeamPlannerChampion readTeamPlannerChampion(DataInputStream in) throws IOException {
+        TeamPlannerChampion champion = new TeamPlannerChampion();
+        champion.setCharacterId(readNullable(in));
+        champion.setTeamPlannerCode(in.readInt());
+        champion.setDisplayName(readNullable(in));
+        champion.setTier(in.readInt());
+        champion.setPath(readNullable(in));
+        champion.setSquareIconPath(readNullable(in));
+        champion.setSquareSplashIconPath(readNullable(in));
+        champion.setTraits(readList(in, traitIn -> {
+            TeamPlannerTrait trait = new TeamPlannerTrait();
+            trait.setName(readNullable(traitIn));
+            trait.setId(readNullable(traitIn));
+            trait.setAmount(traitIn.readInt());
+            return trait;
+        }));
+        return champion;
+    }
+
+    private interface Writer<T> {
+        void write(DataOutputStream out, T value) throws IOException;
+    }
+
+    private interface Reader<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+    // Null lists are written as a count of -1
+    private static <T> void writeList(DataOutputStream out, List<T> values, Writer<T> writer) throws IOException {
+        if (values == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(values.size());
+        for (T value : values) {
+            writer.write(out, value);
+        }
+    }
+
+    private static <T> List<T> readList(DataInputStream in, Reader<T> reader) throws IOException {
+        int size = in.readInt();
+        if (size < 0) {
+            return null;
+        }
+        List<T> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(reader.read(in));
+        }
+        return values;
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,151 @@
+package com.tfttools.service;
+
+import com.tfttools.domain.EngineConfiguration;
+import com.tfttools.domain.Nameable;
+import com.tfttools.dto.CompositionDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded LRU cache of generated compositions, keyed by the set and a canonical form of the {@link EngineConfiguration}.
+ * Every invalidation starts a new generation, so results computed against data that was refreshed meanwhile are
+ * dropped instead of being cached.
+ */
+@Component
+public class CompositionResultCache
+{
+    private final int maxEntries;
+    private final LinkedHashMap<String, List<CompositionDTO>> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private long generation;
+
+    public CompositionResultCache(@Value("${tft.engine.result-cache.max-entries:512}") int maxEntries)
+    {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<CompositionDTO>> eldest)
+            {
+                boolean evict = size() > CompositionResultCache.this.maxEntries;
+                if (evict)
+                    evictions.incrementAndGet();
+                return evict;
+            }
+        };
+    }
+
+    /**
+     * Builds the cache key of a request. Collections are sorted by name, so requests that only differ in the order
+     * they list units, traits or emblems share an entry.
+     *
+     * @param setNumber     The set the configuration was adapted against
+     * @param dataVersion   Version of the game data snapshot the configuration was adapted against
+     * @param configuration The adapted engine configuration
+     * @return The canonical key
+     */
+    public static String createKey(String setNumber, long dataVersion, EngineConfiguration configuration)
+    {
+        String requiredTraits = configuration.getRequiredTraits().entrySet().stream()
+                .map(entry -> entry.getKey().getDisplayName() + "=" + entry.getValue())
+                .sorted()
+                .collect(Collectors.joining(","));
+
+        return "set=" + setNumber
+                + "|data=" + dataVersion
+                + "|compSize=" + configuration.getCompSize()
+                + "|level=" + configuration.getTactitionLevel()
+                + "|crowns=" + configuration.getCrowns()
+                + "|cost=" + configuration.getCostOfBoard()
+                + "|luck=" + configuration.getLuck()
+                + "|requiredTraits=" + requiredTraits
+                + "|requiredUnits=" + sortedNames(configuration.getRequiredUnits())
+                + "|excludedTraits=" + sortedNames(configuration.getExcludedTraits())
+                + "|excludedUnits=" + sortedNames(configuration.getExcludedUnits())
+                + "|emblems=" + sortedNames(configuration.getEmblems());
+    }
+
+    private static String sortedNames(Collection<? extends Nameable> values)
+    {
+        return values.stream()
+                .map(Nameable::getDisplayName)
+                .sorted()
+                .collect(Collectors.joining(","));
+    }
+
+    public synchronized Optional<List<CompositionDTO>> get(String key)
+    {
+        List<CompositionDTO> compositions = entries.get(key);
+        if (compositions == null)
+        {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+
+        hits.incrementAndGet();
+        return Optional.of(compositions);
+    }
+
+    /**
+     * Gets the current generation, to be read before computing a result that will be {@link #put}
+     */
+    public synchronized long getGeneration()
+    {
+        return generation;
+    }
+
+    /**
+     * Caches the result unless the cache was invalidated since the given generation was read
+     */
+    public synchronized void put(String key, long generation, List<CompositionDTO> compositions)
+    {
+        if (maxEntries <= 0 || generation != this.generation)
+            return;
+
+        entries.put(key, List.copyOf(compositions));
+    }
+
+    /**
+     * Drops every entry, called whenever the game data behind the repositories changes
+     */
+    public synchronized void invalidate()
+    {
+        entries.clear();
+        generation++;
+    }
+
+    public synchronized CacheStatus getCacheStatus()
+    {
+        return new CacheStatus(entries.size(), maxEntries, hits.get(), misses.get(), evictions.get());
+    }
+
+    public static class CacheStatus {
+        private final int size;
+        private final int maxEntries;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+
+        public CacheStatus(int size, int maxEntries, long hits, long misses, long evictions) {
+            this.size = size;
+            this.maxEntries = maxEntries;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+
+        public int getSize() { return size; }
+        public int getMaxEntries() { return maxEntries; }
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getEvictions() { return evictions; }
+    }
+}
@@ -3,35 +3,425 @@ package com.tfttools.service;
 import com.tfttools.adapter.EngineConfigurationAdapter;
 import com.tfttools.domain.Composition;
 import com.tfttools.domain.EngineConfiguration;
+import com.tfttools.domain.Nameable;
+import com.tfttools.domain.Unit;
 import com.tfttools.dto.CompositionDTO;
 import com.tfttools.dto.HorizontalDTO;
+import com.tfttools.engine.SearchBudget;
+import com.tfttools.engine.SearchStatistics;
 import com.tfttools.engine.TFTEngine;
+import com.tfttools.engine.manager.EngineStrategyManager;
 import com.tfttools.mapper.CompositionMapper;
-import com.tfttools.repository.UnitRepository;
+import com.tfttools.repository.GameDataRepository;
+import com.tfttools.repository.GameDataSnapshot;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class CompositionService {
 
     private final EngineConfigurationAdapter adapter;
     private final CompositionMapper compositionMapper;
-    private final UnitRepository unitRepository;
+    private final GameDataRepository gameDataRepository;
+    private final CompositionResultCache resultCache;
+    private final EngineMetrics engineMetrics;
 
-    public CompositionService(EngineConfigurationAdapter adapter, CompositionMapper compositionMapper, UnitRepository unitRepository)
+    // Only present when beam expansion is configured to run in parallel
+    private final ForkJoinPool beamSearchPool;
+
+    // Stateless, so one manager serves every request
+    private final EngineStrategyManager strategyManager;
+
+    // Batches fan their searches out on it, apart from the interactive searches
+    private final ThreadPoolTaskExecutor compositionBatchExecutor;
+
+    private final Duration searchTimeBudget;
+    private final long searchNodeBudget;
+
+    // Searches running right now, by cache key, so identical concurrent requests share one
+    private final Map<String, SearchFlight> inFlightSearches = new ConcurrentHashMap<>();
+    private final AtomicLong coalescedSearches = new AtomicLong();
+
+    @Autowired
+    public CompositionService(EngineConfigurationAdapter adapter, CompositionMapper compositionMapper,
+                              GameDataRepository gameDataRepository,
+                              CompositionResultCache resultCache, EngineMetrics engineMetrics, Optional<ForkJoinPool> beamSearchPool,
+                              @Qualifier("strategyPortfolioExecutor") Optional<ThreadPoolTaskExecutor> strategyPortfolioExecutor,
+                              @Qualifier("compositionBatchExecutor") ThreadPoolTaskExecutor compositionBatchExecutor,
+                              @Value("${tft.engine.search.deadline-ms:2000}") long searchDeadlineMillis,
+                              @Value("${tft.engine.search.max-nodes:10000000}") long searchNodeBudget,
+                              @Value("${tft.engine.portfolio.quality-target:0}") int portfolioQualityTarget)
+    {
+        this(adapter, compositionMapper, gameDataRepository, resultCache, engineMetrics, beamSearchPool.orElse(null),
+                strategyPortfolioExecutor
+                        .map(executor -> EngineStrategyManager.createPortfolio(executor, portfolioQualityTarget))
+                        .orElseGet(EngineStrategyManager::new),
+                compositionBatchExecutor, searchDeadlineMillis, searchNodeBudget);
+    }
+
+    /**
+     * @param strategyManager Strategies of the searches whose results are cached and shared
+     */
+    CompositionService(EngineConfigurationAdapter adapter, CompositionMapper compositionMapper,
+                       GameDataRepository gameDataRepository, CompositionResultCache resultCache, EngineMetrics engineMetrics,
+                       ForkJoinPool beamSearchPool, EngineStrategyManager strategyManager,
+                       ThreadPoolTaskExecutor compositionBatchExecutor, long searchDeadlineMillis, long searchNodeBudget)
     {
         this.adapter = adapter;
         this.compositionMapper = compositionMapper;
-        this.unitRepository = unitRepository;
+        this.gameDataRepository = gameDataRepository;
+        this.resultCache = resultCache;
+        this.engineMetrics = engineMetrics;
+        this.beamSearchPool = beamSearchPool;
+        this.strategyManager = strategyManager;
+        this.compositionBatchExecutor = compositionBatchExecutor;
+        this.searchTimeBudget = Duration.ofMillis(searchDeadlineMillis);
+        this.searchNodeBudget = searchNodeBudget;
+    }
+
+    // Budget of a single search, its deadline starts running now
+    private SearchBudget createSearchBudget() {
+        return SearchBudget.of(searchTimeBudget, searchNodeBudget);
+    }
+
+    public CompositionResultCache.CacheStatus getResultCacheStatus() {
+        return resultCache.getCacheStatus();
+    }
+
+    /**
+     * Gets how many requests were answered by waiting for an identical search that was already running
+     */
+    public long getCoalescedSearchCount() {
+        return coalescedSearches.get();
     }
 
     public List<CompositionDTO> generateCompositions(HorizontalDTO horizontalDTO) {
+        return generateCompositions(horizontalDTO, SearchBudget.unlimited());
+    }
+
+    /**
+     * Generates compositions within the configured deadline and node limit, returning the best ones found so far once
+     * they run out
+     *
+     * @param searchBudget Only its cancellation is observed: cancel it to stop waiting for a result that is no longer
+     *                     needed. Its limits are not, since an identical request may share the search.
+     */
+    public List<CompositionDTO> generateCompositions(HorizontalDTO horizontalDTO, SearchBudget searchBudget) {
+        return generateCompositions(horizontalDTO, searchBudget, composition -> {});
+    }
+
+    /**
+     * Generates compositions within the configured deadline and node limit, handing each valid composition to the
+     * listener as soon as it is found. Cached results are handed over at once, in their ranked order.
+     * Identical concurrent requests share one search with a budget of its own, so of the given budget only its
+     * cancellation is observed, and the search stops once every request sharing it was cancelled.
+     *
+     * @param searchBudget        Cancel it to stop waiting for a result that is no longer needed, its limits are not used
+     * @param compositionListener Called once per distinct composition, before the ranked list is returned
+     * @return The ranked compositions
+     */
+    public List<CompositionDTO> generateCompositions(HorizontalDTO horizontalDTO, SearchBudget searchBudget,
+                                                     Consumer<CompositionDTO> compositionListener) {
+        // Read before searching, so a refresh during the search keeps its result out of the cache
+        long generation = resultCache.getGeneration();
+        // The whole request runs against one snapshot, a reload meanwhile only affects requests made after it
+        GameDataSnapshot gameData = gameDataRepository.getSnapshot(horizontalDTO.set());
+
         // Adapter handles validation and conversion
-        EngineConfiguration config = adapter.adaptToEngineConfiguration(horizontalDTO);
+        EngineConfiguration config = adapter.adaptToEngineConfiguration(horizontalDTO, gameData);
+        String cacheKey = CompositionResultCache.createKey(gameData.getSetNumber(), gameData.getVersion(), config);
+
+        Optional<List<CompositionDTO>> cached = resultCache.get(cacheKey);
+        if (cached.isPresent()) {
+            cached.get().forEach(compositionListener);
+            return cached.get();
+        }
+
+        return searchCoalesced(cacheKey, generation, gameData, config, null, searchBudget, compositionListener);
+    }
+
+    /**
+     * Generates compositions with the given strategies, bypassing the result cache since its entries are those of the
+     * default strategies
+     *
+     * @param strategyManager     Strategies to search with
+     * @param searchBudget        Budget of the search, limits included, cancel it to stop a search whose result is no
+     *                            longer needed
+     * @param compositionListener Called once per distinct composition, before the ranked list is returned
+     * @return The ranked compositions
+     */
+    public List<CompositionDTO> generateCompositions(HorizontalDTO horizontalDTO, EngineStrategyManager strategyManager,
+                                                     SearchBudget searchBudget, Consumer<CompositionDTO> compositionListener) {
+        GameDataSnapshot gameData = gameDataRepository.getSnapshot(horizontalDTO.set());
+        EngineConfiguration config = adapter.adaptToEngineConfiguration(horizontalDTO, gameData);
+        return runEngine(gameData, config, strategyManager, null, searchBudget, compositionListener);
+    }
+
+    /**
+     * Generates compositions for many configurations at once, as a sweep over levels or required traits would.
+     * Configurations asking for the same comps are searched once, and configurations excluding the same units and
+     * traits share their filtered unit pool. Searches run in parallel on the batch pool, each within its own budget.
+     * Configurations may select different sets, all configurations of a set run against the same snapshot of it.
+     *
+     * @param horizontalDTOs The configurations, all validated before any search starts
+     * @param batchBudget    Cancel it to stop the running searches and skip those not started yet, its limits are not used
+     * @return The ranked compositions of each configuration, in input order, empty for those skipped
+     */
+    public List<List<CompositionDTO>> generateCompositionBatch(List<HorizontalDTO> horizontalDTOs, SearchBudget batchBudget) {
+        long generation = resultCache.getGeneration();
+
+        Map<String, GameDataSnapshot> snapshotsBySet = new HashMap<>();
+        List<GameDataSnapshot> snapshots = new ArrayList<>(horizontalDTOs.size());
+        List<EngineConfiguration> configs = new ArrayList<>(horizontalDTOs.size());
+        for (int i = 0; i < horizontalDTOs.size(); i++) {
+            try {
+                String set = horizontalDTOs.get(i).set() == null ? "" : horizontalDTOs.get(i).set();
+                GameDataSnapshot gameData = snapshotsBySet.computeIfAbsent(set, gameDataRepository::getSnapshot);
+                snapshots.add(gameData);
+                configs.add(adapter.adaptToEngineConfiguration(horizontalDTOs.get(i), gameData));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Configuration " + i + ": " + e.getMessage(), e);
+            }
+        }
+
+        Map<String, List<Integer>> indicesByKey = new LinkedHashMap<>();
+        for (int i = 0; i < configs.size(); i++) {
+            GameDataSnapshot gameData = snapshots.get(i);
+            String cacheKey = CompositionResultCache.createKey(gameData.getSetNumber(), gameData.getVersion(), configs.get(i));
+            indicesByKey.computeIfAbsent(cacheKey, key -> new ArrayList<>()).add(i);
+        }
+        List<String> keys = new ArrayList<>(indicesByKey.keySet());
+
+        Map<String, Set<Unit>> unitPools = new ConcurrentHashMap<>();
+        List<CompletableFuture<List<CompositionDTO>>> resultsByKey = new ArrayList<>(keys.size());
+        for (int k = 0; k < keys.size(); k++) {
+            resultsByKey.add(new CompletableFuture<>());
+        }
+        AtomicInteger nextKey = new AtomicInteger();
+
+        Runnable worker = () -> {
+            for (int k = nextKey.getAndIncrement(); k < keys.size(); k = nextKey.getAndIncrement()) {
+                if (batchBudget.isCancelled()) {
+                    resultsByKey.get(k).complete(List.of());
+                    continue;
+                }
+                String key = keys.get(k);
+                int index = indicesByKey.get(key).get(0);
+                try {
+                    resultsByKey.get(k).complete(generateBatchEntry(key, configs.get(index), generation, snapshots.get(index),
+                            unitPools, batchBudget));
+                } catch (RuntimeException e) {
+                    resultsByKey.get(k).completeExceptionally(e);
+                }
+            }
+        };
+
+        // The calling thread works through the batch as well, so it completes even when no pool thread is free
+        List<CompletableFuture<Void>> helpers = new ArrayList<>();
+        int workers = Math.min(compositionBatchExecutor.getMaxPoolSize(), keys.size());
+        try {
+            for (int i = 1; i < workers; i++) {
+                helpers.add(CompletableFuture.runAsync(worker, compositionBatchExecutor));
+            }
+        } catch (RejectedExecutionException e) {
+            // A saturated pool leaves the batch to the threads that did start
+        }
+        worker.run();
+
+        // Every entry is claimed by now, helpers still queued would find nothing left and must not hold a thread
+        helpers.forEach(helper -> helper.cancel(false));
+
+        List<List<CompositionDTO>> results = new ArrayList<>(Collections.nCopies(configs.size(), null));
+        for (int k = 0; k < keys.size(); k++) {
+            List<CompositionDTO> compositions;
+            try {
+                compositions = resultsByKey.get(k).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw e;
+            }
+            for (int index : indicesByKey.get(keys.get(k))) {
+                results.set(index, compositions);
+            }
+        }
+        return results;
+    }
+
+    private List<CompositionDTO> generateBatchEntry(String cacheKey, EngineConfiguration config, long generation,
+                                                    GameDataSnapshot gameData, Map<String, Set<Unit>> unitPools,
+                                                    SearchBudget batchBudget) {
+        Optional<List<CompositionDTO>> cached = resultCache.get(cacheKey);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        Set<Unit> unitPool = unitPools.computeIfAbsent(createUnitPoolKey(gameData, config),
+                key -> new TFTEngine(config, gameData.getUnitRepository(), gameData.getTraitRepository()).getFilteredUnitPool());
+
+        SearchBudget entryBudget = createSearchBudget();
+        batchBudget.onCancel(entryBudget::cancel);
+        return searchCoalesced(cacheKey, generation, gameData, config, unitPool, entryBudget, composition -> {});
+    }
+
+    /**
+     * Searches for the compositions of a configuration, unless an identical search is already in flight, in which case
+     * its result is awaited instead. The shared search has a budget of its own: it keeps running while any request
+     * still waits for it, and is cancelled once every request waiting for it was.
+     * The request that started the search receives its compositions as they are found, the others once it is done.
+     */
+    private List<CompositionDTO> searchCoalesced(String cacheKey, long generation, GameDataSnapshot gameData,
+                                                 EngineConfiguration config, Set<Unit> unitPool, SearchBudget requestBudget, Consumer<CompositionDTO> compositionListener) {
+        while (true) {
+            SearchFlight flight = inFlightSearches.computeIfAbsent(cacheKey, key -> new SearchFlight(createSearchBudget()));
+            if (!flight.join(requestBudget)) {
+                // Every request waiting for it went away and the search is winding down, a new one has to start
+                inFlightSearches.remove(cacheKey, flight);
+                continue;
+            }
+
+            if (flight.claimLead()) {
+                return leadSearch(flight, cacheKey, generation, gameData, config, unitPool, requestBudget, compositionListener);
+            }
+            return followSearch(flight, requestBudget, compositionListener);
+        }
+    }
+
+    private List<CompositionDTO> leadSearch(SearchFlight flight, String cacheKey, long generation, GameDataSnapshot gameData,
+                                            EngineConfiguration config, Set<Unit> unitPool, SearchBudget requestBudget,
+                                            Consumer<CompositionDTO> compositionListener) {
+        // Requests waiting on this search must not fail because the one that started it can no longer be answered
+        Consumer<CompositionDTO> leaderListener = composition -> {
+            if (requestBudget.isCancelled()) {
+                return;
+            }
+            try {
+                compositionListener.accept(composition);
+            } catch (RuntimeException e) {
+                requestBudget.cancel();
+            }
+        };
+
+        try {
+            List<CompositionDTO> compositions = runEngine(gameData, config, strategyManager, unitPool, flight.searchBudget, leaderListener);
+
+            // Results of a search that was cut short or cancelled depend on timing, only complete searches are cached
+            if (!flight.searchBudget.wasExhausted()) {
+                resultCache.put(cacheKey, generation, compositions);
+            }
+            flight.result.complete(compositions);
+            return compositions;
+        } catch (RuntimeException e) {
+            flight.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightSearches.remove(cacheKey, flight);
+        }
+    }
+
+    private List<CompositionDTO> followSearch(SearchFlight flight, SearchBudget requestBudget,
+                                              Consumer<CompositionDTO> compositionListener) {
+        coalescedSearches.incrementAndGet();
+
+        // A copy of the result, so a request that goes away stops waiting without cancelling the shared search for others
+        CompletableFuture<List<CompositionDTO>> awaited = flight.result.thenApply(Function.identity());
+        requestBudget.onCancel(() -> awaited.cancel(false));
+
+        List<CompositionDTO> compositions;
+        try {
+            compositions = awaited.join();
+        } catch (CancellationException e) {
+            return List.of();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+
+        compositions.forEach(compositionListener);
+        return compositions;
+    }
+
+    // The filtered pool of a configuration only depends on the snapshot and the units and traits it excludes
+    private static String createUnitPoolKey(GameDataSnapshot gameData, EngineConfiguration config) {
+        String excludedUnits = config.getExcludedUnits().stream().map(Nameable::getDisplayName).sorted().collect(Collectors.joining(","));
+        String excludedTraits = config.getExcludedTraits().stream().map(Nameable::getDisplayName).sorted().collect(Collectors.joining(","));
+        return gameData.getVersion() + "|" + excludedUnits + "|" + excludedTraits;
+    }
+
+    private List<CompositionDTO> runEngine(GameDataSnapshot gameData, EngineConfiguration config, EngineStrategyManager strategyManager,
+                                           Set<Unit> unitPool, SearchBudget searchBudget,
+                                           Consumer<CompositionDTO> compositionListener) {
+        TFTEngine engine = new TFTEngine(config, gameData.getUnitRepository(), gameData.getTraitRepository(), beamSearchPool,
+                strategyManager, unitPool);
+
+        // The ranked compositions are the instances already reported, so each is only mapped once
+        Map<Composition, CompositionDTO> mapped = new IdentityHashMap<>();
+        Function<Composition, CompositionDTO> mapOnce = composition -> mapped.computeIfAbsent(composition,
+                key -> compositionMapper.apply(key, gameData.getSetNumber()));
+
+        SearchStatistics statistics = engineMetrics.createStatistics();
+        List<Composition> compositions = engineMetrics.observeSearch(() -> engine.buildCompositions(searchBudget, statistics,
+                composition -> compositionListener.accept(mapOnce.apply(composition))));
+        engineMetrics.record(statistics, searchBudget);
+
+        return compositions.stream().map(mapOnce).toList();
+    }
+
+    /**
+     * A search shared by every concurrent request for the same configuration
+     */
+    private static final class SearchFlight {
+        private final CompletableFuture<List<CompositionDTO>> result = new CompletableFuture<>();
+        private final SearchBudget searchBudget;
+
+        private int waitingRequests;
+        private boolean led;
+
+        SearchFlight(SearchBudget searchBudget) {
+            this.searchBudget = searchBudget;
+        }
+
+        /**
+         * Adds a request to those waiting for this search, until its budget is cancelled
+         *
+         * @return false if the search was already abandoned by every request waiting for it
+         */
+        synchronized boolean join(SearchBudget requestBudget) {
+            if (searchBudget.isCancelled()) {
+                return false;
+            }
+            waitingRequests++;
+            requestBudget.onCancel(this::leave);
+            return true;
+        }
 
-        TFTEngine engine = new TFTEngine(config, unitRepository);
+        synchronized boolean claimLead() {
+            if (led) {
+                return false;
+            }
+            led = true;
+            return true;
+        }
 
-        return engine.buildCompositions().stream().map(compositionMapper).toList();
+        private synchronized void leave() {
+            if (--waitingRequests == 0 && !result.isDone()) {
+                searchBudget.cancel();
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,8 +1,6 @@
 package com.tfttools.service;
 
-import com.tfttools.repository.EmblemRepository;
-import com.tfttools.repository.TraitRepository;
-import com.tfttools.repository.UnitRepository;
+import com.tfttools.repository.GameDataRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,25 +14,25 @@ public class DataRefreshService {
     private final CommunityDragonDataService dataService;
     private final TeamPlannerService teamPlannerService;
     private final TFTSetContextService setContextService;
+    private final CompositionResultCache compositionResultCache;
 
-    private final TraitRepository traitRepository;
-    private final UnitRepository unitRepository;
-    private final EmblemRepository emblemRepository;
+    private final GameDataRepository gameDataRepository;
 
     @Autowired
     public DataRefreshService(CommunityDragonDataService dataService,
-                              TraitRepository traitRepository,
-                              UnitRepository unitRepository,
-                              EmblemRepository emblemRepository,
+                              GameDataRepository gameDataRepository,
                               TeamPlannerService teamPlannerService,
-                              TFTSetContextService setContextService)
+                              TFTSetContextService setContextService,
+                              CompositionResultCache compositionResultCache)
     {
         this.dataService = dataService;
-        this.traitRepository = traitRepository;
-        this.unitRepository = unitRepository;
-        this.emblemRepository = emblemRepository;
+        this.gameDataRepository = gameDataRepository;
         this.teamPlannerService = teamPlannerService;
         this.setContextService = setContextService;
+        this.compositionResultCache = compositionResultCache;
+
+        // Boots served from a snapshot pick up the data of a new patch once the background refresh downloaded it
+        dataService.addDataChangeListener(this::reloadFromRefreshedData);
     }
     
     public void refreshAllData() {
@@ -47,24 +45,10 @@ public class DataRefreshService {
             // 2. Force fetch fresh data
             dataService.getTeamPlannerData();
             setContextService.initialize();
-            dataService.getCommunityDragonData();
+            dataService.refreshCommunityDragonData();
 
-            // 3. Reload all repositories in the correct order
-            // Traits first (no dependencies)
-            traitRepository.reloadTraits();
-            logger.debug("Reloaded traits");
-            
-            // Units next (depends on traits)
-            unitRepository.reloadUnits();
-            logger.debug("Reloaded units");
-            
-            // Emblems last (depends on traits)
-            emblemRepository.reloadEmblems();
-            logger.debug("Reloaded emblems");
-            
-            // Team planner codes
-            teamPlannerService.refreshTeamPlannerCodes();
-            logger.debug("Reloaded team planner codes");
+            // 3. Publish a new game data snapshot
+            reloadRepositories();
             
             logger.info("Successfully completed full data refresh");
             
@@ -73,4 +57,24 @@ public class DataRefreshService {
             throw new RuntimeException("Data refresh failed", e);
         }
     }
+
+    private void reloadFromRefreshedData() {
+        logger.info("Community Dragon data changed, reloading repositories");
+        setContextService.initialize();
+        reloadRepositories();
+    }
+
+    private void reloadRepositories() {
+        // Traits, units and emblems are swapped in at once, searches running keep the snapshot they started with
+        gameDataRepository.reload();
+        logger.debug("Reloaded game data");
+        
+        // Team planner codes
+        teamPlannerService.refreshTeamPlannerCodes();
+        logger.debug("Reloaded team planner codes");
+
+        // Cached compositions were generated from the previous data
+        compositionResultCache.invalidate();
+        logger.debug("Invalidated composition result cache");
+    }
 }
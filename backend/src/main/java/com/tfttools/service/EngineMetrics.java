@@ -0,0 +1,113 @@
+package com.tfttools.service;
+
+import com.tfttools.engine.SearchBudget;
+import com.tfttools.engine.SearchStatistics;
+import com.tfttools.engine.heuristic.HeuristicProfile;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Publishes what engine runs did as Micrometer meters, served by the actuator metrics endpoint:
+ * <ul>
+ *     <li>{@code tft.engine.phase}, time spent filtering, in each strategy, validating and ranking, by phase</li>
+ *     <li>{@code tft.engine.search.nodes} and {@code tft.engine.search.pruned}, states expanded and dropped per search</li>
+ *     <li>{@code tft.engine.scorer.invocations}, weights computed per search, by scorer</li>
+ *     <li>{@code tft.engine.beam.frontier}, states kept by beam search, by depth</li>
+ * </ul>
+ * Whole searches are observed as {@code tft.engine.search}, which also yields a span when a tracer is configured.
+ * When scorer profiling is turned on, the profile of every search's heuristics is logged as well.
+ */
+@Component
+public class EngineMetrics
+{
+    private static final Logger logger = LoggerFactory.getLogger(EngineMetrics.class);
+
+    private final MeterRegistry meterRegistry;
+    private final ObservationRegistry observationRegistry;
+    private final boolean enabled;
+    private final boolean profiling;
+
+    public EngineMetrics(MeterRegistry meterRegistry, ObservationRegistry observationRegistry,
+                         @Value("${tft.engine.metrics.enabled:true}") boolean enabled,
+                         @Value("${tft.engine.metrics.profile-scorers:false}") boolean profiling)
+    {
+        this.meterRegistry = meterRegistry;
+        this.observationRegistry = observationRegistry;
+        this.enabled = enabled;
+        this.profiling = profiling;
+    }
+
+    /**
+     * Creates the statistics an engine run reports to, disabled ones when neither metrics nor profiling are turned on
+     */
+    public SearchStatistics createStatistics()
+    {
+        if (profiling)
+            return SearchStatistics.createProfiling(new HeuristicProfile());
+        return enabled ? SearchStatistics.create() : SearchStatistics.disabled();
+    }
+
+    /**
+     * Runs a search as an observation, so it is timed and traced as a whole
+     */
+    public <T> T observeSearch(Supplier<T> search)
+    {
+        if (!enabled)
+            return search.get();
+
+        return Observation.createNotStarted("tft.engine.search", observationRegistry).observe(search);
+    }
+
+    /**
+     * Publishes the statistics of a finished engine run
+     *
+     * @param searchBudget Budget of the run, its expanded nodes are those of the run
+     */
+    public void record(SearchStatistics statistics, SearchBudget searchBudget)
+    {
+        HeuristicProfile heuristicProfile = statistics.getHeuristicProfile();
+        if (heuristicProfile != null)
+            logger.info(heuristicProfile.toReport());
+
+        if (!enabled)
+            return;
+
+        statistics.getPhaseNanos().forEach((phase, nanos) -> Timer.builder("tft.engine.phase")
+                .description("Time spent in a phase of an engine run")
+                .tag("phase", phase)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS));
+
+        DistributionSummary.builder("tft.engine.search.nodes")
+                .description("Search nodes expanded by an engine run")
+                .register(meterRegistry)
+                .record(searchBudget.getExpandedNodes());
+
+        DistributionSummary.builder("tft.engine.search.pruned")
+                .description("Search states or subtrees an engine run dropped without expanding them")
+                .register(meterRegistry)
+                .record(statistics.getPrunedStates());
+
+        statistics.getScorerInvocations().forEach((scorer, invocations) -> DistributionSummary.builder("tft.engine.scorer.invocations")
+                .description("Weights a scorer computed during an engine run")
+                .tag("scorer", scorer.getSimpleName())
+                .register(meterRegistry)
+                .record(invocations));
+
+        statistics.getBeamFrontierSizes().forEach((depth, size) -> DistributionSummary.builder("tft.engine.beam.frontier")
+                .description("States kept by beam search after a depth")
+                .tag("depth", String.valueOf(depth))
+                .register(meterRegistry)
+                .record(size));
+    }
+}
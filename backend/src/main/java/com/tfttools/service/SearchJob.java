@@ -0,0 +1,239 @@
+package com.tfttools.service;
+
+import com.tfttools.dto.CompositionDTO;
+import com.tfttools.dto.HorizontalDTO;
+import com.tfttools.engine.SearchBudget;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * A composition search running in the background on behalf of a client that polls or subscribes for its progress.
+ * Progress is updated by the worker running the search and read from request threads.
+ * Subscribers are handed copies of the job taken as it progresses, on an executor of their own, so a slow subscriber
+ * never holds up the search. Progress made while subscribers are busy is merged into the latest copy, the copy of the
+ * finished job always comes last.
+ */
+@Getter
+public class SearchJob
+{
+    public enum Status
+    {
+        QUEUED, RUNNING, COMPLETED, CANCELLED, FAILED;
+
+        public boolean isFinished()
+        {
+            return this != QUEUED && this != RUNNING;
+        }
+    }
+
+    private final String id;
+    private final HorizontalDTO request;
+    private final Instant submittedAt;
+
+    // Created when the job starts, so time spent in the queue does not count against the search
+    @Getter(lombok.AccessLevel.NONE)
+    private volatile SearchBudget searchBudget;
+
+    private volatile Status status;
+    private volatile int compositionsFound;
+    private volatile int bestActivatedTraits;
+    private volatile List<CompositionDTO> compositions;
+    private volatile String error;
+    private volatile Instant finishedAt;
+
+    // Nodes expanded when this copy was taken, copies have no budget of their own
+    @Getter(lombok.AccessLevel.NONE)
+    private final long copiedNodesExpanded;
+
+    @Getter(lombok.AccessLevel.NONE)
+    private final Executor progressExecutor;
+    @Getter(lombok.AccessLevel.NONE)
+    private final List<Consumer<SearchJob>> progressListeners = new CopyOnWriteArrayList<>();
+    @Getter(lombok.AccessLevel.NONE)
+    private final AtomicReference<SearchJob> pendingProgress = new AtomicReference<>();
+    @Getter(lombok.AccessLevel.NONE)
+    private final AtomicBoolean dispatchingProgress = new AtomicBoolean();
+
+    /**
+     * @param progressExecutor Executor progress listeners are called on
+     */
+    public SearchJob(String id, HorizontalDTO request, Executor progressExecutor)
+    {
+        this.id = id;
+        this.request = request;
+        this.submittedAt = Instant.now();
+        this.status = Status.QUEUED;
+        this.compositions = List.of();
+        this.copiedNodesExpanded = 0;
+        this.progressExecutor = progressExecutor;
+    }
+
+    private SearchJob(SearchJob job)
+    {
+        this.id = job.id;
+        this.request = job.request;
+        this.submittedAt = job.submittedAt;
+        this.status = job.status;
+        this.compositionsFound = job.compositionsFound;
+        this.bestActivatedTraits = job.bestActivatedTraits;
+        this.compositions = job.compositions;
+        this.error = job.error;
+        this.finishedAt = job.finishedAt;
+        this.copiedNodesExpanded = job.getNodesExpanded();
+        this.progressExecutor = null;
+    }
+
+    public long getNodesExpanded()
+    {
+        SearchBudget budget = searchBudget;
+        return budget == null ? copiedNodesExpanded : budget.getExpandedNodes();
+    }
+
+    /**
+     * Calls the listener with the current state of the job, then whenever the job makes progress until it finishes.
+     * A listener that throws is unregistered.
+     */
+    public void addProgressListener(Consumer<SearchJob> listener)
+    {
+        SearchJob progress;
+        synchronized (this)
+        {
+            if (!status.isFinished())
+            {
+                progressListeners.add(listener);
+                publishProgress();
+                return;
+            }
+            progress = new SearchJob(this);
+        }
+
+        try
+        {
+            progressExecutor.execute(() -> deliver(listener, progress));
+        } catch (RejectedExecutionException e)
+        {
+            // Shutting down, nobody is left to read the result
+        }
+    }
+
+    public void removeProgressListener(Consumer<SearchJob> listener)
+    {
+        progressListeners.remove(listener);
+    }
+
+    /**
+     * Stops the job, a queued job will not start and a running one returns the best compositions found so far
+     *
+     * @return true if the job had not finished yet
+     */
+    public synchronized boolean cancel()
+    {
+        if (status.isFinished())
+            return false;
+
+        if (status == Status.QUEUED)
+            finish(Status.CANCELLED, List.of(), null);
+        else
+            searchBudget.cancel();
+        return true;
+    }
+
+    /**
+     * Marks the job as running with the given budget
+     *
+     * @return false if the job was cancelled while it was queued
+     */
+    synchronized boolean start(SearchBudget searchBudget)
+    {
+        if (status != Status.QUEUED)
+            return false;
+
+        this.searchBudget = searchBudget;
+        status = Status.RUNNING;
+        publishProgress();
+        return true;
+    }
+
+    synchronized void onCompositionFound(CompositionDTO composition)
+    {
+        compositionsFound++;
+        bestActivatedTraits = Math.max(bestActivatedTraits, composition.getActivatedTraits());
+        publishProgress();
+    }
+
+    synchronized void complete(List<CompositionDTO> compositions)
+    {
+        finish(searchBudget.isCancelled() ? Status.CANCELLED : Status.COMPLETED, compositions, null);
+    }
+
+    synchronized void fail(String error)
+    {
+        finish(Status.FAILED, List.of(), error);
+    }
+
+    private void finish(Status status, List<CompositionDTO> compositions, String error)
+    {
+        this.compositions = compositions;
+        this.error = error;
+        this.finishedAt = Instant.now();
+        this.status = status;
+        publishProgress();
+    }
+
+    // Called holding the lock of the job, so copies are published in the order the job progressed
+    private void publishProgress()
+    {
+        if (progressListeners.isEmpty())
+            return;
+
+        pendingProgress.set(new SearchJob(this));
+        if (dispatchingProgress.compareAndSet(false, true))
+        {
+            try
+            {
+                progressExecutor.execute(this::dispatchProgress);
+            } catch (RejectedExecutionException e)
+            {
+                dispatchingProgress.set(false);
+            }
+        }
+    }
+
+    private void dispatchProgress()
+    {
+        do
+        {
+            SearchJob progress;
+            while ((progress = pendingProgress.getAndSet(null)) != null)
+            {
+                for (Consumer<SearchJob> listener : progressListeners)
+                {
+                    deliver(listener, progress);
+                }
+                if (progress.getStatus().isFinished())
+                    progressListeners.clear();
+            }
+            dispatchingProgress.set(false);
+            // Progress published after the last check but before the flag was cleared is dispatched here
+        } while (pendingProgress.get() != null && dispatchingProgress.compareAndSet(false, true));
+    }
+
+    private void deliver(Consumer<SearchJob> listener, SearchJob progress)
+    {
+        try
+        {
+            listener.accept(progress);
+        } catch (RuntimeException e)
+        {
+            progressListeners.remove(listener);
+        }
+    }
+}
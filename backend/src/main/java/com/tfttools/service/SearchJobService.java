@@ -0,0 +1,152 @@
+package com.tfttools.service;
+
+import com.tfttools.dto.CompositionDTO;
+import com.tfttools.dto.HorizontalDTO;
+import com.tfttools.engine.SearchBudget;
+import com.tfttools.engine.engine_strategy.TFTEngineBeamSearchStrategy;
+import com.tfttools.engine.engine_strategy.TFTEngineBranchAndBoundStrategy;
+import com.tfttools.engine.manager.EngineStrategyManager;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs composition searches that take longer than an interactive request should stay open as background jobs.
+ * Jobs run on their own bounded pool with a much larger budget than interactive searches, and branch and bound gets
+ * all of it so it can prove its boards optimal. Finished jobs are kept for a while so clients can collect the result,
+ * and swept once that time is up.
+ */
+@Service
+public class SearchJobService
+{
+    private static final Logger logger = LoggerFactory.getLogger(SearchJobService.class);
+
+    private final CompositionService compositionService;
+    private final ThreadPoolTaskExecutor searchJobExecutor;
+    private final ThreadPoolTaskExecutor searchJobEventExecutor;
+    private final ScheduledExecutorService expirySweeper;
+    private final EngineStrategyManager strategyManager;
+
+    private final Duration jobTimeBudget;
+    private final long jobNodeBudget;
+    private final Duration resultTtl;
+
+    private final Map<String, SearchJob> jobs = new ConcurrentHashMap<>();
+
+    public SearchJobService(CompositionService compositionService,
+                            @Qualifier("searchJobExecutor") ThreadPoolTaskExecutor searchJobExecutor,
+                            @Qualifier("searchJobEventExecutor") ThreadPoolTaskExecutor searchJobEventExecutor,
+                            @Value("${tft.engine.jobs.deadline-ms:60000}") long jobDeadlineMillis,
+                            @Value("${tft.engine.jobs.max-nodes:2000000000}") long jobNodeBudget,
+                            @Value("${tft.engine.jobs.result-ttl-ms:600000}") long resultTtlMillis)
+    {
+        this.compositionService = compositionService;
+        this.searchJobExecutor = searchJobExecutor;
+        this.searchJobEventExecutor = searchJobEventExecutor;
+        this.jobTimeBudget = Duration.ofMillis(jobDeadlineMillis);
+        this.jobNodeBudget = jobNodeBudget;
+        this.resultTtl = Duration.ofMillis(resultTtlMillis);
+
+        // The job budget bounds branch and bound, not the short default budget meant for interactive searches
+        this.strategyManager = new EngineStrategyManager(List.of(
+                new TFTEngineBeamSearchStrategy(12),
+                new TFTEngineBranchAndBoundStrategy(jobTimeBudget, Long.MAX_VALUE)
+        ));
+
+        // Without the sweep, finished jobs would only be evicted when new requests come in
+        this.expirySweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "search-job-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long sweepIntervalMillis = Math.max(1000, resultTtlMillis / 2);
+        expirySweeper.scheduleWithFixedDelay(this::evictExpiredJobs, sweepIntervalMillis, sweepIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        expirySweeper.shutdownNow();
+    }
+
+    /**
+     * Queues a search
+     *
+     * @return The queued job, empty if the queue is full and the client should retry later
+     */
+    public Optional<SearchJob> submit(HorizontalDTO horizontalDTO)
+    {
+        evictExpiredJobs();
+
+        SearchJob job = new SearchJob(UUID.randomUUID().toString(), horizontalDTO, searchJobEventExecutor);
+        jobs.put(job.getId(), job);
+
+        try
+        {
+            searchJobExecutor.execute(() -> run(job));
+        } catch (TaskRejectedException e)
+        {
+            jobs.remove(job.getId());
+            return Optional.empty();
+        }
+        return Optional.of(job);
+    }
+
+    public Optional<SearchJob> getJob(String id)
+    {
+        evictExpiredJobs();
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /**
+     * Cancels a job, the best compositions a running job found so far stay available as its result
+     *
+     * @return The job, empty if there is no such job
+     */
+    public Optional<SearchJob> cancel(String id)
+    {
+        Optional<SearchJob> job = getJob(id);
+        job.ifPresent(SearchJob::cancel);
+        return job;
+    }
+
+    private void run(SearchJob job)
+    {
+        SearchBudget searchBudget = SearchBudget.of(jobTimeBudget, jobNodeBudget);
+        if (!job.start(searchBudget))
+            return;
+
+        try
+        {
+            List<CompositionDTO> compositions = compositionService.generateCompositions(job.getRequest(), strategyManager,
+                    searchBudget, job::onCompositionFound);
+            job.complete(compositions);
+        } catch (RuntimeException e)
+        {
+            logger.warn("Search job {} failed", job.getId(), e);
+            job.fail(e.getMessage());
+        }
+    }
+
+    private void evictExpiredJobs()
+    {
+        Instant expiry = Instant.now().minus(resultTtl);
+        jobs.values().removeIf(job -> job.getStatus().isFinished() && job.getFinishedAt().isBefore(expiry));
+    }
+}
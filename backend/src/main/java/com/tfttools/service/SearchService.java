@@ -7,9 +7,7 @@ import com.tfttools.dto.UnitDTO;
 import com.tfttools.mapper.EmblemMapper;
 import com.tfttools.mapper.TraitMapper;
 import com.tfttools.mapper.UnitMapper;
-import com.tfttools.repository.EmblemRepository;
-import com.tfttools.repository.TraitRepository;
-import com.tfttools.repository.UnitRepository;
+import com.tfttools.repository.GameDataRepository;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -19,46 +17,45 @@ import java.util.stream.Collectors;
 public class SearchService
 {
 
-    private final UnitRepository unitRepository;
-    private final TraitRepository traitRepository;
-    private final EmblemRepository emblemRepository;
+    private final GameDataRepository gameDataRepository;
 
     private final UnitMapper unitMapper;
     private final TraitMapper traitMapper;
     private final EmblemMapper emblemMapper;
 
-    public SearchService(UnitRepository unitRepository, TraitRepository traitRepository, EmblemRepository emblemRepository,
-                         UnitMapper unitMapper, TraitMapper traitMapper, EmblemMapper emblemMapper)
+    public SearchService(GameDataRepository gameDataRepository, UnitMapper unitMapper, TraitMapper traitMapper,
+                         EmblemMapper emblemMapper)
     {
-        this.unitRepository = unitRepository;
-        this.traitRepository = traitRepository;
-        this.emblemRepository = emblemRepository;
+        this.gameDataRepository = gameDataRepository;
         this.unitMapper = unitMapper;
         this.traitMapper = traitMapper;
         this.emblemMapper = emblemMapper;
     }
 
 
-    public List<UnitDTO> searchChampions(String query)
+    /**
+     * @param set Number of the set to search, null for the current set
+     */
+    public List<UnitDTO> searchChampions(String query, String set)
     {
-        return unitRepository.getAllChampionsStartingWith(query)
+        return gameDataRepository.getSnapshot(set).getUnitRepository().getAllChampionsStartingWith(query)
                 .stream()
                 .map(unitMapper)
                 .collect(Collectors.toList());
     }
 
-    public List<TraitDTO> searchTraits(String query)
+    public List<TraitDTO> searchTraits(String query, String set)
     {
-        return traitRepository.getAllTraitsStartingWith(query)
+        return gameDataRepository.getSnapshot(set).getTraitRepository().getAllTraitsStartingWith(query)
                 .stream()
                 .filter(Trait::isCountable)
                 .map(traitMapper)
                 .collect(Collectors.toList());
     }
 
-    public List<EmblemDTO> searchEmblems(String query)
+    public List<EmblemDTO> searchEmblems(String query, String set)
     {
-        return emblemRepository.getAllEmblemsStartingWith(query)
+        return gameDataRepository.getSnapshot(set).getEmblemRepository().getAllEmblemsStartingWith(query)
                 .stream()
                 .map(emblemMapper)
                 .collect(Collectors.toList());
@@ -15,7 +15,7 @@ public class TFTSetContextService
     private final CommunityDragonDataService communityDragonDataService;
 
     @Getter
-    private String currentSetNumber;
+    private volatile String currentSetNumber;
 
     public TFTSetContextService(CommunityDragonDataService communityDragonDataService)
     {
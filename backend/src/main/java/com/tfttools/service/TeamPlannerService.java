@@ -12,6 +12,7 @@ import org.springframework.stereotype.Service;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 @DependsOn("TFTSetContextService")
@@ -21,7 +22,8 @@ public class TeamPlannerService
     private final CommunityDragonDataService dataService;
     private final TFTSetContextService setContextService;
 
-    private Map<String, String> championNameToCodeMap; // champion name -> code
+    private volatile Map<String, String> championNameToCodeMap; // champion name -> code
+    private final Map<String, Map<String, String>> otherSetCodeMaps = new ConcurrentHashMap<>(); // set number -> codes
 
     @Autowired
     public TeamPlannerService(CommunityDragonDataService dataService, TFTSetContextService setContextService)
@@ -38,24 +40,41 @@ public class TeamPlannerService
 
     private void buildTeamPlannerCodeMap()
     {
-        championNameToCodeMap = new HashMap<>();
-        TeamPlannerData data = dataService.getTeamPlannerData();
+        // Built off to the side and swapped in, so exports running meanwhile see either the previous codes or these
+        championNameToCodeMap = buildCodeMap(dataService.getTeamPlannerData(), setContextService.getCurrentSetKey());
+        otherSetCodeMaps.clear();
+    }
+
+    private static Map<String, String> buildCodeMap(TeamPlannerData data, String setKey)
+    {
+        Map<String, String> codes = new HashMap<>();
 
-        if (data != null)
+        if (data != null && setKey != null)
         {
-            String currentSetKey = setContextService.getCurrentSetKey();
-            if (currentSetKey != null)
+            List<TeamPlannerChampion> champions = data.getSetData(setKey);
+            if (champions != null)
             {
-                List<TeamPlannerChampion> champions = data.getSetData(currentSetKey);
-                if (champions != null)
+                for (TeamPlannerChampion champion : champions)
                 {
-                    for (TeamPlannerChampion champion : champions)
-                    {
-                        championNameToCodeMap.put(champion.getCharacterId(), String.format("%03x", champion.getTeamPlannerCode()));
-                    }
+                    codes.put(champion.getCharacterId(), String.format("%03x", champion.getTeamPlannerCode()));
                 }
             }
         }
+        return codes;
+    }
+
+    private Map<String, String> getCodeMap(String setNumber)
+    {
+        if (setNumber == null || setNumber.equals(setContextService.getCurrentSetNumber()))
+            return championNameToCodeMap;
+
+        // Sets without codes are not kept, their codes may still show up with the next fetch
+        Map<String, String> codes = otherSetCodeMaps.computeIfAbsent(setNumber, set ->
+        {
+            Map<String, String> built = buildCodeMap(dataService.getTeamPlannerData(set), "TFTSet" + set);
+            return built.isEmpty() ? null : built;
+        });
+        return codes == null ? Map.of() : codes;
     }
 
     /**
@@ -66,7 +85,12 @@ public class TeamPlannerService
      */
     public String unitToHex(Unit unit)
     {
-        String hexCode = championNameToCodeMap.get(unit.getApiName());
+        return unitToHex(unit, championNameToCodeMap);
+    }
+
+    private static String unitToHex(Unit unit, Map<String, String> codes)
+    {
+        String hexCode = codes.get(unit.getApiName());
 
         if (hexCode == null)
         {
@@ -79,6 +103,17 @@ public class TeamPlannerService
 
     public String exportToTeamCode(Composition composition)
     {
+        return exportToTeamCode(composition, null);
+    }
+
+    /**
+     * Exports a composition of the given set
+     *
+     * @param setNumber Number of the set the units of the composition belong to, null for the current set
+     */
+    public String exportToTeamCode(Composition composition, String setNumber)
+    {
+        Map<String, String> codes = getCodeMap(setNumber);
         List<Unit> units = composition.getUnits();
 
         StringBuilder sb = new StringBuilder("02");
@@ -88,7 +123,7 @@ public class TeamPlannerService
         {
             if (i < units.size())
             {
-                sb.append(unitToHex(units.get(i)));
+                sb.append(unitToHex(units.get(i), codes));
             } else
             {
                 sb.append("000");
@@ -96,7 +131,7 @@ public class TeamPlannerService
 
         }
 
-        sb.append(setContextService.getCurrentSetKey());
+        sb.append(setNumber == null ? setContextService.getCurrentSetKey() : "TFTSet" + setNumber);
         return sb.toString();
     }
 
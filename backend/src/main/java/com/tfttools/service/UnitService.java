@@ -9,6 +9,8 @@ import com.tfttools.dto.UnitDTO;
 import com.tfttools.mapper.TraitMapper;
 import com.tfttools.mapper.UnitMapper;
 import com.tfttools.prefixtrie.PrefixTrieUtils;
+import com.tfttools.repository.GameDataRepository;
+import com.tfttools.repository.GameDataSnapshot;
 import com.tfttools.repository.TraitRepository;
 import com.tfttools.repository.UnitRepository;
 import org.springframework.stereotype.Service;
@@ -27,15 +29,17 @@ public class UnitService
 {
     private final UnitRepository unitRepository;
     private final TraitRepository traitRepository;
+    private final GameDataRepository gameDataRepository;
 
     private final UnitMapper unitMapper;
     private final TraitMapper traitMapper;
 
-    public UnitService(UnitRepository unitRepository, TraitRepository traitRepository,
+    public UnitService(UnitRepository unitRepository, TraitRepository traitRepository, GameDataRepository gameDataRepository,
                        UnitMapper unitMapper, TraitMapper traitMapper)
     {
         this.unitRepository = unitRepository;
         this.traitRepository = traitRepository;
+        this.gameDataRepository = gameDataRepository;
         this.unitMapper = unitMapper;
         this.traitMapper = traitMapper;
     }
@@ -43,11 +47,12 @@ public class UnitService
     /**
      * Gets all units from {@link UnitRepository} and sanitizes it for the requestor
      *
+     * @param set Number of the set, null for the current set
      * @return List of {@link UnitDTO}
      */
-    public List<UnitDTO> getAllUnits()
+    public List<UnitDTO> getAllUnits(String set)
     {
-        return unitRepository.getAllUnits().stream().map(unitMapper).collect(Collectors.toList());
+        return gameDataRepository.getSnapshot(set).getUnitRepository().getAllUnits().stream().map(unitMapper).collect(Collectors.toList());
     }
 
     public List<TraitDTO> getAllTraits()
@@ -59,9 +64,10 @@ public class UnitService
      * Gets suggestions from {@link UnitRepository} and {@link TraitRepository} and sanitizes it for the requestor
      *
      * @param search The input parameter for a search
+     * @param set    Number of the set to search, null for the current set
      * @return SearchResultDTO
      */
-    public SearchResultDTO getSuggestions(String search)
+    public SearchResultDTO getSuggestions(String search, String set)
     {
         search = PrefixTrieUtils.removePunctuation(search);
         if (search.isEmpty())
@@ -69,8 +75,9 @@ public class UnitService
             return new SearchResultDTO();
         }
 
-        List<UnitDTO> champs = unitRepository.getAllChampionsStartingWith(search).stream().map(unitMapper).collect(Collectors.toList());
-        List<TraitDTO> traits = traitRepository.getAllTraitsStartingWith(search).stream().map(traitMapper).collect(Collectors.toList());
+        GameDataSnapshot gameData = gameDataRepository.getSnapshot(set);
+        List<UnitDTO> champs = gameData.getUnitRepository().getAllChampionsStartingWith(search).stream().map(unitMapper).collect(Collectors.toList());
+        List<TraitDTO> traits = gameData.getTraitRepository().getAllTraitsStartingWith(search).stream().map(traitMapper).collect(Collectors.toList());
 
         return new SearchResultDTO(champs, traits);
     }
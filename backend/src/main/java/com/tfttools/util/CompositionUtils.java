@@ -3,6 +3,7 @@ package com.tfttools.util;
 import com.tfttools.domain.Composition;
 import com.tfttools.domain.Trait;
 import com.tfttools.domain.Unit;
+import com.tfttools.engine.CompactComposition;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -70,6 +71,34 @@ public enum CompositionUtils
         return activatableTraits;
     }
 
+    /**
+     * Same as {@link #getTraitsReachingFirstThresholdWhenUnitAdded(Composition, Unit)} for the engine's
+     * {@link CompactComposition}, reading trait counts in place and thresholds from the set's {@link TraitThresholdTable}.
+     *
+     * @param composition    The current team composition
+     * @param unit           The unit being considered for addition
+     * @param thresholdTable Threshold lookup of the set
+     * @return A list of traits that would reach their first threshold when this unit is added
+     */
+    public List<Trait> getTraitsReachingFirstThresholdWhenUnitAdded(CompactComposition composition, Unit unit, TraitThresholdTable thresholdTable)
+    {
+        List<Trait> activatableTraits = new ArrayList<>();
+        for (Trait unitTrait : unit.getTraits())
+        {
+            if (!unitTrait.isCountable())
+                continue;
+
+            int currentCompTraitCount = composition.getTraitCount(unitTrait);
+
+            if (thresholdTable.hasReachedFirstThreshold(unitTrait, currentCompTraitCount))
+                continue;
+            if (!thresholdTable.willActivateNextThreshold(unitTrait, currentCompTraitCount))
+                continue;
+            activatableTraits.add(unitTrait);
+        }
+        return activatableTraits;
+    }
+
 
     /**
      * Checks if adding a unit with the given trait will activate the next threshold
@@ -100,7 +129,7 @@ public enum CompositionUtils
      */
     public int getNextThreshold(Trait trait, int currentTraitCount)
     {
-        int[] thresholds = trait.getActivationThresholds();
+        int[] thresholds = trait.getThresholds();
 
         // If already at max threshold, return -1
         if (currentTraitCount >= thresholds[thresholds.length - 1])
@@ -122,7 +151,7 @@ public enum CompositionUtils
 
     public int getPreviousThreshold(Trait trait, int currentTraitCount)
     {
-        int[] thresholds = trait.getActivationThresholds();
+        int[] thresholds = trait.getThresholds();
 
         if (currentTraitCount <= thresholds[0])
             return 0;
@@ -140,7 +169,7 @@ public enum CompositionUtils
 
     public boolean hasReachedFirstThreshold(Trait trait, int currentThreshold)
     {
-        return currentThreshold >= trait.getActivationThresholds()[0];
+        return currentThreshold >= trait.getThresholds()[0];
     }
 
     public List<Trait> getActivatedTraits(Composition composition)
@@ -153,4 +182,18 @@ public enum CompositionUtils
         Map<Trait, Integer> traits = composition.getTraits();
         return traits.keySet().stream().filter(trait -> shouldCountUniqueTraits || trait.isCountable()).filter(trait -> hasReachedFirstThreshold(trait, traits.get(trait))).toList();
     }
+
+    public List<Trait> getActivatedTraits(CompactComposition composition, TraitThresholdTable thresholdTable)
+    {
+        List<Trait> activatedTraits = new ArrayList<>();
+        for (int i = 0; i < composition.size(); i++)
+        {
+            for (Trait trait : composition.getUnit(i).getTraits())
+            {
+                if (trait.isCountable() && thresholdTable.hasReachedFirstThreshold(trait, composition.getTraitCount(trait)) && !activatedTraits.contains(trait))
+                    activatedTraits.add(trait);
+            }
+        }
+        return activatedTraits;
+    }
 }
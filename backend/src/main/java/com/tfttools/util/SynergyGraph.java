@@ -0,0 +1,273 @@
+package com.tfttools.util;
+
+import com.tfttools.domain.Trait;
+import com.tfttools.domain.Unit;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable unit–trait bipartite graph of a set, stored as adjacency arrays addressed by {@link Unit#getOrdinal()} and
+ * {@link Trait#getOrdinal()}. Built once when the units of a set are loaded, it answers the depth-bounded synergy
+ * lookups of the synergy scorer with bit masks and count arrays. Results are memoized per
+ * (start traits, excluded traits, available units, depth) signature and shared by every request against the set.
+ */
+public final class SynergyGraph
+{
+    private static final int MAX_MEMOIZED_NEIGHBOURHOODS = 1 << 16;
+
+    private final int unitOrdinalCapacity;
+    private final int traitOrdinalCapacity;
+
+    private final Unit[] unitsByOrdinal;
+    private final int[][] traitsOfUnit;
+    private final int[][] unitsOfTrait;
+
+    private final Map<NeighbourhoodKey, List<Unit>> neighbourhoods = new ConcurrentHashMap<>();
+
+    private SynergyGraph(int unitOrdinalCapacity, int traitOrdinalCapacity)
+    {
+        this.unitOrdinalCapacity = unitOrdinalCapacity;
+        this.traitOrdinalCapacity = traitOrdinalCapacity;
+        this.unitsByOrdinal = new Unit[unitOrdinalCapacity];
+        this.traitsOfUnit = new int[unitOrdinalCapacity][];
+        this.unitsOfTrait = new int[traitOrdinalCapacity][];
+    }
+
+    /**
+     * Builds the graph for the units of a set
+     *
+     * @param unitsByTrait         Units of the set grouped by trait, in the order lookups should list them
+     * @param unitOrdinalCapacity  Exclusive upper bound of the unit ordinals
+     * @param traitOrdinalCapacity Exclusive upper bound of the trait ordinals
+     * @return The graph
+     */
+    public static SynergyGraph build(Map<Trait, List<Unit>> unitsByTrait, int unitOrdinalCapacity, int traitOrdinalCapacity)
+    {
+        SynergyGraph graph = new SynergyGraph(unitOrdinalCapacity, traitOrdinalCapacity);
+        Arrays.fill(graph.unitsOfTrait, new int[0]);
+        Arrays.fill(graph.traitsOfUnit, new int[0]);
+
+        for (Map.Entry<Trait, List<Unit>> entry : unitsByTrait.entrySet())
+        {
+            graph.unitsOfTrait[entry.getKey().getOrdinal()] = entry.getValue().stream()
+                    .mapToInt(Unit::getOrdinal)
+                    .toArray();
+
+            for (Unit unit : entry.getValue())
+            {
+                if (graph.unitsByOrdinal[unit.getOrdinal()] != null)
+                    continue;
+
+                graph.unitsByOrdinal[unit.getOrdinal()] = unit;
+                graph.traitsOfUnit[unit.getOrdinal()] = unit.getTraits().stream()
+                        .mapToInt(Trait::getOrdinal)
+                        .toArray();
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Expands outward from the traits of the given units, level by level. Each level collects the available units of
+     * the traits not visited yet and keeps only those whose every trait is shared by another collected unit.
+     * A unit collected through several traits of a level is listed once per trait.
+     *
+     * @param units          Units whose traits start the expansion
+     * @param excludedTraits Traits treated as already visited
+     * @param availableUnits Mask of the units that may be collected, addressed by unit ordinal
+     * @param depth          Number of levels to expand
+     * @return The units kept by the last level expanded, empty if a level collected nothing
+     */
+    public List<Unit> getSynergies(Collection<Unit> units, Collection<Trait> excludedTraits, long[] availableUnits, int depth)
+    {
+        if (depth <= 0)
+            return Collections.emptyList();
+
+        long[] startTraits = new long[(traitOrdinalCapacity + 63) >>> 6];
+        for (Unit unit : units)
+        {
+            for (Trait trait : unit.getTraits())
+            {
+                set(startTraits, trait.getOrdinal());
+            }
+        }
+
+        long[] visitedTraits = new long[startTraits.length];
+        for (Trait trait : excludedTraits)
+        {
+            set(visitedTraits, trait.getOrdinal());
+        }
+
+        NeighbourhoodKey key = new NeighbourhoodKey(startTraits, visitedTraits, availableUnits, depth);
+        List<Unit> synergies = neighbourhoods.get(key);
+        if (synergies == null)
+        {
+            synergies = expand(startTraits, visitedTraits.clone(), availableUnits, depth);
+
+            // The signatures are bounded by the set, but not by much, so start over rather than grow without limit
+            if (neighbourhoods.size() >= MAX_MEMOIZED_NEIGHBOURHOODS)
+                neighbourhoods.clear();
+            neighbourhoods.put(key, synergies);
+        }
+        return synergies;
+    }
+
+    private List<Unit> expand(long[] startTraits, long[] visitedTraits, long[] availableUnits, int depth)
+    {
+        long[] level = new long[startTraits.length];
+        for (int i = 0; i < level.length; i++)
+        {
+            level[i] = startTraits[i] & ~visitedTraits[i];
+        }
+
+        int[] multiplicity = new int[unitOrdinalCapacity];
+        int[] traitCounts = new int[traitOrdinalCapacity];
+        int[] collected = new int[unitOrdinalCapacity];
+
+        List<Unit> synergies = Collections.emptyList();
+
+        for (int currentDepth = 0; currentDepth < depth && !isEmpty(level); currentDepth++)
+        {
+            Arrays.fill(multiplicity, 0);
+            Arrays.fill(traitCounts, 0);
+            int collectedCount = 0;
+
+            for (int i = 0; i < level.length; i++)
+            {
+                visitedTraits[i] |= level[i];
+            }
+
+            // Collect the available units of every trait of this level
+            for (int trait = nextSetBit(level, 0); trait >= 0; trait = nextSetBit(level, trait + 1))
+            {
+                for (int unit : unitsOfTrait[trait])
+                {
+                    if (!isSet(availableUnits, unit))
+                        continue;
+
+                    if (multiplicity[unit]++ == 0)
+                        collected[collectedCount++] = unit;
+                }
+            }
+
+            for (int i = 0; i < collectedCount; i++)
+            {
+                int unit = collected[i];
+                for (int trait : traitsOfUnit[unit])
+                {
+                    traitCounts[trait] += multiplicity[unit];
+                }
+            }
+
+            // Keep the units whose every trait is shared with another collected unit, the next level starts from their unvisited traits
+            long[] nextLevel = new long[level.length];
+            List<Unit> kept = new ArrayList<>();
+            for (int i = 0; i < collectedCount; i++)
+            {
+                int unit = collected[i];
+                if (!sharesEveryTrait(unit, traitCounts))
+                    continue;
+
+                for (int copy = 0; copy < multiplicity[unit]; copy++)
+                {
+                    kept.add(unitsByOrdinal[unit]);
+                }
+                for (int trait : traitsOfUnit[unit])
+                {
+                    if (!isSet(visitedTraits, trait))
+                        set(nextLevel, trait);
+                }
+            }
+
+            synergies = Collections.unmodifiableList(kept);
+            level = nextLevel;
+        }
+
+        return synergies;
+    }
+
+    private boolean sharesEveryTrait(int unit, int[] traitCounts)
+    {
+        for (int trait : traitsOfUnit[unit])
+        {
+            if (traitCounts[trait] < 2)
+                return false;
+        }
+        return true;
+    }
+
+    private static void set(long[] mask, int bit)
+    {
+        mask[bit >>> 6] |= 1L << bit;
+    }
+
+    private static boolean isSet(long[] mask, int bit)
+    {
+        int word = bit >>> 6;
+        return word < mask.length && (mask[word] & (1L << bit)) != 0;
+    }
+
+    private static boolean isEmpty(long[] mask)
+    {
+        for (long word : mask)
+        {
+            if (word != 0)
+                return false;
+        }
+        return true;
+    }
+
+    private static int nextSetBit(long[] mask, int from)
+    {
+        int word = from >>> 6;
+        if (word >= mask.length)
+            return -1;
+
+        long bits = mask[word] & (-1L << from);
+        while (true)
+        {
+            if (bits != 0)
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            if (++word == mask.length)
+                return -1;
+            bits = mask[word];
+        }
+    }
+
+    private static final class NeighbourhoodKey
+    {
+        private final long[] startTraits;
+        private final long[] excludedTraits;
+        private final long[] availableUnits;
+        private final int depth;
+        private final int hash;
+
+        private NeighbourhoodKey(long[] startTraits, long[] excludedTraits, long[] availableUnits, int depth)
+        {
+            this.startTraits = startTraits;
+            this.excludedTraits = excludedTraits;
+            this.availableUnits = availableUnits.clone();
+            this.depth = depth;
+            this.hash = Objects.hash(Arrays.hashCode(startTraits), Arrays.hashCode(excludedTraits), Arrays.hashCode(this.availableUnits), depth);
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) return true;
+            if (!(o instanceof NeighbourhoodKey other)) return false;
+            return hash == other.hash
+                    && depth == other.depth
+                    && Arrays.equals(startTraits, other.startTraits)
+                    && Arrays.equals(excludedTraits, other.excludedTraits)
+                    && Arrays.equals(availableUnits, other.availableUnits);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.tfttools.util;
+
+import com.tfttools.domain.Trait;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable per-set lookup of trait threshold data, addressed by ({@link Trait#getOrdinal()}, current trait count).
+ * Built once when the traits of a set are loaded, it answers the same questions as the threshold scans in
+ * {@link CompositionUtils} in O(1) and without allocating, which matters inside the scorers' per-candidate loops.
+ * Counts past a trait's last row resolve to that last row, since every answer is constant from there on.
+ */
+public final class TraitThresholdTable
+{
+    private static final byte REACHED_FIRST_THRESHOLD = 1;
+    private static final byte ACTIVATES_NEXT_THRESHOLD = 1 << 1;
+
+    private final int[] rowOffsets;
+    private final int[] lastRows;
+
+    private final int[] nextThresholds;
+    private final int[] previousThresholds;
+    private final int[] styleTiers;
+    private final byte[] flags;
+
+    private TraitThresholdTable(int[] rowOffsets, int[] lastRows, int rowCount)
+    {
+        this.rowOffsets = rowOffsets;
+        this.lastRows = lastRows;
+        this.nextThresholds = new int[rowCount];
+        this.previousThresholds = new int[rowCount];
+        this.styleTiers = new int[rowCount];
+        this.flags = new byte[rowCount];
+    }
+
+    /**
+     * Builds the table for the traits of a set
+     *
+     * @param traits          All traits of the set
+     * @param ordinalCapacity Exclusive upper bound of the trait ordinals
+     * @return The table
+     */
+    public static TraitThresholdTable build(Collection<Trait> traits, int ordinalCapacity)
+    {
+        int[] rowOffsets = new int[ordinalCapacity];
+        int[] lastRows = new int[ordinalCapacity];
+
+        // Rows cover counts 0 .. max threshold + 1, traits without thresholds get a single row
+        int rowCount = 0;
+        for (Trait trait : traits)
+        {
+            int[] thresholds = trait.getThresholds();
+            int lastRow = thresholds.length == 0 ? 0 : thresholds[thresholds.length - 1] + 1;
+
+            rowOffsets[trait.getOrdinal()] = rowCount;
+            lastRows[trait.getOrdinal()] = lastRow;
+            rowCount += lastRow + 1;
+        }
+
+        TraitThresholdTable table = new TraitThresholdTable(rowOffsets, lastRows, rowCount);
+        for (Trait trait : traits)
+        {
+            table.fillRows(trait);
+        }
+        return table;
+    }
+
+    private void fillRows(Trait trait)
+    {
+        int[] thresholds = trait.getThresholds();
+        List<Integer> styles = trait.getStyles();
+        int offset = rowOffsets[trait.getOrdinal()];
+
+        for (int count = 0; count <= lastRows[trait.getOrdinal()]; count++)
+        {
+            int row = offset + count;
+
+            if (thresholds.length == 0)
+            {
+                nextThresholds[row] = -1;
+                continue;
+            }
+
+            int next = CompositionUtils.INSTANCE.getNextThreshold(trait, count);
+            nextThresholds[row] = next;
+            previousThresholds[row] = CompositionUtils.INSTANCE.getPreviousThreshold(trait, count);
+
+            byte rowFlags = 0;
+            if (count >= thresholds[0])
+                rowFlags |= REACHED_FIRST_THRESHOLD;
+            if (count < next && next - count == 1)
+                rowFlags |= ACTIVATES_NEXT_THRESHOLD;
+            flags[row] = rowFlags;
+
+            int tier = 0;
+            for (int i = 0; i < thresholds.length && count >= thresholds[i]; i++)
+            {
+                tier = styles != null && i < styles.size() ? styles.get(i) : i + 1;
+            }
+            styleTiers[row] = tier;
+        }
+    }
+
+    private int row(Trait trait, int currentTraitCount)
+    {
+        int ordinal = trait.getOrdinal();
+        return rowOffsets[ordinal] + Math.min(Math.max(currentTraitCount, 0), lastRows[ordinal]);
+    }
+
+    /**
+     * @see CompositionUtils#getNextThreshold(Trait, int)
+     */
+    public int getNextThreshold(Trait trait, int currentTraitCount)
+    {
+        return nextThresholds[row(trait, currentTraitCount)];
+    }
+
+    /**
+     * @see CompositionUtils#getPreviousThreshold(Trait, int)
+     */
+    public int getPreviousThreshold(Trait trait, int currentTraitCount)
+    {
+        return previousThresholds[row(trait, currentTraitCount)];
+    }
+
+    /**
+     * @see CompositionUtils#willActivateNextThreshold(Trait, int)
+     */
+    public boolean willActivateNextThreshold(Trait trait, int currentTraitCount)
+    {
+        return (flags[row(trait, currentTraitCount)] & ACTIVATES_NEXT_THRESHOLD) != 0;
+    }
+
+    /**
+     * @see CompositionUtils#hasReachedFirstThreshold(Trait, int)
+     */
+    public boolean hasReachedFirstThreshold(Trait trait, int currentTraitCount)
+    {
+        return (flags[row(trait, currentTraitCount)] & REACHED_FIRST_THRESHOLD) != 0;
+    }
+
+    /**
+     * Gets the style of the highest threshold reached, as reported by Community Dragon for that threshold
+     *
+     * @return The style tier, 0 if no threshold is reached
+     */
+    public int getStyleTier(Trait trait, int currentTraitCount)
+    {
+        return styleTiers[row(trait, currentTraitCount)];
+    }
+}
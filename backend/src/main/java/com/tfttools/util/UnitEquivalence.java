@@ -0,0 +1,142 @@
+package com.tfttools.util;
+
+import com.tfttools.domain.Trait;
+import com.tfttools.domain.Unit;
+
+import java.util.*;
+
+/**
+ * Immutable grouping of the units of a set by the traits they carry, built once when the units of a set are loaded.
+ * Units with the same traits form an equivalence class: for the number of activated traits of a board they are
+ * interchangeable. A unit is dominated by another one carrying every trait it carries, and more, or the same traits at a
+ * lower ordinal. Swapping a unit for one that dominates it never activates fewer traits, so searches only need to
+ * branch on a unit while none of the units dominating it can still be picked.
+ */
+public final class UnitEquivalence
+{
+    private final Unit[] unitsByOrdinal;
+    private final List<List<Unit>> classes;
+    private final int[] classOfUnit;
+    private final List<List<Unit>> dominatorsOfUnit;
+    private final List<List<Unit>> dominatedByUnit;
+
+    private UnitEquivalence(int unitOrdinalCapacity)
+    {
+        this.unitsByOrdinal = new Unit[unitOrdinalCapacity];
+        this.classes = new ArrayList<>();
+        this.classOfUnit = new int[unitOrdinalCapacity];
+        this.dominatorsOfUnit = new ArrayList<>(Collections.nCopies(unitOrdinalCapacity, List.of()));
+        this.dominatedByUnit = new ArrayList<>(Collections.nCopies(unitOrdinalCapacity, List.of()));
+    }
+
+    /**
+     * Groups the units of a set
+     *
+     * @param units               Units of the set
+     * @param unitOrdinalCapacity Exclusive upper bound of the unit ordinals
+     * @return The grouping
+     */
+    public static UnitEquivalence build(Collection<Unit> units, int unitOrdinalCapacity)
+    {
+        UnitEquivalence equivalence = new UnitEquivalence(unitOrdinalCapacity);
+        List<Unit> ordered = units.stream().sorted(Comparator.comparingInt(Unit::getOrdinal)).toList();
+
+        Map<List<Integer>, Integer> classBySignature = new HashMap<>();
+        Map<Unit, List<Integer>> signatures = new HashMap<>();
+        for (Unit unit : ordered)
+        {
+            List<Integer> signature = signature(unit);
+            signatures.put(unit, signature);
+            equivalence.unitsByOrdinal[unit.getOrdinal()] = unit;
+
+            int classIndex = classBySignature.computeIfAbsent(signature, key ->
+            {
+                equivalence.classes.add(new ArrayList<>());
+                return equivalence.classes.size() - 1;
+            });
+            equivalence.classes.get(classIndex).add(unit);
+            equivalence.classOfUnit[unit.getOrdinal()] = classIndex;
+        }
+        equivalence.classes.replaceAll(Collections::unmodifiableList);
+
+        for (Unit unit : ordered)
+        {
+            List<Integer> signature = signatures.get(unit);
+            equivalence.dominatorsOfUnit.set(unit.getOrdinal(), ordered.stream()
+                    .filter(other -> other != unit && dominates(signatures.get(other), other, signature, unit))
+                    .toList());
+            equivalence.dominatedByUnit.set(unit.getOrdinal(), ordered.stream()
+                    .filter(other -> other != unit && dominates(signature, unit, signatures.get(other), other))
+                    .toList());
+        }
+        return equivalence;
+    }
+
+    // Trait ordinals of the unit in ascending order, once per occurrence
+    private static List<Integer> signature(Unit unit)
+    {
+        return unit.getTraits().stream().map(Trait::getOrdinal).sorted().toList();
+    }
+
+    private static boolean dominates(List<Integer> signature, Unit unit, List<Integer> otherSignature, Unit other)
+    {
+        if (signature.equals(otherSignature))
+            return unit.getOrdinal() < other.getOrdinal();
+        return signature.size() > otherSignature.size() && containsAll(signature, otherSignature);
+    }
+
+    // Multiset inclusion of two ascending lists
+    private static boolean containsAll(List<Integer> signature, List<Integer> subset)
+    {
+        int i = 0;
+        for (int trait : subset)
+        {
+            while (i < signature.size() && signature.get(i) < trait)
+                i++;
+            if (i == signature.size() || signature.get(i) != trait)
+                return false;
+            i++;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the units carrying exactly the traits of the unit, itself included, in ordinal order
+     */
+    public List<Unit> getEquivalents(Unit unit)
+    {
+        if (unit.getOrdinal() >= classOfUnit.length || unitsByOrdinal[unit.getOrdinal()] != unit)
+            return List.of(unit);
+        return classes.get(classOfUnit[unit.getOrdinal()]);
+    }
+
+    /**
+     * Gets the units dominating the unit: those with the same traits at a lower ordinal and those with more traits
+     * including all of its own
+     */
+    public List<Unit> getDominators(Unit unit)
+    {
+        if (unit.getOrdinal() >= unitsByOrdinal.length || unitsByOrdinal[unit.getOrdinal()] != unit)
+            return List.of();
+        return dominatorsOfUnit.get(unit.getOrdinal());
+    }
+
+    /**
+     * Gets the units the unit dominates, the reverse of {@link #getDominators(Unit)}
+     */
+    public List<Unit> getDominated(Unit unit)
+    {
+        if (unit.getOrdinal() >= unitsByOrdinal.length || unitsByOrdinal[unit.getOrdinal()] != unit)
+            return List.of();
+        return dominatedByUnit.get(unit.getOrdinal());
+    }
+
+    /**
+     * Gets the number of distinct trait signatures, the branching factor of a search over every unit of the set once
+     * equivalent units are collapsed
+     */
+    public int getClassCount()
+    {
+        return classes.size();
+    }
+}
@@ -0,0 +1,93 @@
+package com.tfttools.web.client;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tfttools.domain.communitydragon.CommunityDragonItems;
+import com.tfttools.domain.communitydragon.CommunityDragonObject;
+import com.tfttools.domain.communitydragon.CommunityDragonSet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the Community Dragon en_us.json from a stream, keeping only the parts of it the repositories use: the champions
+ * and traits of one set, and the emblem items of that set. Every other set and item is skipped token by token without
+ * being materialized, so reading the file takes little more memory than the set it keeps.
+ */
+public final class CommunityDragonDataReader {
+
+    private static final ObjectMapper MAPPER = CommunityDragonWebClient.createCommunityDragonObjectMapper();
+
+    private CommunityDragonDataReader() {
+    }
+
+    /**
+     * Reads the data of a set, closing the stream once the data is read
+     *
+     * @param setNumber Number of the set to keep, as keyed in the file, null to keep every set and item
+     */
+    public static CommunityDragonObject read(InputStream inputStream, String setNumber) throws IOException {
+        CommunityDragonObject communityDragonObject = new CommunityDragonObject();
+        communityDragonObject.setSets(new HashMap<>());
+        communityDragonObject.setItems(new ArrayList<>());
+
+        try (JsonParser parser = MAPPER.createParser(inputStream)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+
+                switch (field) {
+                    case "sets" -> readSets(parser, setNumber, communityDragonObject.getSets());
+                    case "items" -> readItems(parser, setNumber, communityDragonObject.getItems());
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return communityDragonObject;
+    }
+
+    private static void readSets(JsonParser parser, String setNumber, Map<String, CommunityDragonSet> sets) throws IOException {
+        expect(parser, parser.currentToken(), JsonToken.START_OBJECT);
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String set = parser.currentName();
+            parser.nextToken();
+
+            if (setNumber == null || setNumber.equals(set)) {
+                sets.put(set, MAPPER.readValue(parser, CommunityDragonSet.class));
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static void readItems(JsonParser parser, String setNumber, List<CommunityDragonItems> items) throws IOException {
+        expect(parser, parser.currentToken(), JsonToken.START_ARRAY);
+
+        // Items are small, unknown properties are skipped while binding so only the kept fields are read
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            CommunityDragonItems item = MAPPER.readValue(parser, CommunityDragonItems.class);
+            if (setNumber == null || isEmblemOfSet(item, setNumber)) {
+                items.add(item);
+            }
+        }
+    }
+
+    private static boolean isEmblemOfSet(CommunityDragonItems item, String setNumber) {
+        String apiName = item.getApiName();
+        return apiName != null && apiName.startsWith("TFT" + setNumber) && apiName.endsWith("EmblemItem");
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Expected " + expected + " but found " + actual + " at " + parser.currentLocation());
+        }
+    }
+}
@@ -5,14 +5,25 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategies;
 import com.tfttools.domain.communitydragon.CommunityDragonObject;
 import com.tfttools.domain.communitydragon.TeamPlannerData;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.http.codec.json.Jackson2JsonDecoder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.UncheckedIOException;
 import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 public class CommunityDragonWebClient {
@@ -20,13 +31,15 @@ public class CommunityDragonWebClient {
 
     //todo future https://raw.communitydragon.org/latest/game/data/characters/ to get img of chars
 
+    private static final int STREAM_BUFFER_SIZE = 256 * 1024;
+
     private final WebClient webClient;
     
-    public CommunityDragonWebClient() {
+    public CommunityDragonWebClient(@Value("${tft.communitydragon.base-url:https://raw.communitydragon.org}") String baseUrl) {
 
         ObjectMapper objectMapper = createCommunityDragonObjectMapper();
         this.webClient = WebClient.builder()
-                .baseUrl("https://raw.communitydragon.org")
+                .baseUrl(baseUrl)
                 .defaultHeader(HttpHeaders.USER_AGENT, "TFTTools/1.0")
                 .codecs(configurer -> {
                     configurer.defaultCodecs().maxInMemorySize(50 * 1024 * 1024); // 50MB
@@ -51,13 +64,68 @@ public class CommunityDragonWebClient {
                 .timeout(Duration.ofSeconds(30));
     }
 
-    public Mono<CommunityDragonObject> fetchDataIfModified(String ifModifiedSince) {
+    /**
+     * Fetches the data of a set along with the headers, answered with an empty 304 Not Modified when it did not change
+     * since the given Last-Modified date. The body is parsed as it streams in with {@link CommunityDragonDataReader},
+     * instead of being buffered whole, so it must be subscribed to from a thread that may block.
+     *
+     * @param ifModifiedSince Last-Modified header of the data held, null to always download it
+     * @param setNumber       Number of the set to keep, null to keep every set and item
+     */
+    public Mono<ResponseEntity<CommunityDragonObject>> fetchDataIfModified(String ifModifiedSince, String setNumber) {
         return webClient.get()
             .uri("/latest/cdragon/tft/en_us.json")
-            .header(HttpHeaders.IF_MODIFIED_SINCE, ifModifiedSince)
+            .headers(headers -> {
+                if (ifModifiedSince != null && !ifModifiedSince.isEmpty()) {
+                    headers.set(HttpHeaders.IF_MODIFIED_SINCE, ifModifiedSince);
+                }
+            })
             .retrieve()
-            .onStatus(HttpStatus.NOT_MODIFIED::equals, response -> Mono.empty())
-            .bodyToMono(CommunityDragonObject.class);
+            .toEntityFlux(DataBuffer.class)
+            .timeout(Duration.ofSeconds(30))
+            .map(response -> new ResponseEntity<>(
+                    response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED) ? null : readStreaming(response.getBody(), setNumber),
+                    response.getHeaders(), response.getStatusCode()));
+    }
+
+    // Pipes the body to the parser, which reads it on the subscribing thread as buffers arrive
+    private static CommunityDragonObject readStreaming(Flux<DataBuffer> body, String setNumber) {
+        if (body == null) {
+            return null;
+        }
+
+        // Recorded before the pipe is closed, so the parser failing on the cut off body can report why it was cut off
+        AtomicReference<Throwable> downloadError = new AtomicReference<>();
+        try (PipedInputStream inputStream = new PipedInputStream(STREAM_BUFFER_SIZE)) {
+            PipedOutputStream outputStream = new PipedOutputStream(inputStream);
+            DataBufferUtils.write(body.timeout(Duration.ofSeconds(30)), outputStream)
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .doOnError(downloadError::set)
+                    .doFinally(signal -> closeQuietly(outputStream))
+                    .subscribe(DataBufferUtils.releaseConsumer(), error -> { });
+
+            try {
+                return CommunityDragonDataReader.read(inputStream, setNumber);
+            } catch (IOException e) {
+                Throwable failure = downloadError.get();
+                if (failure != null) {
+                    IllegalStateException downloadFailure = new IllegalStateException("Failed to download Community Dragon data", failure);
+                    downloadFailure.addSuppressed(e);
+                    throw downloadFailure;
+                }
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read Community Dragon data", e);
+        }
+    }
+
+    private static void closeQuietly(PipedOutputStream outputStream) {
+        try {
+            outputStream.close();
+        } catch (IOException ignored) {
+            // The reader gave up on the stream already
+        }
     }
 
     public static ObjectMapper createCommunityDragonObjectMapper() {
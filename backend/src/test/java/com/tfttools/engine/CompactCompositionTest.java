@@ -0,0 +1,87 @@
+package com.tfttools.engine;
+
+import com.tfttools.domain.Composition;
+import com.tfttools.domain.Trait;
+import com.tfttools.domain.Unit;
+import com.tfttools.util.CompositionUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactCompositionTest {
+    // More than 64 units, so unit masks span several words
+    private final SyntheticSet set = SyntheticSet.generate(1, 12, 130);
+
+    private CompactComposition newCompactComposition() {
+        return new CompactComposition(set.getUnits().size(), set.getTraits().size());
+    }
+
+    @Test
+    public void randomAddsAndRemovesMatchComposition() {
+        Random random = new Random(42);
+        CompactComposition compact = newCompactComposition();
+        Composition composition = new Composition();
+
+        for (int step = 0; step < 5000; step++) {
+            Unit unit = set.getUnits().get(random.nextInt(set.getUnits().size()));
+            if (random.nextInt(3) == 0 || compact.size() >= 10) {
+                boolean wasPresent = composition.contains(unit);
+                assertEquals(wasPresent, compact.remove(unit));
+                composition.remove(unit);
+            } else if (!composition.contains(unit)) {
+                assertTrue(compact.add(unit));
+                composition.add(unit);
+            } else {
+                assertFalse(compact.add(unit));
+            }
+
+            assertMatches(composition, compact);
+        }
+    }
+
+    @Test
+    public void unitsKeepTheOrderTheyWereAddedIn() {
+        CompactComposition compact = newCompactComposition();
+        List<Unit> added = List.of(set.getUnits().get(100), set.getUnits().get(3), set.getUnits().get(64), set.getUnits().get(63));
+        added.forEach(compact::add);
+        compact.remove(set.getUnits().get(3));
+
+        List<Unit> expected = List.of(set.getUnits().get(100), set.getUnits().get(64), set.getUnits().get(63));
+        assertEquals(expected, compact.getUnits());
+        assertEquals(expected, compact.toComposition().getUnits());
+    }
+
+    @Test
+    public void copyIsIndependentOfTheOriginal() {
+        CompactComposition original = newCompactComposition();
+        original.add(set.getUnits().get(0));
+        original.add(set.getUnits().get(70));
+
+        CompactComposition copy = new CompactComposition(original);
+        copy.add(set.getUnits().get(5));
+        copy.remove(set.getUnits().get(0));
+
+        assertEquals(List.of(set.getUnits().get(0), set.getUnits().get(70)), original.getUnits());
+        assertEquals(List.of(set.getUnits().get(70), set.getUnits().get(5)), copy.getUnits());
+        assertMatches(new Composition(original.getUnits()), original);
+        assertMatches(new Composition(copy.getUnits()), copy);
+    }
+
+    private void assertMatches(Composition composition, CompactComposition compact) {
+        assertEquals(composition.size(), compact.size());
+        assertEquals(new HashSet<>(composition.getUnits()), new HashSet<>(compact.getUnits()));
+        for (Unit unit : set.getUnits()) {
+            assertEquals(composition.contains(unit), compact.contains(unit), unit.getName());
+        }
+        for (Trait trait : set.getTraits()) {
+            assertEquals(composition.getTraits().getOrDefault(trait, 0), compact.getTraitCount(trait), trait.getName());
+        }
+
+        assertEquals(CompositionUtils.INSTANCE.getActivatedTraits(composition).size(), compact.getActivatedTraitCount());
+        assertEquals(compact.toComposition(), composition);
+    }
+}
@@ -0,0 +1,149 @@
+package com.tfttools.engine;
+
+import com.tfttools.domain.EngineConfiguration;
+import com.tfttools.domain.Trait;
+import com.tfttools.domain.Unit;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks every partial board of small pools against the boards it can actually be completed into
+ */
+public class RequirementFeasibilityTest {
+    private static final int POOL_SIZE = 12;
+
+    @Test
+    public void neverRejectsAStateThatCanBeCompleted() {
+        Random random = new Random(5);
+        int rejected = 0;
+
+        for (int round = 0; round < 60; round++) {
+            SyntheticSet set = SyntheticSet.generate(round, 8, POOL_SIZE);
+            List<Unit> pool = set.getUnits();
+            int maxUnits = 4 + random.nextInt(3);
+            EngineConfiguration configuration = randomRequirements(random, pool, maxUnits);
+            RequirementFeasibility feasibility = new RequirementFeasibility(configuration, pool, POOL_SIZE);
+
+            List<Integer> validBoards = new ArrayList<>();
+            List<Integer> states = new ArrayList<>();
+            for (int board = 0; board < 1 << POOL_SIZE; board++) {
+                if (Integer.bitCount(board) > maxUnits) {
+                    continue;
+                }
+                states.add(board);
+                if (meetsRequirements(board, pool, configuration)) {
+                    validBoards.add(board);
+                }
+            }
+
+            for (int state : states) {
+                boolean completable = false;
+                for (int board : validBoards) {
+                    if ((board & state) == state) {
+                        completable = true;
+                        break;
+                    }
+                }
+
+                boolean feasible = feasibility.isFeasible(toComposition(state, set));
+                if (completable) {
+                    assertTrue(feasible, "round " + round + ", " + configuration.getRequiredUnits() + " "
+                            + configuration.getRequiredTraits() + ", state " + unitsOf(state, pool));
+                } else if (!feasible) {
+                    rejected++;
+                }
+            }
+        }
+
+        // The check must cut something, or it would pass by accepting every state
+        assertTrue(rejected > 0);
+    }
+
+    @Test
+    public void acceptsEveryStateWithoutRequirements() {
+        SyntheticSet set = SyntheticSet.generate(1, 8, POOL_SIZE);
+        EngineConfiguration configuration = configuration(Map.of(), Set.of(), 5);
+        RequirementFeasibility feasibility = new RequirementFeasibility(configuration, set.getUnits(), POOL_SIZE);
+
+        assertFalse(feasibility.hasRequirements());
+        assertTrue(feasibility.isFeasible(toComposition(0b11111, set)));
+    }
+
+    @Test
+    public void rejectsARequiredUnitOutsideOfThePool() {
+        SyntheticSet set = SyntheticSet.generate(1, 8, POOL_SIZE);
+        Unit filteredOut = set.getUnits().get(POOL_SIZE - 1);
+        List<Unit> pool = set.getUnits().subList(0, POOL_SIZE - 1);
+        RequirementFeasibility feasibility = new RequirementFeasibility(configuration(Map.of(), Set.of(filteredOut), 5), pool, POOL_SIZE);
+
+        assertFalse(feasibility.isFeasible(toComposition(0, set)));
+    }
+
+    private static EngineConfiguration randomRequirements(Random random, List<Unit> pool, int maxUnits) {
+        Set<Unit> requiredUnits = new HashSet<>();
+        int requiredUnitCount = random.nextInt(3);
+        while (requiredUnits.size() < requiredUnitCount) {
+            requiredUnits.add(pool.get(random.nextInt(pool.size())));
+        }
+
+        Map<Trait, Integer> requiredTraits = new HashMap<>();
+        int requiredTraitCount = 1 + random.nextInt(3);
+        for (int i = 0; i < requiredTraitCount; i++) {
+            List<Trait> traits = pool.get(random.nextInt(pool.size())).getTraits();
+            requiredTraits.put(traits.get(random.nextInt(traits.size())), 1 + random.nextInt(4));
+        }
+        return configuration(requiredTraits, requiredUnits, maxUnits);
+    }
+
+    private static EngineConfiguration configuration(Map<Trait, Integer> requiredTraits, Set<Unit> requiredUnits, int maxUnits) {
+        return EngineConfiguration.builder()
+                .compSize(maxUnits)
+                .requiredTraits(requiredTraits)
+                .requiredUnits(requiredUnits)
+                .excludedTraits(Set.of())
+                .excludedUnits(Set.of())
+                .tactitionLevel(maxUnits)
+                .emblems(Set.of())
+                .build();
+    }
+
+    private static boolean meetsRequirements(int board, List<Unit> pool, EngineConfiguration configuration) {
+        List<Unit> units = unitsOf(board, pool);
+        if (!units.containsAll(configuration.getRequiredUnits())) {
+            return false;
+        }
+        Map<Trait, Integer> counts = new HashMap<>();
+        for (Unit unit : units) {
+            for (Trait trait : unit.getTraits()) {
+                counts.merge(trait, 1, Integer::sum);
+            }
+        }
+        return configuration.getRequiredTraits().entrySet().stream()
+                .allMatch(required -> counts.getOrDefault(required.getKey(), 0) >= required.getValue());
+    }
+
+    private static CompactComposition toComposition(int board, SyntheticSet set) {
+        CompactComposition composition = new CompactComposition(POOL_SIZE, set.getTraits().size());
+        unitsOf(board, set.getUnits()).forEach(composition::add);
+        return composition;
+    }
+
+    private static List<Unit> unitsOf(int board, List<Unit> pool) {
+        List<Unit> units = new ArrayList<>();
+        for (int i = 0; i < pool.size(); i++) {
+            if ((board & 1 << i) != 0) {
+                units.add(pool.get(i));
+            }
+        }
+        return units;
+    }
+}
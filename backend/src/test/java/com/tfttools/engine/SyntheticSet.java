@@ -0,0 +1,114 @@
+package com.tfttools.engine;
+
+import com.tfttools.domain.Role;
+import com.tfttools.domain.Trait;
+import com.tfttools.domain.Unit;
+import com.tfttools.repository.UnitRepository;
+import com.tfttools.util.SynergyGraph;
+import com.tfttools.util.UnitEquivalence;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Traits and units of a made up set, generated from a seed so every run of a test sees the same set.
+ * Traits cycle through several threshold shapes, the last one is unique, and every unit carries one to three traits.
+ */
+public final class SyntheticSet {
+    private static final int[][] THRESHOLDS = {{2, 4, 6}, {3, 5, 7}, {2, 3, 4, 5}, {1, 3}, {4}};
+
+    private final List<Trait> traits;
+    private final List<Unit> units;
+
+    private SyntheticSet(List<Trait> traits, List<Unit> units) {
+        this.traits = traits;
+        this.units = units;
+    }
+
+    /**
+     * @param traitCount Number of traits, the last one being unique
+     * @param unitCount  Number of units, with ordinals 0 to unitCount - 1
+     */
+    public static SyntheticSet generate(long seed, int traitCount, int unitCount) {
+        Random random = new Random(seed);
+
+        List<Trait> traits = new ArrayList<>();
+        for (int t = 0; t < traitCount - 1; t++) {
+            int[] thresholds = THRESHOLDS[t % THRESHOLDS.length];
+            List<Integer> styles = new ArrayList<>();
+            for (int i = 0; i < thresholds.length; i++) {
+                styles.add(i + 1);
+            }
+            traits.add(new Trait("TFT99_Trait" + t, "Trait" + t, thresholds.clone(), styles, t));
+        }
+        traits.add(new Trait("TFT99_SoloUniqueTrait", "Solo", new int[]{1}, List.of(1), traitCount - 1));
+
+        List<Unit> units = new ArrayList<>();
+        for (int u = 0; u < unitCount; u++) {
+            Set<Trait> unitTraits = new LinkedHashSet<>();
+            int traitsCarried = 1 + random.nextInt(3);
+            while (unitTraits.size() < traitsCarried) {
+                unitTraits.add(traits.get(random.nextInt(traitCount - 1)));
+            }
+            if (u % 11 == 0) {
+                unitTraits.add(traits.get(traitCount - 1));
+            }
+            units.add(new Unit("TFT99_Unit" + u, "Unit" + u, 1 + u % 5, Role.APCASTER, null, new ArrayList<>(unitTraits), u));
+        }
+        return new SyntheticSet(List.copyOf(traits), List.copyOf(units));
+    }
+
+    public List<Trait> getTraits() {
+        return traits;
+    }
+
+    public List<Unit> getUnits() {
+        return units;
+    }
+
+    /**
+     * Creates a unit repository serving the units of this set, for the scorers and searches reading one
+     */
+    public UnitRepository createUnitRepository() {
+        Map<Trait, List<Unit>> unitsByTrait = new HashMap<>();
+        for (Unit unit : units) {
+            for (Trait trait : unit.getTraits()) {
+                unitsByTrait.computeIfAbsent(trait, key -> new ArrayList<>()).add(unit);
+            }
+        }
+        SynergyGraph synergyGraph = SynergyGraph.build(unitsByTrait, units.size(), traits.size());
+        UnitEquivalence unitEquivalence = UnitEquivalence.build(units, units.size());
+
+        return new UnitRepository(null) {
+            @Override
+            public List<Unit> getUnitsByTrait(Trait trait) {
+                return unitsByTrait.getOrDefault(trait, List.of());
+            }
+
+            @Override
+            public SynergyGraph getSynergyGraph() {
+                return synergyGraph;
+            }
+
+            @Override
+            public UnitEquivalence getUnitEquivalence() {
+                return unitEquivalence;
+            }
+
+            @Override
+            public Set<Unit> getAllUnits() {
+                return new LinkedHashSet<>(units);
+            }
+
+            @Override
+            public int getOrdinalCapacity() {
+                return units.size();
+            }
+        };
+    }
+}
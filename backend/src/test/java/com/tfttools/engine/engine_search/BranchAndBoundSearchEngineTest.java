@@ -0,0 +1,145 @@
+package com.tfttools.engine.engine_search;
+
+import com.tfttools.domain.Composition;
+import com.tfttools.domain.EngineConfiguration;
+import com.tfttools.domain.Trait;
+import com.tfttools.domain.Unit;
+import com.tfttools.engine.SearchBudget;
+import com.tfttools.engine.SyntheticSet;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the branch and bound search with scoring every board of a small pool
+ */
+public class BranchAndBoundSearchEngineTest {
+    private static final int RESULT_COUNT = 10;
+    private static final int MAX_UNITS = 5;
+
+    @Test
+    public void findsTheBestBoardsOfEveryPool() {
+        for (long seed = 0; seed < 20; seed++) {
+            SyntheticSet set = SyntheticSet.generate(seed, 10, 16);
+            assertMatchesExhaustiveSearch(set, configuration(Map.of(), Set.of()), "seed " + seed);
+        }
+    }
+
+    @Test
+    public void findsTheBestBoardsWithRequiredUnitsAndTraits() {
+        for (long seed = 0; seed < 20; seed++) {
+            SyntheticSet set = SyntheticSet.generate(seed, 10, 16);
+            Unit requiredUnit = set.getUnits().get((int) seed % 16);
+            Trait requiredTrait = set.getUnits().get(((int) seed + 5) % 16).getTraits().get(0);
+            assertMatchesExhaustiveSearch(set, configuration(Map.of(requiredTrait, 2), Set.of(requiredUnit)), "seed " + seed);
+        }
+    }
+
+    @Test
+    public void unsatisfiableRequirementsFindNoBoard() {
+        SyntheticSet set = SyntheticSet.generate(3, 10, 16);
+        EngineConfiguration configuration = configuration(Map.of(set.getTraits().get(0), MAX_UNITS + 1), Set.of());
+        BranchAndBoundSearchEngine engine = engine(set, configuration, 5_000_000, SearchBudget.unlimited());
+
+        assertTrue(engine.buildCompositions().isEmpty());
+        assertTrue(engine.isProvenOptimal());
+    }
+
+    @Test
+    public void searchCutShortMarksTheSharedBudgetTruncated() {
+        SyntheticSet set = SyntheticSet.generate(4, 10, 16);
+        SearchBudget budget = SearchBudget.unlimited();
+        BranchAndBoundSearchEngine engine = engine(set, configuration(Map.of(), Set.of()), 10, budget);
+
+        engine.buildCompositions();
+
+        assertFalse(engine.isProvenOptimal());
+        assertTrue(budget.wasExhausted());
+    }
+
+    private static void assertMatchesExhaustiveSearch(SyntheticSet set, EngineConfiguration configuration, String label) {
+        SearchBudget budget = SearchBudget.unlimited();
+        BranchAndBoundSearchEngine engine = engine(set, configuration, 5_000_000, budget);
+        List<Composition> found = engine.buildCompositions();
+
+        assertTrue(engine.isProvenOptimal(), label);
+        assertFalse(budget.wasExhausted(), label);
+
+        List<Integer> expectedScores = exhaustiveScores(set.getUnits(), configuration);
+        assertFalse(expectedScores.isEmpty(), label);
+        List<Integer> foundScores = found.stream().map(composition -> score(composition.getUnits())).toList();
+        assertEquals(expectedScores.subList(0, Math.min(RESULT_COUNT, expectedScores.size())), foundScores, label);
+
+        assertEquals(found.size(), new HashSet<>(found).size(), label);
+        for (Composition composition : found) {
+            assertEquals(MAX_UNITS, composition.size(), label);
+            assertTrue(isValid(composition.getUnits(), configuration), label);
+        }
+    }
+
+    private static BranchAndBoundSearchEngine engine(SyntheticSet set, EngineConfiguration configuration, long nodeBudget,
+                                                     SearchBudget budget) {
+        return new BranchAndBoundSearchEngine(configuration, set.getUnits(), set.getTraits().size(), RESULT_COUNT,
+                Duration.ofSeconds(30), nodeBudget, budget);
+    }
+
+    private static EngineConfiguration configuration(Map<Trait, Integer> requiredTraits, Set<Unit> requiredUnits) {
+        return EngineConfiguration.builder()
+                .compSize(MAX_UNITS)
+                .requiredTraits(requiredTraits)
+                .requiredUnits(requiredUnits)
+                .excludedTraits(Set.of())
+                .excludedUnits(Set.of())
+                .tactitionLevel(MAX_UNITS)
+                .emblems(Set.of())
+                .build();
+    }
+
+    // Scores of every valid board of the pool, best first
+    private static List<Integer> exhaustiveScores(List<Unit> pool, EngineConfiguration configuration) {
+        List<Integer> scores = new ArrayList<>();
+        collectScores(pool, 0, new ArrayList<>(), configuration, scores);
+        scores.sort(Comparator.reverseOrder());
+        return scores;
+    }
+
+    private static void collectScores(List<Unit> pool, int from, List<Unit> board, EngineConfiguration configuration,
+                                      List<Integer> scores) {
+        if (board.size() == MAX_UNITS) {
+            if (isValid(board, configuration)) {
+                scores.add(score(board));
+            }
+            return;
+        }
+        for (int i = from; i < pool.size(); i++) {
+            board.add(pool.get(i));
+            collectScores(pool, i + 1, board, configuration, scores);
+            board.remove(board.size() - 1);
+        }
+    }
+
+    private static boolean isValid(List<Unit> board, EngineConfiguration configuration) {
+        if (!board.containsAll(configuration.getRequiredUnits())) {
+            return false;
+        }
+        Map<Trait, Integer> counts = new Composition(new ArrayList<>(board)).getTraits();
+        return configuration.getRequiredTraits().entrySet().stream()
+                .allMatch(required -> counts.getOrDefault(required.getKey(), 0) >= required.getValue());
+    }
+
+    // Traits reaching their first threshold, unique traits included
+    private static int score(List<Unit> board) {
+        Map<Trait, Integer> counts = new Composition(new ArrayList<>(board)).getTraits();
+        return (int) counts.entrySet().stream()
+                .filter(entry -> entry.getValue() >= entry.getKey().getThresholds()[0])
+                .count();
+    }
+}
@@ -0,0 +1,115 @@
+package com.tfttools.engine.engine_search;
+
+import com.tfttools.domain.Emblem;
+import com.tfttools.domain.EngineConfiguration;
+import com.tfttools.domain.Trait;
+import com.tfttools.domain.Unit;
+import com.tfttools.engine.CompactComposition;
+import com.tfttools.engine.EngineState;
+import com.tfttools.engine.SyntheticSet;
+import com.tfttools.engine.heuristic.Heuristic;
+import com.tfttools.engine.heuristic.WeightRegistry;
+import com.tfttools.util.TraitThresholdTable;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Moves a scoring cursor across random states and compares its weights with those of a heuristic built for each state,
+ * so every cached weight the incremental scorers keep has to be invalidated when a move changes it
+ */
+public class ScoringCursorTest {
+    private static final int MAX_UNITS = 8;
+
+    @Test
+    public void weightsMatchAFreshHeuristicAfterEveryMove() {
+        for (long seed = 0; seed < 5; seed++) {
+            SyntheticSet set = SyntheticSet.generate(seed, 12, 40);
+            EngineConfiguration configuration = configuration(set);
+            WeightRegistry registry = new WeightRegistry(configuration, set.createUnitRepository(),
+                    TraitThresholdTable.build(set.getTraits(), set.getTraits().size()));
+            Function<EngineState, Heuristic> heuristicFactory = state -> registry.builder()
+                    .with(
+                            registry.createSynergyLookahead(state),
+                            registry.createRequiredTraitsWeight(state),
+                            registry.createRequiredUnitsWeight(state),
+                            registry.createTraitsAddedWeightWithEmblems(state, registry.createEmblemWeightScorer(state)),
+                            registry.createEmblemWeightScorer(state)
+                    )
+                    .build();
+
+            assertMatchesAlongRandomWalk(set, configuration, heuristicFactory, new Random(seed));
+        }
+    }
+
+    private static void assertMatchesAlongRandomWalk(SyntheticSet set, EngineConfiguration configuration,
+                                                     Function<EngineState, Heuristic> heuristicFactory, Random random) {
+        EngineState target = new EngineState(newComposition(set), configuration, set.getUnits());
+        ScoringCursor cursor = new ScoringCursor(target, heuristicFactory);
+
+        for (int step = 0; step < 400; step++) {
+            target = random.nextInt(5) == 0 ? randomState(set, configuration, random) : neighbour(target, set, random);
+            Heuristic moved = cursor.moveTo(target);
+            Heuristic fresh = heuristicFactory.apply(target.copy());
+
+            // Scoring only some candidates leaves cached weights behind that later moves have to invalidate
+            boolean scoreAll = random.nextBoolean();
+            for (Unit unit : target.getAvailableUnits()) {
+                if (scoreAll || random.nextInt(3) == 0) {
+                    assertEquals(fresh.getWeight(unit), moved.getWeight(unit),
+                            "step " + step + ", " + unit.getName() + " on " + target.getCurrentComp().getUnits());
+                }
+            }
+        }
+    }
+
+    // The state with one to three units added or removed, as moving between states of a search mostly does
+    private static EngineState neighbour(EngineState state, SyntheticSet set, Random random) {
+        EngineState neighbour = state.copy();
+        int changes = 1 + random.nextInt(3);
+        for (int i = 0; i < changes; i++) {
+            CompactComposition composition = neighbour.getCurrentComp();
+            if (composition.size() > 0 && (composition.size() >= MAX_UNITS || random.nextBoolean())) {
+                List<Unit> units = composition.getUnits();
+                neighbour.removeUnit(units.get(random.nextInt(units.size())));
+            } else {
+                List<Unit> available = neighbour.getAvailableUnits();
+                neighbour.addUnit(available.get(random.nextInt(available.size())));
+            }
+        }
+        return neighbour;
+    }
+
+    private static EngineState randomState(SyntheticSet set, EngineConfiguration configuration, Random random) {
+        CompactComposition composition = newComposition(set);
+        int size = random.nextInt(MAX_UNITS + 1);
+        while (composition.size() < size) {
+            composition.add(set.getUnits().get(random.nextInt(set.getUnits().size())));
+        }
+        return new EngineState(composition, configuration, set.getUnits());
+    }
+
+    private static CompactComposition newComposition(SyntheticSet set) {
+        return new CompactComposition(set.getUnits().size(), set.getTraits().size());
+    }
+
+    private static EngineConfiguration configuration(SyntheticSet set) {
+        List<Trait> traits = set.getTraits();
+        return EngineConfiguration.builder()
+                .compSize(MAX_UNITS)
+                .requiredTraits(Map.of(traits.get(0), 3, traits.get(3), 2))
+                .requiredUnits(Set.of(set.getUnits().get(5)))
+                .excludedTraits(Set.of())
+                .excludedUnits(Set.of())
+                .tactitionLevel(MAX_UNITS)
+                .emblems(Set.of(new Emblem("Trait1 Emblem", traits.get(1)), new Emblem("Trait2 Emblem", traits.get(2))))
+                .luck(0.5f)
+                .build();
+    }
+}
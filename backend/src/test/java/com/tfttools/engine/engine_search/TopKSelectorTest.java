@@ -0,0 +1,73 @@
+package com.tfttools.engine.engine_search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TopKSelectorTest {
+
+    @Test
+    public void selectsBestScoresFirst() {
+        int[] scores = {5, 1, 9, 3, 7};
+
+        assertArrayEquals(new int[]{2, 4, 0}, TopKSelector.selectTopK(scores, scores.length, 3));
+    }
+
+    @Test
+    public void equalScoresResolveToTheLowerIndex() {
+        int[] scores = {4, 8, 4, 8, 4, 8};
+
+        assertArrayEquals(new int[]{1, 3, 5, 0}, TopKSelector.selectTopK(scores, scores.length, 4));
+        assertArrayEquals(new int[]{1, 3}, TopKSelector.selectTopK(scores, scores.length, 2));
+    }
+
+    @Test
+    public void selectsEveryCandidateWhenKExceedsTheCount() {
+        int[] scores = {2, 6, 4, 0, 0};
+
+        assertArrayEquals(new int[]{1, 2, 0}, TopKSelector.selectTopK(scores, 3, 10));
+        assertArrayEquals(new int[0], TopKSelector.selectTopK(scores, 0, 3));
+        assertArrayEquals(new int[0], TopKSelector.selectTopK(scores, 3, 0));
+    }
+
+    @Test
+    public void matchesAStableSortOfRandomScores() {
+        Random random = new Random(11);
+        for (int round = 0; round < 1000; round++) {
+            int count = random.nextInt(40);
+            int k = random.nextInt(45);
+            // Few distinct scores, so ties are common
+            int[] scores = random.ints(count + 3, -3, 4).toArray();
+
+            int[] expected = IntStream.range(0, count)
+                    .boxed()
+                    .sorted(Comparator.comparingInt((Integer candidate) -> scores[candidate]).reversed())
+                    .limit(k)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            assertArrayEquals(expected, TopKSelector.selectTopK(scores, count, k), "round " + round);
+        }
+    }
+
+    @Test
+    public void selectsEveryMaximumInAscendingOrder() {
+        int[] scores = {3, 7, 7, 1, 7, 9};
+
+        assertArrayEquals(new int[]{1, 2, 4}, TopKSelector.selectMaxima(scores, 5));
+        assertArrayEquals(new int[]{5}, TopKSelector.selectMaxima(scores, 6));
+        assertArrayEquals(new int[]{0}, TopKSelector.selectMaxima(scores, 1));
+        assertArrayEquals(new int[0], TopKSelector.selectMaxima(scores, 0));
+    }
+
+    @Test
+    public void selectsMaximaOfNegativeScores() {
+        int[] scores = {Integer.MIN_VALUE, -5, Integer.MIN_VALUE, -5};
+
+        assertArrayEquals(new int[]{1, 3}, TopKSelector.selectMaxima(scores, scores.length));
+        assertArrayEquals(new int[]{0, 1}, TopKSelector.selectMaxima(new int[]{Integer.MIN_VALUE, Integer.MIN_VALUE}, 2));
+    }
+}
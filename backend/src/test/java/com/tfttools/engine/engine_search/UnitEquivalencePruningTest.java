@@ -0,0 +1,161 @@
+package com.tfttools.engine.engine_search;
+
+import com.tfttools.domain.Composition;
+import com.tfttools.domain.EngineConfiguration;
+import com.tfttools.domain.Trait;
+import com.tfttools.domain.Unit;
+import com.tfttools.engine.CompactComposition;
+import com.tfttools.engine.EngineState;
+import com.tfttools.engine.RequirementFeasibility;
+import com.tfttools.engine.SearchBudget;
+import com.tfttools.engine.SyntheticSet;
+import com.tfttools.engine.heuristic.Heuristic;
+import com.tfttools.engine.heuristic.WeightRegistry;
+import com.tfttools.engine.manager.EngineTerminatorManager;
+import com.tfttools.repository.UnitRepository;
+import com.tfttools.util.TraitThresholdTable;
+import com.tfttools.util.UnitEquivalence;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that branching only on the units no available unit dominates neither loses the best board nor required units
+ */
+public class UnitEquivalencePruningTest {
+    private static final int MAX_UNITS = 5;
+    private static final int BEAM_WIDTH = 12;
+
+    @Test
+    public void branchingUnitsKeepRequiredUnitsAndADominatorOfEveryUnitLeftOut() {
+        for (long seed = 0; seed < 10; seed++) {
+            SyntheticSet set = SyntheticSet.generate(seed, 10, 30);
+            UnitEquivalence equivalence = set.createUnitRepository().getUnitEquivalence();
+            Unit requiredUnit = set.getUnits().get((int) seed);
+            EngineConfiguration configuration = configuration(Map.of(), Set.of(requiredUnit));
+            Random random = new Random(seed);
+
+            for (int round = 0; round < 50; round++) {
+                EngineState state = state(set, configuration, equivalence);
+                int size = random.nextInt(MAX_UNITS);
+                while (state.getCurrentComp().size() < size) {
+                    state.addUnit(set.getUnits().get(random.nextInt(set.getUnits().size())));
+                }
+
+                List<Unit> branchingUnits = state.getBranchingUnits();
+                assertEquals(state.isAvailable(requiredUnit), branchingUnits.contains(requiredUnit), "seed " + seed);
+                for (Unit unit : state.getAvailableUnits()) {
+                    if (!branchingUnits.contains(unit)) {
+                        assertTrue(equivalence.getDominators(unit).stream().anyMatch(state::isAvailable),
+                                "seed " + seed + ", " + unit.getName() + " left out without an available dominator");
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void branchingOnBranchingUnitsStillReachesTheBestBoard() {
+        for (long seed = 0; seed < 20; seed++) {
+            SyntheticSet set = SyntheticSet.generate(seed, 10, 16);
+            UnitEquivalence equivalence = set.createUnitRepository().getUnitEquivalence();
+
+            for (EngineConfiguration configuration : List.of(configuration(Map.of(), Set.of()), requiringConfiguration(set, seed))) {
+                int pruned = bestBoard(state(set, configuration, equivalence), new HashSet<>());
+                int unpruned = bestBoard(state(set, configuration, null), new HashSet<>());
+                assertEquals(unpruned, pruned, "seed " + seed + ", " + configuration.getRequiredUnits());
+            }
+        }
+    }
+
+    @Test
+    public void searchesBranchingOnBranchingUnitsKeepRequiredUnits() {
+        for (long seed = 0; seed < 20; seed++) {
+            SyntheticSet set = SyntheticSet.generate(seed, 10, 24);
+            EngineConfiguration configuration = requiringConfiguration(set, seed);
+            UnitRepository unitRepository = set.createUnitRepository();
+            WeightRegistry registry = new WeightRegistry(configuration, unitRepository,
+                    TraitThresholdTable.build(set.getTraits(), set.getTraits().size()));
+            Function<EngineState, Heuristic> heuristicFactory = state -> registry.builder()
+                    .with(
+                            registry.createSynergyLookahead(state),
+                            registry.createRequiredTraitsWeight(state),
+                            registry.createRequiredUnitsWeight(state),
+                            registry.createTraitsAddedWeight(state)
+                    )
+                    .build();
+            EngineTerminatorManager terminatorManager = new EngineTerminatorManager(configuration.getTactitionLevel(), configuration.getCrowns());
+            UnitEquivalence equivalence = unitRepository.getUnitEquivalence();
+
+            List<Composition> beam = new BeamSearchEngine(heuristicFactory, state(set, configuration, equivalence),
+                    terminatorManager, BEAM_WIDTH).buildCompositions();
+            List<Composition> exhaustive = new ExhaustiveSearchEngine(heuristicFactory, state(set, configuration, equivalence),
+                    terminatorManager, SearchBudget.unlimited()).buildCompositions();
+
+            assertFalse(beam.isEmpty(), "seed " + seed);
+            for (Composition composition : beam) {
+                assertTrue(composition.getUnits().containsAll(configuration.getRequiredUnits()), "beam, seed " + seed);
+            }
+            for (Composition composition : exhaustive) {
+                assertTrue(composition.getUnits().containsAll(configuration.getRequiredUnits()), "exhaustive, seed " + seed);
+            }
+        }
+    }
+
+    // Activated traits of the best complete board meeting the requirements, -1 if there is none
+    private static int bestBoard(EngineState state, Set<Set<Unit>> visited) {
+        CompactComposition composition = state.getCurrentComp();
+        if (!visited.add(new HashSet<>(composition.getUnits()))) {
+            return -1;
+        }
+        if (composition.size() == MAX_UNITS) {
+            return meetsRequirements(composition, state.getEngineConfiguration()) ? composition.getActivatedTraitCount() : -1;
+        }
+
+        int best = -1;
+        for (Unit unit : state.getBranchingUnits()) {
+            state.addUnit(unit);
+            best = Math.max(best, bestBoard(state, visited));
+            state.removeUnit(unit);
+        }
+        return best;
+    }
+
+    private static boolean meetsRequirements(CompactComposition composition, EngineConfiguration configuration) {
+        return configuration.getRequiredUnits().stream().allMatch(composition::contains)
+                && configuration.getRequiredTraits().entrySet().stream()
+                .allMatch(required -> composition.getTraitCount(required.getKey()) >= required.getValue());
+    }
+
+    private static EngineState state(SyntheticSet set, EngineConfiguration configuration, UnitEquivalence equivalence) {
+        CompactComposition composition = new CompactComposition(set.getUnits().size(), set.getTraits().size());
+        return new EngineState(composition, configuration, set.getUnits(),
+                new RequirementFeasibility(configuration, set.getUnits(), set.getUnits().size()), equivalence);
+    }
+
+    private static EngineConfiguration requiringConfiguration(SyntheticSet set, long seed) {
+        List<Unit> units = set.getUnits();
+        Set<Unit> requiredUnits = Set.of(units.get((int) seed % units.size()), units.get(((int) seed + 3) % units.size()));
+        Trait requiredTrait = units.get(((int) seed + 1) % units.size()).getTraits().get(0);
+        return configuration(Map.of(requiredTrait, 2), requiredUnits);
+    }
+
+    private static EngineConfiguration configuration(Map<Trait, Integer> requiredTraits, Set<Unit> requiredUnits) {
+        return EngineConfiguration.builder()
+                .compSize(MAX_UNITS)
+                .requiredTraits(requiredTraits)
+                .requiredUnits(requiredUnits)
+                .excludedTraits(Set.of())
+                .excludedUnits(Set.of())
+                .tactitionLevel(MAX_UNITS)
+                .emblems(Set.of())
+                .build();
+    }
+}
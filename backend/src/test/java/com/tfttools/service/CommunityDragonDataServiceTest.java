@@ -0,0 +1,189 @@
+package com.tfttools.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.tfttools.domain.communitydragon.CommunityDragonObject;
+import com.tfttools.web.client.CommunityDragonWebClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the refresher against a stub Community Dragon served on an ephemeral port
+ */
+public class CommunityDragonDataServiceTest {
+    private static final String DATA_PATH = "/latest/cdragon/tft/en_us.json";
+    private static final String LAST_MODIFIED = "Wed, 21 Oct 2015 07:28:00 GMT";
+
+    private HttpServer server;
+    private CommunityDragonDataService service;
+
+    // Arrival time of every data request, and the If-Modified-Since header it came with
+    private final List<Long> requestTimes = new CopyOnWriteArrayList<>();
+    private final List<String> ifModifiedSinceHeaders = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean failing = new AtomicBoolean();
+    private final AtomicLong responseDelayMs = new AtomicLong();
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext(DATA_PATH, this::serveData);
+        server.start();
+
+        CommunityDragonWebClient webClient = new CommunityDragonWebClient("http://127.0.0.1:" + server.getAddress().getPort());
+        service = new CommunityDragonDataService(webClient, null);
+        ReflectionTestUtils.setField(service, "cacheDurationHours", 1);
+        ReflectionTestUtils.setField(service, "fallbackEnabled", false);
+        ReflectionTestUtils.setField(service, "refreshJitter", 0.0);
+        ReflectionTestUtils.setField(service, "initialBackoffMs", 200L);
+        ReflectionTestUtils.setField(service, "maxBackoffMs", 800L);
+        ReflectionTestUtils.setField(service, "snapshotEnabled", false);
+    }
+
+    @AfterEach
+    public void stopServer() {
+        service.shutdown();
+        server.stop(0);
+    }
+
+    private void serveData(HttpExchange exchange) throws IOException {
+        requestTimes.add(System.nanoTime());
+        String ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+        ifModifiedSinceHeaders.add(String.valueOf(ifModifiedSince));
+        try {
+            Thread.sleep(responseDelayMs.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (failing.get()) {
+            exchange.sendResponseHeaders(500, -1);
+        } else if (LAST_MODIFIED.equals(ifModifiedSince)) {
+            exchange.sendResponseHeaders(304, -1);
+        } else {
+            byte[] body = "{\"items\":[],\"sets\":{\"1\":{\"champions\":[],\"traits\":[]}}}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.getResponseHeaders().add("Last-Modified", LAST_MODIFIED);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+        exchange.close();
+    }
+
+    @Test
+    public void concurrentRefreshesJoinASingleDownload() throws Exception {
+        responseDelayMs.set(300);
+        int callers = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<CommunityDragonObject>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return service.refreshCommunityDragonData();
+                }));
+            }
+            start.countDown();
+
+            CommunityDragonObject first = results.get(0).get();
+            assertNotNull(first);
+            for (Future<CommunityDragonObject> result : results) {
+                assertSame(first, result.get());
+            }
+            assertEquals(1, requestTimes.size());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void notModifiedResponseKeepsTheDataHeld() {
+        CommunityDragonObject loaded = service.getCommunityDragonData();
+        CommunityDragonDataService.CacheStatus loadedStatus = service.getCacheStatus();
+
+        CommunityDragonObject revalidated = service.refreshCommunityDragonData();
+
+        assertSame(loaded, revalidated);
+        assertEquals(List.of("null", LAST_MODIFIED), ifModifiedSinceHeaders);
+        CommunityDragonDataService.CacheStatus status = service.getCacheStatus();
+        assertEquals(LAST_MODIFIED, status.getLastModified());
+        assertFalse(status.getLastFetchTime().isBefore(loadedStatus.getLastFetchTime()));
+        assertEquals(0, status.getConsecutiveFailures());
+    }
+
+    @Test
+    public void failedRefreshesBackOffWhileTheDataHeldIsServed() throws InterruptedException {
+        CommunityDragonObject loaded = service.getCommunityDragonData();
+        failing.set(true);
+
+        assertSame(loaded, service.refreshCommunityDragonData());
+        assertEquals(1, service.getCacheStatus().getConsecutiveFailures());
+
+        awaitCondition(() -> service.getCacheStatus().getConsecutiveFailures() >= 4, 5000);
+        assertSame(loaded, service.getCommunityDragonData());
+
+        // Retries after 200ms, 400ms, then 800ms, the maximum
+        List<Long> retries = requestTimes.subList(1, 5);
+        long firstGapMs = (retries.get(1) - retries.get(0)) / 1_000_000;
+        long secondGapMs = (retries.get(2) - retries.get(1)) / 1_000_000;
+        long thirdGapMs = (retries.get(3) - retries.get(2)) / 1_000_000;
+        assertTrue(firstGapMs >= 180, "first retry after " + firstGapMs + "ms");
+        assertTrue(secondGapMs >= 380 && secondGapMs > firstGapMs, "second retry after " + secondGapMs + "ms");
+        assertTrue(thirdGapMs >= 780 && thirdGapMs > secondGapMs, "third retry after " + thirdGapMs + "ms");
+
+        failing.set(false);
+        awaitCondition(() -> service.getCacheStatus().getConsecutiveFailures() == 0, 3000);
+        assertSame(loaded, service.getCommunityDragonData());
+    }
+
+    @Test
+    public void localFallbackIsServedWhenNothingLoaded() {
+        ReflectionTestUtils.setField(service, "fallbackEnabled", true);
+        failing.set(true);
+
+        CommunityDragonObject data = service.getCommunityDragonData();
+
+        assertTrue(data.getSets().containsKey("0"));
+        CommunityDragonDataService.CacheStatus status = service.getCacheStatus();
+        assertTrue(status.hasCachedData());
+        assertNull(status.getLastFetchTime());
+        assertEquals(1, status.getConsecutiveFailures());
+    }
+
+    @Test
+    public void firstLoadFailsWithoutFallback() {
+        failing.set(true);
+
+        assertThrows(RuntimeException.class, service::getCommunityDragonData);
+        assertFalse(service.getCacheStatus().hasCachedData());
+    }
+
+    private static void awaitCondition(BooleanSupplier condition, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Condition not met within " + timeoutMs + "ms");
+            }
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.tfttools.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tfttools.domain.communitydragon.ChampionStats;
+import com.tfttools.domain.communitydragon.CommunityDragonChampions;
+import com.tfttools.domain.communitydragon.CommunityDragonItems;
+import com.tfttools.domain.communitydragon.CommunityDragonObject;
+import com.tfttools.domain.communitydragon.CommunityDragonSet;
+import com.tfttools.domain.communitydragon.CommunityDragonTraitEffects;
+import com.tfttools.domain.communitydragon.CommunityDragonTraits;
+import com.tfttools.domain.communitydragon.TeamPlannerChampion;
+import com.tfttools.domain.communitydragon.TeamPlannerData;
+import com.tfttools.domain.communitydragon.TeamPlannerTrait;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CommunityDragonSnapshotTest {
+    private static final String SET_NUMBER = "13";
+    private static final String SET_KEY = "TFTSet" + SET_NUMBER;
+
+    // Offset of the payload length in the file, after the magic number and the version
+    private static final int VERSION_OFFSET = 4;
+    private static final int PAYLOAD_OFFSET = 12;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void writtenSnapshotReadsBackTheSameData() throws IOException {
+        CommunityDragonSnapshot written = createSnapshot();
+        Path path = directory.resolve("snapshot");
+        written.write(path);
+
+        CommunityDragonSnapshot read = CommunityDragonSnapshot.read(path);
+
+        assertNotNull(read);
+        assertEquals(SET_NUMBER, read.setNumber());
+        assertEquals(written.fetchTime(), read.fetchTime());
+        assertEquals(written.lastModified(), read.lastModified());
+
+        CommunityDragonSet set = read.data().getSets().get(SET_NUMBER);
+        assertEquals(List.of("TFT13_Vi", "TFT13_Jinx"), set.getChampions().stream().map(CommunityDragonChampions::getApiName).toList());
+        assertEquals(List.of("TFT13_Enforcer", "TFT13_Rebel"), set.getChampions().get(0).getTraits());
+        assertEquals(4, set.getChampions().get(1).getCost());
+        assertNull(set.getChampions().get(1).getStats());
+
+        CommunityDragonTraits enforcer = set.getTraits().get(0);
+        assertEquals("TFT13_Enforcer", enforcer.getApiName());
+        assertEquals(List.of(2, 4, 6), enforcer.getEffects().stream().map(CommunityDragonTraitEffects::getMinUnits).toList());
+        assertEquals(List.of(3, 5, 25000), enforcer.getEffects().stream().map(CommunityDragonTraitEffects::getMaxUnits).toList());
+
+        assertEquals(List.of("TFT13_Item_EnforcerEmblemItem", "TFT_Item_BFSword"),
+                read.data().getItems().stream().map(CommunityDragonItems::getApiName).toList());
+        assertEquals(List.of("TFT13_Enforcer"), read.data().getItems().get(0).getIncompatibleTraits());
+        assertNull(read.data().getItems().get(1).getIncompatibleTraits());
+
+        List<TeamPlannerChampion> teamPlannerChampions = read.teamPlannerData().getSetData(SET_KEY);
+        assertEquals(List.of(101, 102), teamPlannerChampions.stream().map(TeamPlannerChampion::getTeamPlannerCode).toList());
+
+        // Every field written is read back
+        assertEquals(objectMapper.valueToTree(written.data()), objectMapper.valueToTree(read.data()));
+        assertEquals(objectMapper.valueToTree(written.teamPlannerData().getSetData(SET_KEY)),
+                objectMapper.valueToTree(teamPlannerChampions));
+    }
+
+    @Test
+    public void missingFileReadsAsNoSnapshot() throws IOException {
+        assertNull(CommunityDragonSnapshot.read(directory.resolve("missing")));
+    }
+
+    @Test
+    public void truncatedFileIsRejected() throws IOException {
+        byte[] file = writeSnapshot();
+
+        assertRejected(Arrays.copyOf(file, file.length / 2));
+        assertRejected(Arrays.copyOf(file, PAYLOAD_OFFSET + 2));
+        assertRejected(Arrays.copyOf(file, file.length - 1));
+    }
+
+    @Test
+    public void flippedPayloadByteIsRejected() throws IOException {
+        byte[] file = writeSnapshot();
+        file[PAYLOAD_OFFSET + 10] ^= 0x01;
+
+        assertRejected(file);
+    }
+
+    @Test
+    public void flippedChecksumByteIsRejected() throws IOException {
+        byte[] file = writeSnapshot();
+        file[file.length - 1] ^= 0x01;
+
+        assertRejected(file);
+    }
+
+    @Test
+    public void otherVersionIsRejected() throws IOException {
+        byte[] file = writeSnapshot();
+        ByteBuffer.wrap(file).putInt(VERSION_OFFSET, 2);
+
+        IOException exception = assertRejected(file);
+        assertTrue(exception.getMessage().contains("version 2"));
+    }
+
+    @Test
+    public void otherFileIsRejected() throws IOException {
+        assertRejected("{\"sets\":{}}".getBytes());
+    }
+
+    private byte[] writeSnapshot() throws IOException {
+        Path path = directory.resolve("snapshot");
+        createSnapshot().write(path);
+        return Files.readAllBytes(path);
+    }
+
+    private IOException assertRejected(byte[] file) throws IOException {
+        Path path = directory.resolve("corrupted");
+        Files.write(path, file);
+        return assertThrows(IOException.class, () -> CommunityDragonSnapshot.read(path));
+    }
+
+    private static CommunityDragonSnapshot createSnapshot() {
+        ChampionStats stats = new ChampionStats();
+        stats.setArmor(40);
+        stats.setAttackSpeed(1);
+        stats.setDamage(55);
+        stats.setHp(650);
+        stats.setMana(60);
+        stats.setRange(1);
+
+        CommunityDragonSet set = new CommunityDragonSet();
+        set.setChampions(List.of(
+                champion("TFT13_Vi", "Vi", 1, stats, List.of("TFT13_Enforcer", "TFT13_Rebel")),
+                champion("TFT13_Jinx", "Jinx", 4, null, List.of("TFT13_Rebel"))
+        ));
+        set.setTraits(List.of(
+                trait("TFT13_Enforcer", "Enforcer", new int[][]{{2, 3}, {4, 5}, {6, 25000}}),
+                trait("TFT13_Rebel", "Rebel", new int[][]{{3, 4}, {5, 25000}})
+        ));
+
+        CommunityDragonObject data = new CommunityDragonObject();
+        data.setSets(Map.of(SET_NUMBER, set));
+        data.setItems(List.of(
+                item("TFT13_Item_EnforcerEmblemItem", "Enforcer Emblem", List.of("TFT13_Enforcer")),
+                item("TFT_Item_BFSword", "B.F. Sword", null)
+        ));
+
+        TeamPlannerData teamPlannerData = new TeamPlannerData();
+        teamPlannerData.setDynamicProperty(SET_KEY, List.of(
+                teamPlannerChampion("TFT13_Vi", "Vi", 101, 1),
+                teamPlannerChampion("TFT13_Jinx", "Jinx", 102, 4)
+        ));
+
+        return new CommunityDragonSnapshot(SET_NUMBER, Instant.ofEpochMilli(1_700_000_000_000L),
+                "Wed, 21 Oct 2015 07:28:00 GMT", data, teamPlannerData);
+    }
+
+    private static CommunityDragonChampions champion(String apiName, String name, int cost, ChampionStats stats,
+                                                     List<String> traits) {
+        CommunityDragonChampions champion = new CommunityDragonChampions();
+        champion.setApiName(apiName);
+        champion.setCharacterName(apiName);
+        champion.setName(name);
+        champion.setCost(cost);
+        champion.setStats(stats);
+        champion.setTraits(traits);
+        return champion;
+    }
+
+    private static CommunityDragonTraits trait(String apiName, String name, int[][] thresholds) {
+        CommunityDragonTraits trait = new CommunityDragonTraits();
+        trait.setApiName(apiName);
+        trait.setName(name);
+        trait.setEffects(Arrays.stream(thresholds).map(threshold -> {
+            CommunityDragonTraitEffects effect = new CommunityDragonTraitEffects();
+            effect.setMinUnits(threshold[0]);
+            effect.setMaxUnits(threshold[1]);
+            effect.setStyle(threshold[0]);
+            return effect;
+        }).toList());
+        return trait;
+    }
+
+    private static CommunityDragonItems item(String apiName, String name, List<String> incompatibleTraits) {
+        CommunityDragonItems item = new CommunityDragonItems();
+        item.setApiName(apiName);
+        item.setName(name);
+        item.setIncompatibleTraits(incompatibleTraits);
+        return item;
+    }
+
+    private static TeamPlannerChampion teamPlannerChampion(String characterId, String name, int code, int tier) {
+        TeamPlannerTrait trait = new TeamPlannerTrait();
+        trait.setName("Rebel");
+        trait.setId("TFT13_Rebel");
+        trait.setAmount(1);
+
+        TeamPlannerChampion champion = new TeamPlannerChampion();
+        champion.setCharacterId(characterId);
+        champion.setDisplayName(name);
+        champion.setTeamPlannerCode(code);
+        champion.setTier(tier);
+        champion.setPath("/lol-game-data/assets/" + characterId);
+        champion.setTraits(List.of(trait));
+        return champion;
+    }
+}
@@ -0,0 +1,256 @@
+package com.tfttools.service;
+
+import com.tfttools.adapter.EngineConfigurationAdapter;
+import com.tfttools.domain.Composition;
+import com.tfttools.domain.Unit;
+import com.tfttools.domain.communitydragon.CommunityDragonChampions;
+import com.tfttools.domain.communitydragon.CommunityDragonObject;
+import com.tfttools.domain.communitydragon.CommunityDragonSet;
+import com.tfttools.domain.communitydragon.CommunityDragonTraitEffects;
+import com.tfttools.domain.communitydragon.CommunityDragonTraits;
+import com.tfttools.dto.CompositionDTO;
+import com.tfttools.dto.HorizontalDTO;
+import com.tfttools.engine.SearchBudget;
+import com.tfttools.engine.engine_strategy.StrategyContext;
+import com.tfttools.engine.engine_strategy.TFTEngineStrategy;
+import com.tfttools.engine.manager.EngineStrategyManager;
+import com.tfttools.mapper.CompositionMapper;
+import com.tfttools.repository.GameDataRepository;
+import com.tfttools.repository.GameDataSnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the result cache and the coalescing of identical searches against a stub strategy whose searches the tests
+ * hold, cut short or cancel
+ */
+public class CompositionServiceTest {
+    private static final String SET_NUMBER = "99";
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private final GameDataSnapshot snapshot = GameDataSnapshot.build(createData(), SET_NUMBER, 1);
+    private final StubStrategy strategy = new StubStrategy(List.copyOf(snapshot.getUnitRepository().getAllUnits()).subList(0, 2));
+    private final CompositionResultCache resultCache = new CompositionResultCache(16);
+    private final CompositionService service = createService();
+    private final ExecutorService requests = Executors.newCachedThreadPool();
+
+    @AfterEach
+    public void releaseSearches() {
+        strategy.release.countDown();
+        requests.shutdownNow();
+    }
+
+    @Test
+    public void completeSearchIsCachedForLaterRequests() {
+        strategy.release.countDown();
+
+        List<CompositionDTO> first = service.generateCompositions(request());
+        List<CompositionDTO> second = service.generateCompositions(request());
+
+        assertEquals(1, first.size());
+        assertEquals(first, second);
+        assertEquals(1, strategy.searches.get());
+    }
+
+    @Test
+    public void searchRunningWhileTheCacheIsInvalidatedIsNotCached() throws Exception {
+        CompletableFuture<List<CompositionDTO>> first = submit(SearchBudget.unlimited());
+        awaitSearches(1);
+
+        resultCache.invalidate();
+        strategy.release.countDown();
+        assertEquals(1, first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).size());
+
+        service.generateCompositions(request());
+        assertEquals(2, strategy.searches.get());
+    }
+
+    @Test
+    public void searchCutShortIsNotCached() {
+        strategy.release.countDown();
+        strategy.truncating = true;
+
+        service.generateCompositions(request());
+        service.generateCompositions(request());
+
+        assertEquals(2, strategy.searches.get());
+    }
+
+    @Test
+    public void cancelledSearchIsNotCached() throws Exception {
+        SearchBudget requestBudget = SearchBudget.unlimited();
+        CompletableFuture<List<CompositionDTO>> cancelled = submit(requestBudget);
+        awaitSearches(1);
+
+        requestBudget.cancel();
+        assertTrue(strategy.searchBudget.isCancelled());
+        strategy.release.countDown();
+        cancelled.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        service.generateCompositions(request());
+        assertEquals(2, strategy.searches.get());
+    }
+
+    @Test
+    public void followerGetsTheResultAfterTheLeaderIsCancelled() throws Exception {
+        SearchBudget leaderBudget = SearchBudget.unlimited();
+        CompletableFuture<List<CompositionDTO>> leader = submit(leaderBudget);
+        awaitSearches(1);
+        CompletableFuture<List<CompositionDTO>> follower = submit(SearchBudget.unlimited());
+        await(() -> service.getCoalescedSearchCount() == 1);
+
+        leaderBudget.cancel();
+        assertFalse(strategy.searchBudget.isCancelled());
+        strategy.release.countDown();
+
+        assertEquals(1, follower.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).size());
+        leader.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        // The shared search ran to completion, so its result is cached even though the request that led it went away
+        service.generateCompositions(request());
+        assertEquals(1, strategy.searches.get());
+    }
+
+    @Test
+    public void searchAbandonedByEveryRequestIsCancelled() throws Exception {
+        SearchBudget leaderBudget = SearchBudget.unlimited();
+        SearchBudget followerBudget = SearchBudget.unlimited();
+        CompletableFuture<List<CompositionDTO>> leader = submit(leaderBudget);
+        awaitSearches(1);
+        CompletableFuture<List<CompositionDTO>> follower = submit(followerBudget);
+        await(() -> service.getCoalescedSearchCount() == 1);
+
+        leaderBudget.cancel();
+        followerBudget.cancel();
+
+        assertTrue(strategy.searchBudget.isCancelled());
+        assertEquals(List.of(), follower.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        strategy.release.countDown();
+        leader.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private CompletableFuture<List<CompositionDTO>> submit(SearchBudget requestBudget) {
+        return CompletableFuture.supplyAsync(() -> service.generateCompositions(request(), requestBudget), requests);
+    }
+
+    private void awaitSearches(int searches) throws InterruptedException {
+        await(() -> strategy.searches.get() == searches);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.sleep(5);
+        }
+    }
+
+    private static HorizontalDTO request() {
+        return new HorizontalDTO(2, Map.of(), Set.of(), Set.of(), Set.of(), 0, 2, 0, Set.of(), 0.5f, SET_NUMBER);
+    }
+
+    private CompositionService createService() {
+        GameDataRepository gameDataRepository = new GameDataRepository(null, null, 1, new String[0]) {
+            @Override
+            public GameDataSnapshot getSnapshot(String setNumber) {
+                return snapshot;
+            }
+        };
+        CompositionMapper compositionMapper = new CompositionMapper(null, null, null) {
+            @Override
+            public CompositionDTO apply(Composition composition, String setNumber) {
+                return new CompositionDTO(List.of(), Map.of(), composition.getUnits().size(), setNumber);
+            }
+        };
+
+        return new CompositionService(new EngineConfigurationAdapter(null, null, null), compositionMapper,
+                gameDataRepository, resultCache, new EngineMetrics(null, null, false, false), null,
+                new EngineStrategyManager(List.of(strategy)), null, 60_000, Long.MAX_VALUE);
+    }
+
+    private static CommunityDragonObject createData() {
+        CommunityDragonSet set = new CommunityDragonSet();
+        set.setTraits(List.of(trait("TFT99_Rebel", "Rebel"), trait("TFT99_Enforcer", "Enforcer")));
+        set.setChampions(List.of(
+                champion("TFT99_Vi", "Vi", List.of("Rebel", "Enforcer")),
+                champion("TFT99_Jinx", "Jinx", List.of("Rebel")),
+                champion("TFT99_Caitlyn", "Caitlyn", List.of("Enforcer"))
+        ));
+
+        CommunityDragonObject data = new CommunityDragonObject();
+        data.setSets(Map.of(SET_NUMBER, set));
+        data.setItems(List.of());
+        return data;
+    }
+
+    private static CommunityDragonTraits trait(String apiName, String name) {
+        List<CommunityDragonTraitEffects> effects = new ArrayList<>();
+        for (int minUnits : new int[]{2, 3}) {
+            CommunityDragonTraitEffects effect = new CommunityDragonTraitEffects();
+            effect.setMinUnits(minUnits);
+            effect.setStyle(1);
+            effects.add(effect);
+        }
+
+        CommunityDragonTraits trait = new CommunityDragonTraits();
+        trait.setApiName(apiName);
+        trait.setName(name);
+        trait.setEffects(effects);
+        return trait;
+    }
+
+    private static CommunityDragonChampions champion(String apiName, String name, List<String> traits) {
+        CommunityDragonChampions champion = new CommunityDragonChampions();
+        champion.setApiName(apiName);
+        champion.setName(name);
+        champion.setCost(1);
+        champion.setRole("APCaster");
+        champion.setTraits(traits);
+        return champion;
+    }
+
+    /**
+     * Holds every search until released, then answers it with the same composition, cutting the search short if asked to
+     */
+    private static final class StubStrategy implements TFTEngineStrategy {
+        private final List<Unit> units;
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final AtomicInteger searches = new AtomicInteger();
+
+        private volatile boolean truncating;
+        private volatile SearchBudget searchBudget;
+
+        StubStrategy(List<Unit> units) {
+            this.units = units;
+        }
+
+        @Override
+        public List<Composition> buildCompositions(StrategyContext strategyContext) {
+            searchBudget = strategyContext.getSearchBudget();
+            searches.incrementAndGet();
+            try {
+                release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (truncating) {
+                searchBudget.markTruncated();
+            }
+            return List.of(new Composition(new ArrayList<>(units)));
+        }
+    }
+}
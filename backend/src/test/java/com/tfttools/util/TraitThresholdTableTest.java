@@ -0,0 +1,78 @@
+package com.tfttools.util;
+
+import com.tfttools.domain.Composition;
+import com.tfttools.domain.Trait;
+import com.tfttools.domain.Unit;
+import com.tfttools.engine.CompactComposition;
+import com.tfttools.engine.SyntheticSet;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TraitThresholdTableTest {
+    private final CompositionUtils compositionUtils = CompositionUtils.INSTANCE;
+    private final SyntheticSet set = SyntheticSet.generate(2, 12, 60);
+    private final TraitThresholdTable table = TraitThresholdTable.build(set.getTraits(), set.getTraits().size());
+
+    @Test
+    public void lookupsMatchThresholdScans() {
+        for (Trait trait : set.getTraits()) {
+            int[] thresholds = trait.getThresholds();
+            // Past the last threshold every count resolves to the last row of the trait
+            for (int count = 0; count <= thresholds[thresholds.length - 1] + 5; count++) {
+                String label = trait.getName() + " at " + count;
+                assertEquals(compositionUtils.getNextThreshold(trait, count), table.getNextThreshold(trait, count), label);
+                assertEquals(compositionUtils.getPreviousThreshold(trait, count), table.getPreviousThreshold(trait, count), label);
+                assertEquals(compositionUtils.willActivateNextThreshold(trait, count), table.willActivateNextThreshold(trait, count), label);
+                assertEquals(compositionUtils.hasReachedFirstThreshold(trait, count), table.hasReachedFirstThreshold(trait, count), label);
+            }
+        }
+    }
+
+    @Test
+    public void styleTierIsTheStyleOfTheHighestThresholdReached() {
+        Trait trait = new Trait("TFT99_Styled", "Styled", new int[]{2, 4, 6}, List.of(1, 3, 5), 0);
+        Trait unstyled = new Trait("TFT99_Unstyled", "Unstyled", new int[]{3, 5}, null, 1);
+        TraitThresholdTable styledTable = TraitThresholdTable.build(List.of(trait, unstyled), 2);
+
+        int[] expectedStyles = {0, 0, 1, 1, 3, 3, 5, 5, 5};
+        for (int count = 0; count < expectedStyles.length; count++) {
+            assertEquals(expectedStyles[count], styledTable.getStyleTier(trait, count), "count " + count);
+        }
+        int[] expectedTiers = {0, 0, 0, 1, 1, 2, 2};
+        for (int count = 0; count < expectedTiers.length; count++) {
+            assertEquals(expectedTiers[count], styledTable.getStyleTier(unstyled, count), "count " + count);
+        }
+    }
+
+    @Test
+    public void compactOverloadsMatchCompositionOverloads() {
+        Random random = new Random(7);
+        for (int round = 0; round < 500; round++) {
+            CompactComposition compact = new CompactComposition(set.getUnits().size(), set.getTraits().size());
+            Composition composition = new Composition();
+            int size = random.nextInt(10);
+            while (compact.size() < size) {
+                Unit unit = set.getUnits().get(random.nextInt(set.getUnits().size()));
+                if (compact.add(unit)) {
+                    composition.add(unit);
+                }
+            }
+
+            assertEquals(new HashSet<>(compositionUtils.getActivatedTraits(composition)),
+                    new HashSet<>(compositionUtils.getActivatedTraits(compact, table)));
+
+            for (Unit unit : set.getUnits()) {
+                if (compact.contains(unit)) {
+                    continue;
+                }
+                List<Trait> expected = compositionUtils.getTraitsReachingFirstThresholdWhenUnitAdded(composition, unit);
+                assertEquals(expected, compositionUtils.getTraitsReachingFirstThresholdWhenUnitAdded(compact, unit, table), unit.getName());
+            }
+        }
+    }
+}